@@ -0,0 +1,310 @@
+package com.eucalyptus.tests.awssdk;
+
+import com.amazonaws.auth.AWSCredentials;
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.Bucket;
+
+import java.io.*;
+import java.util.*;
+
+import static com.eucalyptus.tests.awssdk.N4j.print;
+
+/**
+ * Pool of test accounts with admin access keys.
+ *
+ * Test classes acquire accounts from the pool rather than creating and
+ * deleting their own. Accounts are created concurrently when the pool runs
+ * short and released accounts have their buckets purged before they are
+ * handed out again:
+ *
+ * <pre>
+ * List&lt;AccountPool.Account&gt; accounts = AccountPool.acquire(2);
+ * ...
+ * AccountPool.release(accounts);
+ * </pre>
+ *
+ * If the accountpool.file system property names a file the idle accounts and
+ * their keys are saved there, readable only by the owner, when the JVM exits
+ * and reused by later runs against the same CLC, otherwise the pool deletes
+ * its accounts on exit. The
+ * accountpool.size property sets the number of accounts created up front.
+ */
+class AccountPool {
+    static String POOL_FILE = System.getProperty("accountpool.file", "");
+    static int WARM_SIZE = Integer.getInteger("accountpool.size", 2);
+    private static final int CREATE_THREADS = 8;
+
+    private static AccountPool pool;
+
+    private final Deque<Account> idle = new ArrayDeque<>();
+    private final Set<Account> leased = new HashSet<>();
+
+    /**
+     * A pooled account, acting as its admin user.
+     */
+    static class Account {
+        private final String name;
+        private final AWSCredentials credentials;
+        private AmazonS3 s3;
+
+        private Account(String name, AWSCredentials credentials) {
+            this.name = name;
+            this.credentials = credentials;
+        }
+
+        String getName() {
+            return name;
+        }
+
+        AWSCredentials getCredentials() {
+            return credentials;
+        }
+
+        /**
+         * @return an S3 connection for the account admin
+         */
+        synchronized AmazonS3 getS3() {
+            if (s3 == null) {
+                s3 = N4j.getS3Client(credentials, N4j.S3_ENDPOINT);
+            }
+            return s3;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    /**
+     * Acquire accounts for exclusive use, creating any the pool is short of.
+     */
+    static List<Account> acquire(int count) throws Exception {
+        return pool().take(count);
+    }
+
+    /**
+     * Return accounts to the pool once the caller is done with them.
+     */
+    static void release(Collection<Account> accounts) {
+        final AccountPool pool;
+        synchronized (AccountPool.class) {
+            pool = AccountPool.pool;
+        }
+        if (pool != null && accounts != null) pool.recycle(accounts);
+    }
+
+    static void release(Account... accounts) {
+        release(Arrays.asList(accounts));
+    }
+
+    private static synchronized AccountPool pool() throws Exception {
+        if (pool == null) {
+            N4j.initYouAreClient();
+            final AccountPool created = new AccountPool();
+            created.load();
+            Runtime.getRuntime().addShutdownHook(new Thread("account-pool-shutdown") {
+                @Override
+                public void run() {
+                    created.shutdown();
+                }
+            });
+            pool = created;
+        }
+        return pool;
+    }
+
+    private List<Account> take(int count) throws Exception {
+        final List<Account> accounts = new ArrayList<>();
+        synchronized (this) {
+            while (accounts.size() < count && !idle.isEmpty()) {
+                accounts.add(idle.poll());
+            }
+            leased.addAll(accounts);
+        }
+        final int shortfall = count - accounts.size();
+        if (shortfall > 0) {
+            final int warm;
+            synchronized (this) {
+                warm = Math.max(0, WARM_SIZE - leased.size() - idle.size() - shortfall);
+            }
+            final List<Account> created;
+            try {
+                created = create(shortfall + warm);
+            } catch (Throwable e) {
+                synchronized (this) {
+                    leased.removeAll(accounts);
+                    idle.addAll(accounts);
+                }
+                throw e;
+            }
+            synchronized (this) {
+                accounts.addAll(created.subList(0, shortfall));
+                leased.addAll(created.subList(0, shortfall));
+                idle.addAll(created.subList(shortfall, created.size()));
+            }
+        }
+        print("Acquired pooled accounts " + accounts);
+        return accounts;
+    }
+
+    /**
+     * Create accounts concurrently, then their admin keys.
+     *
+     * If an account can not be created all the new accounts are deleted, as
+     * it is not known which were created.
+     */
+    private List<Account> create(int count) throws Exception {
+        print("Creating " + count + " pooled accounts");
+        final List<String> names = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            names.add("n4jpool" + UUID.randomUUID().toString().replace("-", "").substring(0, 12));
+        }
+        try {
+            N4j.createAccounts(names, CREATE_THREADS);
+        } catch (Throwable e) {
+            deleteAccounts(names);
+            throw e;
+        }
+        final List<Account> accounts = new ArrayList<>();
+        try {
+            for (final String name : names) {
+                final Map<String, String> keys = N4j.getUserKeys(name, "admin");
+                accounts.add(new Account(name, new BasicAWSCredentials(keys.get("ak"), keys.get("sk"))));
+            }
+        } catch (Throwable e) {
+            synchronized (this) {
+                idle.addAll(accounts);
+            }
+            deleteAccounts(names.subList(accounts.size(), names.size()));
+            throw e;
+        }
+        return accounts;
+    }
+
+    /**
+     * Purge the buckets of released accounts and make them available again.
+     *
+     * An account that can not be cleaned up is deleted rather than reused.
+     */
+    private void recycle(Collection<Account> accounts) {
+        synchronized (this) {
+            leased.removeAll(accounts);
+        }
+        final List<Account> clean = purge(accounts);
+        synchronized (this) {
+            idle.addAll(clean);
+        }
+    }
+
+    private List<Account> purge(Collection<Account> accounts) {
+        final CleanupExecutor cleanup = new CleanupExecutor();
+        final Map<Account, List<CleanupExecutor.Task>> tasks = new LinkedHashMap<>();
+        final List<Account> unusable = new ArrayList<>();
+        for (final Account account : accounts) {
+            final List<CleanupExecutor.Task> accountTasks = new ArrayList<>();
+            try {
+                for (final Bucket bucket : account.getS3().listBuckets()) {
+                    accountTasks.add(cleanup.purgeBucket(account.getS3(), bucket.getName()));
+                }
+                tasks.put(account, accountTasks);
+            } catch (Exception e) {
+                print("Unable to list buckets for pooled account " + account + ": " + e);
+                unusable.add(account);
+            }
+        }
+        cleanup.run();
+
+        final List<Account> clean = new ArrayList<>();
+        for (final Map.Entry<Account, List<CleanupExecutor.Task>> entry : tasks.entrySet()) {
+            boolean purged = true;
+            for (final CleanupExecutor.Task task : entry.getValue()) {
+                purged = purged && task.getError() == null;
+            }
+            if (purged) {
+                clean.add(entry.getKey());
+            } else {
+                unusable.add(entry.getKey());
+            }
+        }
+        delete(unusable);
+        return clean;
+    }
+
+    private void delete(Collection<Account> accounts) {
+        final List<String> names = new ArrayList<>();
+        for (final Account account : accounts) {
+            names.add(account.getName());
+        }
+        deleteAccounts(names);
+    }
+
+    private static void deleteAccounts(Collection<String> names) {
+        for (final String name : names) {
+            try {
+                N4j.deleteAccount(name);
+            } catch (Throwable e) {
+                // deleteAccount asserts, continue with the remaining accounts
+                print("Unable to delete pooled account " + name + ": " + e);
+            }
+        }
+    }
+
+    /**
+     * Load accounts saved by an earlier run, purging them before use.
+     */
+    private void load() {
+        if (POOL_FILE.isEmpty()) return;
+        final File file = new File(POOL_FILE);
+        if (!file.isFile()) return;
+        final Properties properties = new Properties();
+        try (InputStream in = new FileInputStream(file)) {
+            properties.load(in);
+        } catch (IOException e) {
+            print("Unable to read account pool " + file + ": " + e);
+            return;
+        }
+        if (N4j.CLC_IP != null && !N4j.CLC_IP.equals(properties.getProperty("clcip"))) {
+            print("Ignoring account pool " + file + " for other CLC " + properties.getProperty("clcip"));
+            return;
+        }
+        final List<Account> accounts = new ArrayList<>();
+        for (final String name : properties.getProperty("accounts", "").split(",")) {
+            final String accessKey = properties.getProperty(name + ".access-key");
+            final String secretKey = properties.getProperty(name + ".secret-key");
+            if (!name.isEmpty() && accessKey != null && secretKey != null) {
+                accounts.add(new Account(name, new BasicAWSCredentials(accessKey, secretKey)));
+            }
+        }
+        print("Reusing " + accounts.size() + " pooled accounts from " + file);
+        idle.addAll(purge(accounts));
+    }
+
+    /**
+     * Save idle accounts for the next run if a pool file is configured, else
+     * delete them. Accounts still leased are deleted as their state is unknown.
+     */
+    private synchronized void shutdown() {
+        delete(leased);
+        if (POOL_FILE.isEmpty()) {
+            delete(idle);
+            return;
+        }
+        final Properties properties = new Properties();
+        final StringBuilder names = new StringBuilder();
+        for (final Account account : idle) {
+            if (names.length() > 0) names.append(',');
+            names.append(account.getName());
+            properties.setProperty(account.getName() + ".access-key", account.getCredentials().getAWSAccessKeyId());
+            properties.setProperty(account.getName() + ".secret-key", account.getCredentials().getAWSSecretKey());
+        }
+        if (N4j.CLC_IP != null) properties.setProperty("clcip", N4j.CLC_IP);
+        properties.setProperty("accounts", names.toString());
+        try (OutputStream out = CloudInfoSnapshot.newPrivateOutputStream(POOL_FILE)) {
+            properties.store(out, "N4j account pool");
+        } catch (IOException e) {
+            print("Unable to write account pool " + POOL_FILE + ": " + e);
+        }
+    }
+}
@@ -0,0 +1,292 @@
+package com.eucalyptus.tests.awssdk;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.DeleteObjectsRequest;
+import com.amazonaws.services.s3.model.DeleteObjectsRequest.KeyVersion;
+import com.amazonaws.services.s3.model.MultiObjectDeleteException;
+import com.amazonaws.services.s3.model.S3VersionSummary;
+import com.amazonaws.services.s3.model.VersionListing;
+
+import java.util.*;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static com.eucalyptus.tests.awssdk.N4j.print;
+
+/**
+ * Runs cleanup tasks concurrently while respecting their dependencies.
+ *
+ * A task only starts once every task it depends on has finished, whether or
+ * not those succeeded, and every task is run even if others fail, as with a
+ * list of cleanup runnables. Independent resources are torn down in parallel:
+ *
+ * <pre>
+ * CleanupExecutor cleanup = new CleanupExecutor();
+ * CleanupExecutor.Task instance = cleanup.add("terminate " + instanceId, terminate);
+ * cleanup.add("delete group " + groupName, deleteGroup, instance);
+ * cleanup.deleteObject(s3, bucket, key);
+ * cleanup.deleteBucket(s3, bucket);
+ * cleanup.run();
+ * </pre>
+ *
+ * S3 object deletes are grouped into DeleteObjects requests of up to 1000
+ * keys per bucket and the bucket delete waits for them.
+ */
+class CleanupExecutor {
+    static final int MAX_KEYS_PER_DELETE = 1000;
+
+    private final List<Task> tasks = new ArrayList<>();
+    private final Map<String, ObjectBatch> openBatches = new HashMap<>();
+    private final Map<String, List<Task>> bucketDependencies = new HashMap<>();
+    private final Map<String, Task> bucketTasks = new HashMap<>();
+    private int threads = 8;
+
+    /**
+     * A unit of cleanup work.
+     */
+    static class Task {
+        private final String name;
+        private final Runnable action;
+        private final List<Task> dependencies;
+        private volatile boolean done;
+        private long elapsed;
+        private Throwable error;
+
+        private Task(String name, Runnable action, Collection<Task> dependencies) {
+            this.name = name;
+            this.action = action;
+            this.dependencies = new ArrayList<>(dependencies);
+        }
+
+        String getName() {
+            return name;
+        }
+
+        /**
+         * @return the time taken by the task in ms
+         */
+        long getElapsed() {
+            return elapsed;
+        }
+
+        /**
+         * @return the failure, or null if the task succeeded
+         */
+        Throwable getError() {
+            return error;
+        }
+
+        private boolean isReady() {
+            for (final Task dependency : dependencies) {
+                if (!dependency.done) return false;
+            }
+            return true;
+        }
+
+        private void execute() {
+            final long start = System.currentTimeMillis();
+            try {
+                action.run();
+            } catch (Throwable t) {
+                // includes assertion errors so a failed task never stops the others
+                error = t;
+            } finally {
+                elapsed = System.currentTimeMillis() - start;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return name + " " + elapsed + "ms" + (error == null ? "" : " failed: " + error);
+        }
+    }
+
+    private class ObjectBatch implements Runnable {
+        private final AmazonS3 s3;
+        private final String bucket;
+        private final List<KeyVersion> keys = new ArrayList<>();
+
+        private ObjectBatch(AmazonS3 s3, String bucket) {
+            this.s3 = s3;
+            this.bucket = bucket;
+        }
+
+        @Override
+        public void run() {
+            deleteObjects(s3, bucket, keys);
+        }
+    }
+
+    CleanupExecutor withThreads(int threads) {
+        this.threads = Math.max(1, threads);
+        return this;
+    }
+
+    /**
+     * Add a task that runs after the given tasks.
+     */
+    Task add(String name, Runnable action, Task... after) {
+        final Task task = new Task(name, action, Arrays.asList(after));
+        tasks.add(task);
+        return task;
+    }
+
+    /**
+     * Delete an object as part of a batched multi-object delete.
+     */
+    void deleteObject(AmazonS3 s3, String bucket, String key) {
+        deleteVersion(s3, bucket, key, null);
+    }
+
+    /**
+     * Delete an object version as part of a batched multi-object delete.
+     */
+    void deleteVersion(AmazonS3 s3, String bucket, String key, String versionId) {
+        ObjectBatch batch = openBatches.get(bucket);
+        if (batch == null || batch.keys.size() >= MAX_KEYS_PER_DELETE) {
+            batch = new ObjectBatch(s3, bucket);
+            openBatches.put(bucket, batch);
+            addBucketDependency(bucket, add("delete objects in " + bucket, batch));
+        }
+        batch.keys.add(new KeyVersion(key, versionId));
+    }
+
+    /**
+     * Delete a bucket once any of its objects added for deletion are deleted.
+     */
+    Task deleteBucket(final AmazonS3 s3, final String bucket, Task... after) {
+        final List<Task> dependencies = new ArrayList<>(Arrays.asList(after));
+        if (bucketDependencies.containsKey(bucket)) {
+            dependencies.addAll(bucketDependencies.get(bucket));
+        }
+        final Task task = new Task("delete bucket " + bucket, new Runnable() {
+            @Override
+            public void run() {
+                print("Deleting bucket " + bucket);
+                s3.deleteBucket(bucket);
+            }
+        }, dependencies);
+        tasks.add(task);
+        bucketTasks.put(bucket, task);
+        return task;
+    }
+
+    /**
+     * Delete every object version in a bucket, a page at a time, and then the bucket.
+     */
+    Task purgeBucket(final AmazonS3 s3, final String bucket, Task... after) {
+        addBucketDependency(bucket, add("delete all objects in " + bucket, new Runnable() {
+            @Override
+            public void run() {
+                VersionListing listing = s3.listVersions(bucket, null);
+                while (true) {
+                    final List<KeyVersion> keys = new ArrayList<>();
+                    for (final S3VersionSummary summary : listing.getVersionSummaries()) {
+                        keys.add(new KeyVersion(summary.getKey(), summary.getVersionId()));
+                    }
+                    deleteObjects(s3, bucket, keys);
+                    if (!listing.isTruncated()) break;
+                    listing = s3.listNextBatchOfVersions(listing);
+                }
+            }
+        }, after));
+        return deleteBucket(s3, bucket);
+    }
+
+    /**
+     * Run all tasks added so far and print a summary.
+     *
+     * @return the tasks in the order they were added, with their timing and any failure
+     */
+    List<Task> run() {
+        final List<Task> toRun = new ArrayList<>(tasks);
+        tasks.clear();
+        openBatches.clear();
+        bucketDependencies.clear();
+        bucketTasks.clear();
+        if (toRun.isEmpty()) return toRun;
+
+        final long start = System.currentTimeMillis();
+        final ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, toRun.size()));
+        final ExecutorCompletionService<Task> completion = new ExecutorCompletionService<>(executor);
+        try {
+            final List<Task> pending = new ArrayList<>(toRun);
+            int running = 0;
+            while (!pending.isEmpty() || running > 0) {
+                for (final Iterator<Task> it = pending.iterator(); it.hasNext(); ) {
+                    final Task task = it.next();
+                    if (task.isReady()) {
+                        it.remove();
+                        running++;
+                        completion.submit(new Runnable() {
+                            @Override
+                            public void run() {
+                                task.execute();
+                            }
+                        }, task);
+                    }
+                }
+                if (running == 0) {
+                    throw new IllegalStateException("Cleanup tasks can not be scheduled: " + pending);
+                }
+                completion.take().get().done = true;
+                running--;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            print("Interrupted running cleanup tasks");
+        } catch (Exception e) {
+            print("Error running cleanup tasks: " + e);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        final List<Task> failures = failures(toRun);
+        for (final Task task : failures) {
+            print("Unable to run clean up task " + task);
+        }
+        print("Ran " + toRun.size() + " clean up tasks in " + (System.currentTimeMillis() - start) + "ms, " + failures.size() + " failed");
+        return toRun;
+    }
+
+    /**
+     * @return the tasks that failed, e.g. to fail a test when cleanup did not complete
+     */
+    static List<Task> failures(Collection<Task> tasks) {
+        final List<Task> failures = new ArrayList<>();
+        for (final Task task : tasks) {
+            if (task.error != null) failures.add(task);
+        }
+        return failures;
+    }
+
+    private void addBucketDependency(String bucket, Task task) {
+        List<Task> dependencies = bucketDependencies.get(bucket);
+        if (dependencies == null) {
+            dependencies = new ArrayList<>();
+            bucketDependencies.put(bucket, dependencies);
+        }
+        dependencies.add(task);
+        final Task bucketTask = bucketTasks.get(bucket);
+        if (bucketTask != null) {
+            bucketTask.dependencies.add(task);
+        }
+    }
+
+    /**
+     * Delete keys with as few DeleteObjects requests as possible.
+     */
+    static void deleteObjects(AmazonS3 s3, String bucket, List<KeyVersion> keys) {
+        for (int from = 0; from < keys.size(); from += MAX_KEYS_PER_DELETE) {
+            final List<KeyVersion> batch = keys.subList(from, Math.min(keys.size(), from + MAX_KEYS_PER_DELETE));
+            print("Deleting " + batch.size() + " objects from bucket " + bucket);
+            try {
+                s3.deleteObjects(new DeleteObjectsRequest(bucket).withKeys(batch).withQuiet(true));
+            } catch (MultiObjectDeleteException e) {
+                throw new IllegalStateException("Unable to delete " + e.getErrors().size() + " of " + batch.size() + " objects from bucket "
+                        + bucket + ", first error: " + e.getErrors().get(0).getCode(), e);
+            }
+        }
+    }
+}
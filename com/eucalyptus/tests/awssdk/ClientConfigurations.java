@@ -0,0 +1,68 @@
+package com.eucalyptus.tests.awssdk;
+
+import com.amazonaws.ClientConfiguration;
+import com.amazonaws.retry.PredefinedRetryPolicies;
+
+/**
+ * Connection settings shared by all N4j service clients.
+ *
+ * Settings come from system properties so load runs can size connection
+ * pools to their concurrency without code changes:
+ *
+ * <ul>
+ * <li>client.maxconnections - connections per client pool (default 128)</li>
+ * <li>client.keepalive - TCP keep-alive on pooled connections (default true)</li>
+ * <li>client.connecttimeout - connect timeout in ms (default 10000)</li>
+ * <li>client.sockettimeout - socket read timeout in ms (default 50000)</li>
+ * <li>client.requesttimeout - whole request timeout in ms, 0 for none (default 0)</li>
+ * <li>client.connectionttl - maximum connection lifetime in ms, -1 for none (default -1)</li>
+ * <li>client.maxidle - time a pooled connection may be idle in ms (default 60000)</li>
+ * <li>client.retries - maximum retries of failed requests (default 3)</li>
+ * <li>client.throttledretries - retry throttled requests (default true)</li>
+ * </ul>
+ *
+ * TCP_NODELAY is always set on SDK connections so there is no property for it.
+ */
+class ClientConfigurations {
+    static final int MAX_CONNECTIONS = Integer.getInteger("client.maxconnections", 128);
+    static final boolean TCP_KEEP_ALIVE = Boolean.parseBoolean(System.getProperty("client.keepalive", "true"));
+    static final int CONNECT_TIMEOUT = Integer.getInteger("client.connecttimeout", ClientConfiguration.DEFAULT_CONNECTION_TIMEOUT);
+    static final int SOCKET_TIMEOUT = Integer.getInteger("client.sockettimeout", ClientConfiguration.DEFAULT_SOCKET_TIMEOUT);
+    static final int REQUEST_TIMEOUT = Integer.getInteger("client.requesttimeout", ClientConfiguration.DEFAULT_REQUEST_TIMEOUT);
+    static final long CONNECTION_TTL = Long.getLong("client.connectionttl", ClientConfiguration.DEFAULT_CONNECTION_TTL);
+    static final long CONNECTION_MAX_IDLE = Long.getLong("client.maxidle", ClientConfiguration.DEFAULT_CONNECTION_MAX_IDLE_MILLIS);
+    static final int MAX_RETRIES = Integer.getInteger("client.retries", PredefinedRetryPolicies.DEFAULT_MAX_ERROR_RETRY);
+    static final boolean THROTTLED_RETRIES = Boolean.parseBoolean(System.getProperty("client.throttledretries", "true"));
+
+    /**
+     * @return a new configuration with the shared settings, for a client to customize further
+     */
+    static ClientConfiguration create() {
+        return new ClientConfiguration()
+                .withMaxConnections(MAX_CONNECTIONS)
+                .withTcpKeepAlive(TCP_KEEP_ALIVE)
+                .withConnectionTimeout(CONNECT_TIMEOUT)
+                .withSocketTimeout(SOCKET_TIMEOUT)
+                .withRequestTimeout(REQUEST_TIMEOUT)
+                .withConnectionTTL(CONNECTION_TTL)
+                .withConnectionMaxIdleMillis(CONNECTION_MAX_IDLE)
+                .withRetryPolicy(PredefinedRetryPolicies.getDefaultRetryPolicyWithCustomMaxRetries(MAX_RETRIES))
+                .withThrottledRetries(THROTTLED_RETRIES);
+    }
+
+    /**
+     * @return a configuration for S3 clients, which use the S3 signer
+     */
+    static ClientConfiguration createS3() {
+        return create().withSignerOverride("S3SignerType");
+    }
+
+    /**
+     * @return a summary of the shared settings
+     */
+    static String describe() {
+        return "max connections " + MAX_CONNECTIONS + ", keep-alive " + TCP_KEEP_ALIVE + ", connect timeout " + CONNECT_TIMEOUT
+                + "ms, socket timeout " + SOCKET_TIMEOUT + "ms, request timeout " + REQUEST_TIMEOUT + "ms, connection ttl "
+                + CONNECTION_TTL + "ms, max idle " + CONNECTION_MAX_IDLE + "ms, retries " + MAX_RETRIES;
+    }
+}
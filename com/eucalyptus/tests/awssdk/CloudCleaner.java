@@ -20,14 +20,19 @@
 
 package com.eucalyptus.tests.awssdk;
 
+import com.amazonaws.services.autoscaling.model.AutoScalingGroup;
+import com.amazonaws.services.autoscaling.model.DeleteAutoScalingGroupRequest;
+import com.amazonaws.services.autoscaling.model.DeleteLaunchConfigurationRequest;
+import com.amazonaws.services.autoscaling.model.DeletePolicyRequest;
+import com.amazonaws.services.autoscaling.model.DescribeAutoScalingGroupsRequest;
+import com.amazonaws.services.autoscaling.model.LaunchConfiguration;
 import com.amazonaws.services.autoscaling.model.ScalingPolicy;
 import com.amazonaws.services.ec2.model.*;
-import com.amazonaws.services.autoscaling.model.LaunchConfiguration;
-import com.amazonaws.services.autoscaling.model.AutoScalingGroup;
 import org.testng.annotations.Test;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 import static com.eucalyptus.tests.awssdk.N4j.*;
 
@@ -37,9 +42,15 @@ import static com.eucalyptus.tests.awssdk.N4j.*;
  *  !!! WARNING !!!
  *  This will NUKE all instances, keypairs, groups, volumes, snapshots, policies, launch configs and autoscaling groups
  *
+ *  Resources are deleted concurrently, each deletion waiting only for the
+ *  deletions it depends on, e.g. security groups once the instances using
+ *  them are terminated and launch configurations once their groups are gone.
+ *  Instances outside auto scaling groups are terminated immediately.
+ *
  * @author tony
  */
 public class CloudCleaner {
+    private static final long TIMEOUT = TimeUnit.MINUTES.toMillis(10);
 
     /**
      * @param args
@@ -55,104 +66,258 @@ public class CloudCleaner {
         testInfo(this.getClass().getSimpleName());
         getCloudInfo();
 
-        //Terminate All instances
-        List<String> instancesToTerminate = new ArrayList<String>();
-        DescribeInstancesResult result =ec2.describeInstances();
-        List<Reservation> reservations = result.getReservations();
-        if (reservations.size() > 0){
-            print("Found instances to terminate");
-            for (Reservation reservation : reservations) {
-                List<Instance> instances = reservation.getInstances();
-                for (Instance instance : instances) {
-                    print("Terminating: " + instance.getInstanceId());
+        final CleanupExecutor cleanup = new CleanupExecutor().withThreads(16);
+
+        // auto scaling: policies, then groups, then launch configs. The SDK is called directly rather than the N4j helpers, which
+        // only print failures, so that failures are reported by the cleanup
+        final Map<String, List<CleanupExecutor.Task>> policyTasks = new HashMap<>();
+        final List<ScalingPolicy> policies = describePolicies();
+        print(policies.isEmpty() ? "No auto scaling policies found" : "Found " + policies.size() + " policies to delete");
+        for (final ScalingPolicy policy : policies) {
+            final CleanupExecutor.Task task = cleanup.add("policy " + policy.getPolicyName(), new Runnable() {
+                @Override
+                public void run() {
+                    as().deletePolicy(new DeletePolicyRequest()
+                            .withAutoScalingGroupName(policy.getAutoScalingGroupName())
+                            .withPolicyName(policy.getPolicyName()));
+                    print("Deleted policy: " + policy.getPolicyName());
+                }
+            });
+            tasksFor(policyTasks, policy.getAutoScalingGroupName()).add(task);
+        }
+
+        final Map<String, CleanupExecutor.Task> groupTasks = new HashMap<>();
+        final Map<String, List<CleanupExecutor.Task>> launchConfigDependencies = new HashMap<>();
+        final List<AutoScalingGroup> asGroups = describeAutoScalingGroups();
+        print(asGroups.isEmpty() ? "No auto scaling groups found" : "Found " + asGroups.size() + " auto scaling groups to delete");
+        for (final AutoScalingGroup asg : asGroups) {
+            final List<CleanupExecutor.Task> after = policyTasks.containsKey(asg.getAutoScalingGroupName()) ?
+                    policyTasks.get(asg.getAutoScalingGroupName()) : Collections.<CleanupExecutor.Task>emptyList();
+            final CleanupExecutor.Task task = cleanup.add("auto scaling group " + asg.getAutoScalingGroupName(), new Runnable() {
+                @Override
+                public void run() {
+                    // force delete terminates the group's instances
+                    as().deleteAutoScalingGroup(new DeleteAutoScalingGroupRequest()
+                            .withAutoScalingGroupName(asg.getAutoScalingGroupName())
+                            .withForceDelete(true));
+                    print("Deleted Auto Scaling Group: " + asg.getAutoScalingGroupName());
+                    waitForAutoScalingGroupDeleted(asg.getAutoScalingGroupName());
+                }
+            }, after.toArray(new CleanupExecutor.Task[after.size()]));
+            groupTasks.put(asg.getAutoScalingGroupName(), task);
+            if (asg.getLaunchConfigurationName() != null) {
+                tasksFor(launchConfigDependencies, asg.getLaunchConfigurationName()).add(task);
+            }
+        }
+
+        final List<LaunchConfiguration> lcs = describeLaunchConfigs();
+        print(lcs.isEmpty() ? "No launch configs found" : "Found " + lcs.size() + " launch configs to delete");
+        for (final LaunchConfiguration lc : lcs) {
+            final List<CleanupExecutor.Task> after = tasksFor(launchConfigDependencies, lc.getLaunchConfigurationName());
+            cleanup.add("launch config " + lc.getLaunchConfigurationName(), new Runnable() {
+                @Override
+                public void run() {
+                    as().deleteLaunchConfiguration(new DeleteLaunchConfigurationRequest()
+                            .withLaunchConfigurationName(lc.getLaunchConfigurationName()));
+                    print("Deleted Launch Configuration: " + lc.getLaunchConfigurationName());
+                }
+            }, after.toArray(new CleanupExecutor.Task[after.size()]));
+        }
+
+        // instances, those in a group once the group's force delete has terminated them, others immediately
+        final Map<String, List<String>> groupInstances = new HashMap<>();
+        final List<String> instancesToTerminate = new ArrayList<>();
+        final Map<String, Set<String>> instanceSecurityGroups = new HashMap<>();
+        for (final Reservation reservation : ec2().describeInstances().getReservations()) {
+            for (final Instance instance : reservation.getInstances()) {
+                if ("terminated".equals(instance.getState().getName())) continue;
+                final String groupName = autoScalingGroupName(instance);
+                if (groupName != null && groupTasks.containsKey(groupName)) {
+                    if (!groupInstances.containsKey(groupName)) {
+                        groupInstances.put(groupName, new ArrayList<String>());
+                    }
+                    groupInstances.get(groupName).add(instance.getInstanceId());
+                } else {
                     instancesToTerminate.add(instance.getInstanceId());
                 }
+                final Set<String> securityGroups = new HashSet<>();
+                for (final GroupIdentifier group : instance.getSecurityGroups()) {
+                    securityGroups.add(group.getGroupId());
+                    securityGroups.add(group.getGroupName());
+                }
+                instanceSecurityGroups.put(instance.getInstanceId(), securityGroups);
+            }
+        }
+        print(instancesToTerminate.isEmpty() ? "No instances found" : "Found " + instancesToTerminate.size() + " instances to terminate");
+        final Map<String, CleanupExecutor.Task> instanceTasks = new HashMap<>();
+        final CleanupExecutor.Task instances = cleanup.add("terminate " + instancesToTerminate.size() + " instances", new Runnable() {
+            @Override
+            public void run() {
+                if (!instancesToTerminate.isEmpty()) {
+                    print("Terminating: " + instancesToTerminate);
+                    ec2().terminateInstances(new TerminateInstancesRequest().withInstanceIds(instancesToTerminate));
+                }
+                awaitTerminated(instancesToTerminate);
             }
-            TerminateInstancesRequest term = new TerminateInstancesRequest();
-            term.setInstanceIds(instancesToTerminate);
-            ec2.terminateInstances(term);
-        }  else {
-            print("No instances found");
-        }
-
-        // delete all keypairs
-        if (getKeyPairCount() > 0 ) {
-            print("Found Keypairs to delete");
-            DescribeKeyPairsResult describeKeyPairsResult = ec2.describeKeyPairs();
-            for (KeyPairInfo keypair : describeKeyPairsResult.getKeyPairs()){
-                deleteKeyPair(keypair.getKeyName());
+        });
+        for (final String instanceId : instancesToTerminate) {
+            instanceTasks.put(instanceId, instances);
+        }
+        for (final Map.Entry<String, List<String>> entry : groupInstances.entrySet()) {
+            final List<String> instanceIds = entry.getValue();
+            final CleanupExecutor.Task task = cleanup.add("terminate " + instanceIds.size() + " instances in group " + entry.getKey(),
+                    new Runnable() {
+                        @Override
+                        public void run() {
+                            awaitTerminated(instanceIds);
+                        }
+                    }, groupTasks.get(entry.getKey()));
+            for (final String instanceId : instanceIds) {
+                instanceTasks.put(instanceId, task);
             }
-        } else {
-            print("No keypairs found");
         }
 
-        // delete all groups except default group
-        List<SecurityGroup> groups = describeSecurityGroups();
-        if (groups.size() > 1) {
-            print("Found security groups to delete");
-            for(SecurityGroup group : groups){
-                if (!group.getGroupName().equals("default")){
-                    deleteSecurityGroup(group.getGroupName());
+        // keypairs are not in use by anything
+        final List<KeyPairInfo> keyPairs = ec2().describeKeyPairs().getKeyPairs();
+        print(keyPairs.isEmpty() ? "No keypairs found" : "Found " + keyPairs.size() + " keypairs to delete");
+        for (final KeyPairInfo keypair : keyPairs) {
+            cleanup.add("keypair " + keypair.getKeyName(), new Runnable() {
+                @Override
+                public void run() {
+                    deleteKeyPair(keypair.getKeyName());
                 }
-            }
-        } else {
-            print("No Security Groups found (other than default)");
+            });
         }
 
-        // delete all policies
-        List<ScalingPolicy> policies = describePolicies();
-        if (policies.size() > 0) {
-            print("Found Policies to delete");
-            for(ScalingPolicy policy : policies){
-                deletePolicy(policy.getPolicyName());
+        // groups once the instances using them are terminated
+        final List<SecurityGroup> groups = describeSecurityGroups();
+        if (groups.size() <= 1) {
+            print("No Security Groups found (other than default)");
+        }
+        for (final SecurityGroup group : groups) {
+            if (!group.getGroupName().equals("default")) {
+                final Set<CleanupExecutor.Task> after = new LinkedHashSet<>();
+                for (final Map.Entry<String, Set<String>> entry : instanceSecurityGroups.entrySet()) {
+                    if (entry.getValue().contains(group.getGroupId()) || entry.getValue().contains(group.getGroupName())) {
+                        after.add(instanceTasks.get(entry.getKey()));
+                    }
+                }
+                cleanup.add("security group " + group.getGroupName(), new Runnable() {
+                    @Override
+                    public void run() {
+                        ec2().deleteSecurityGroup(new DeleteSecurityGroupRequest().withGroupId(group.getGroupId()));
+                        print("Deleted Security Group: " + group.getGroupName());
+                    }
+                }, after.toArray(new CleanupExecutor.Task[after.size()]));
             }
-        } else {
-            print("No auto scaling policies found");
         }
 
-        // delete launch configs
-        List<LaunchConfiguration> lcs = describeLaunchConfigs();
-        if (lcs.size() > 0) {
-            print("Found Launch Configs to delete");
-            for(LaunchConfiguration lc : lcs){
-                deleteLaunchConfig(lc.getLaunchConfigurationName());
+        // volumes once detached from terminated instances
+        final List<Volume> volumes = ec2().describeVolumes().getVolumes();
+        print(volumes.isEmpty() ? "No volumes found" : "Found " + volumes.size() + " volumes to delete");
+        for (final Volume volume : volumes) {
+            final Set<CleanupExecutor.Task> after = new LinkedHashSet<>();
+            for (final VolumeAttachment attachment : volume.getAttachments()) {
+                if (instanceTasks.containsKey(attachment.getInstanceId())) {
+                    after.add(instanceTasks.get(attachment.getInstanceId()));
+                }
             }
-        } else {
-            print("No launch configs found");
+            cleanup.add("volume " + volume.getVolumeId(), new Runnable() {
+                @Override
+                public void run() {
+                    final ResourceWaiter waiter = new ResourceWaiter(ec2());
+                    final CompletableFuture<Volume> available = waiter.volume(volume.getVolumeId(), "available", "deleted");
+                    await(waiter, "Volume " + volume.getVolumeId() + " available");
+                    final Volume current = available.getNow(null);
+                    if (current != null && "available".equals(current.getState())) {
+                        deleteVolume(volume.getVolumeId());
+                    }
+                }
+            }, after.toArray(new CleanupExecutor.Task[after.size()]));
         }
 
-        // delete autoscaling groups
-        List<AutoScalingGroup> asGroups = describeAutoScalingGroups();
-        if (asGroups.size() > 0) {
-            print("Found Auto Scaling Groups to delete");
-            for(AutoScalingGroup asg : asGroups){
-                deleteAutoScalingGroup(asg.getAutoScalingGroupName(), true);
-            }
-        } else {
-            print("No auto scaling groups found");
+        // snapshots once no longer pending
+        final List<Snapshot> snapshots = ec2().describeSnapshots().getSnapshots();
+        print(snapshots.isEmpty() ? "No snapshots found" : "Found " + snapshots.size() + " snapshots to delete");
+        for (final Snapshot snapshot : snapshots) {
+            cleanup.add("snapshot " + snapshot.getSnapshotId(), new Runnable() {
+                @Override
+                public void run() {
+                    final ResourceWaiter waiter = new ResourceWaiter(ec2());
+                    final CompletableFuture<Snapshot> completed =
+                            waiter.snapshot(snapshot.getSnapshotId(), "completed", "error", "deleted");
+                    await(waiter, "Snapshot " + snapshot.getSnapshotId() + " completed");
+                    final Snapshot current = completed.getNow(null);
+                    if (current != null && !"deleted".equals(current.getState())) {
+                        deleteSnapshot(snapshot.getSnapshotId());
+                    }
+                }
+            });
         }
 
-        // delete volumes
-        List<Volume> volumes = ec2.describeVolumes().getVolumes();
-        if (volumes.size() > 0) {
-            print("Found volumes to delete");
-            for(Volume vol : volumes){
-                deleteVolume(vol.getVolumeId());
-            }
-        } else {
-            print("No volumes found");
+        final List<CleanupExecutor.Task> tasks = cleanup.run();
+        report(tasks);
+        final List<CleanupExecutor.Task> failures = CleanupExecutor.failures(tasks);
+        assertThat(failures.isEmpty(), "Failed to clean up: " + failures);
+    }
+
+    private static List<CleanupExecutor.Task> tasksFor(Map<String, List<CleanupExecutor.Task>> tasks, String name) {
+        if (!tasks.containsKey(name)) {
+            tasks.put(name, new ArrayList<CleanupExecutor.Task>());
         }
+        return tasks.get(name);
+    }
 
-        //delete snapshots
-        List<Snapshot> snapshots = ec2.describeSnapshots().getSnapshots();
-        if (snapshots.size() > 0) {
-            print("Found snapshots to delete");
-            for(Snapshot snap : snapshots){
-                deleteSnapshot(snap.getSnapshotId());
+    private static String autoScalingGroupName(Instance instance) {
+        for (final Tag tag : instance.getTags()) {
+            if ("aws:autoscaling:groupName".equals(tag.getKey())) return tag.getValue();
+        }
+        return null;
+    }
+
+    private static void awaitTerminated(List<String> instanceIds) {
+        final ResourceWaiter waiter = new ResourceWaiter(ec2());
+        for (final String instanceId : instanceIds) {
+            waiter.instance(instanceId, "terminated");
+        }
+        await(waiter, "Instance termination");
+    }
+
+    private static void await(ResourceWaiter waiter, String description) {
+        if (!waiter.await(TIMEOUT, TimeUnit.MILLISECONDS)) {
+            throw new IllegalStateException(description + " not reached within timeout");
+        }
+    }
+
+    private static void waitForAutoScalingGroupDeleted(final String groupName) {
+        final Waiter.Result<Integer> result = Waiter.waitFor("auto scaling group " + groupName + " deleted", new Waiter.Poll<Integer>() {
+            @Override
+            public Integer poll() {
+                return as().describeAutoScalingGroups(new DescribeAutoScalingGroupsRequest().withAutoScalingGroupNames(groupName))
+                        .getAutoScalingGroups().size();
+            }
+        }).until(new Waiter.Condition<Integer>() {
+            @Override
+            public boolean isSatisfied(Integer count) {
+                return count == 0;
             }
-        } else {
-            print("No volumes found");
+        }).withTimeout(TIMEOUT, TimeUnit.MILLISECONDS).await();
+        if (!result.isSatisfied()) {
+            throw new IllegalStateException("Auto scaling group " + groupName + " not deleted within timeout");
         }
     }
 
-}
\ No newline at end of file
+    private static void report(List<CleanupExecutor.Task> tasks) {
+        final List<CleanupExecutor.Task> sorted = new ArrayList<>(tasks);
+        Collections.sort(sorted, new Comparator<CleanupExecutor.Task>() {
+            @Override
+            public int compare(CleanupExecutor.Task t1, CleanupExecutor.Task t2) {
+                return Long.compare(t2.getElapsed(), t1.getElapsed());
+            }
+        });
+        print("Clean up timing (slowest first):");
+        for (final CleanupExecutor.Task task : sorted) {
+            print("  " + task);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.eucalyptus.tests.awssdk;
+
+import com.amazonaws.AmazonWebServiceClient;
+import com.amazonaws.auth.AWSCredentials;
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.services.autoscaling.AmazonAutoScaling;
+import com.amazonaws.services.cloudwatch.AmazonCloudWatch;
+import com.amazonaws.services.ec2.AmazonEC2;
+import com.amazonaws.services.elasticloadbalancing.AmazonElasticLoadBalancing;
+import com.amazonaws.services.s3.AmazonS3;
+
+import java.util.Map;
+
+import static com.eucalyptus.tests.awssdk.N4j.*;
+
+/**
+ * Credentials and connections for a test class working in its own account.
+ *
+ * While a context is bound to the current thread the N4j helpers use its
+ * connections and resource name prefix (namePrefix()) instead of the shared
+ * admin connections. TestNG runs all the methods of a class on one thread
+ * when run with parallel="classes", so a class can bind a context in its
+ * @BeforeClass and close it in @AfterClass:
+ *
+ * <pre>
+ * context = CloudContext.forNewAccount(getClass().getSimpleName().toLowerCase()).bind();
+ * ...
+ * context.close();
+ * </pre>
+ *
+ * The binding is per thread, so work handed to other threads, such as load
+ * generator clients, should use the context's connections directly.
+ *
+ * Creating a context only loads the cloud endpoints and admin credentials,
+ * tests that need the discovered image or availability zone call
+ * getCloudInfo() before binding the context.
+ */
+class CloudContext {
+    private static final ThreadLocal<CloudContext> current = new ThreadLocal<>();
+
+    final String accountName;
+    final AWSCredentials credentials;
+    final String namePrefix;
+    final AmazonEC2 ec2;
+    final AmazonAutoScaling as;
+    final AmazonElasticLoadBalancing elb;
+    final AmazonCloudWatch cw;
+    final AmazonS3 s3;
+    private final AccountPool.Account pooled;
+
+    private CloudContext(String accountName, AWSCredentials credentials, AccountPool.Account pooled) {
+        this.accountName = accountName;
+        this.pooled = pooled;
+        this.credentials = credentials;
+        this.namePrefix = eucaUUID() + "-";
+        this.ec2 = getEc2Client(credentials.getAWSAccessKeyId(), credentials.getAWSSecretKey(), EC2_ENDPOINT);
+        this.as = getAutoScalingClient(credentials.getAWSAccessKeyId(), credentials.getAWSSecretKey(), AS_ENDPOINT);
+        this.elb = getElbClient(credentials.getAWSAccessKeyId(), credentials.getAWSSecretKey(), ELB_ENDPOINT);
+        this.cw = getCwClient(credentials.getAWSAccessKeyId(), credentials.getAWSSecretKey(), CW_ENDPOINT);
+        this.s3 = getS3Client(credentials, S3_ENDPOINT);
+    }
+
+    /**
+     * Create a new account and a context for its admin user.
+     */
+    static CloudContext forNewAccount(String accountName) throws Exception {
+        initYouAreClient();
+        createAccount(accountName);
+        final Map<String, String> keys = getUserKeys(accountName, "admin");
+        final CloudContext context = new CloudContext(accountName, new BasicAWSCredentials(keys.get("ak"), keys.get("sk")), null);
+        print("Using account " + accountName + " with resource prefix " + context.namePrefix);
+        return context;
+    }
+
+    /**
+     * Create a context for the admin user of an account acquired from the
+     * AccountPool, closing the context releases the account to the pool.
+     */
+    static CloudContext forPooledAccount(AccountPool.Account account) throws Exception {
+        initYouAreClient();
+        final CloudContext context = new CloudContext(account.getName(), account.getCredentials(), account);
+        print("Using pooled account " + account.getName() + " with resource prefix " + context.namePrefix);
+        return context;
+    }
+
+    /**
+     * @return the context bound to the current thread, or null if none
+     */
+    static CloudContext current() {
+        return current.get();
+    }
+
+    /**
+     * Bind this context to the current thread.
+     */
+    CloudContext bind() {
+        current.set(this);
+        return this;
+    }
+
+    /**
+     * Unbind this context and delete its account, or release it if pooled.
+     */
+    void close() {
+        if (current.get() == this) {
+            current.remove();
+        }
+        ec2.shutdown();
+        as.shutdown();
+        elb.shutdown();
+        cw.shutdown();
+        ((AmazonWebServiceClient) s3).shutdown();
+        if (pooled != null) {
+            AccountPool.release(pooled);
+        } else {
+            deleteAccount(accountName);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.eucalyptus.tests.awssdk;
+
+import java.io.*;
+import java.nio.file.*;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static com.eucalyptus.tests.awssdk.N4j.print;
+
+/**
+ * Snapshot of the cloud information discovered by N4j.
+ *
+ * A snapshot can be saved to the file named by the cloudinfo.snapshot system
+ * property so that later runs against the same CLC skip discovery until the
+ * snapshot is older than cloudinfo.ttl minutes (default 60).
+ */
+class CloudInfoSnapshot {
+    static String SNAPSHOT_FILE = System.getProperty("cloudinfo.snapshot", "");
+    static long SNAPSHOT_TTL = TimeUnit.MINUTES.toMillis(Long.getLong("cloudinfo.ttl", 60L));
+
+    private final Properties properties;
+
+    private CloudInfoSnapshot(Properties properties) {
+        this.properties = properties;
+    }
+
+    /**
+     * Capture the current N4j cloud information.
+     */
+    static CloudInfoSnapshot capture() {
+        final Properties properties = new Properties();
+        put(properties, "clcip", N4j.CLC_IP);
+        put(properties, "ec2-url", N4j.EC2_ENDPOINT);
+        put(properties, "autoscaling-url", N4j.AS_ENDPOINT);
+        put(properties, "elasticloadbalancing-url", N4j.ELB_ENDPOINT);
+        put(properties, "monitoring-url", N4j.CW_ENDPOINT);
+        put(properties, "iam-url", N4j.IAM_ENDPOINT);
+        put(properties, "s3-url", N4j.S3_ENDPOINT);
+        put(properties, "sts-url", N4j.TOKENS_ENDPOINT);
+        put(properties, "secret-key", N4j.SECRET_KEY);
+        put(properties, "key-id", N4j.ACCESS_KEY);
+        put(properties, "account-id", N4j.ACCOUNT_ID);
+        put(properties, "image-id", N4j.IMAGE_ID);
+        put(properties, "kernel-id", N4j.KERNEL_ID);
+        put(properties, "ramdisk-id", N4j.RAMDISK_ID);
+        put(properties, "availability-zone", N4j.AVAILABILITY_ZONE);
+        return new CloudInfoSnapshot(properties);
+    }
+
+    /**
+     * Load the snapshot for the given CLC if one is configured and still fresh.
+     *
+     * @return the snapshot or null if there is no usable snapshot
+     */
+    static CloudInfoSnapshot load(String clcip) {
+        if (SNAPSHOT_FILE.isEmpty()) return null;
+        final File file = new File(SNAPSHOT_FILE);
+        if (!file.isFile()) return null;
+        final long age = System.currentTimeMillis() - file.lastModified();
+        if (age > SNAPSHOT_TTL) {
+            print("Ignoring expired cloud info snapshot " + file + " (" + age + "ms old)");
+            return null;
+        }
+        final Properties properties = new Properties();
+        try (InputStream in = new FileInputStream(file)) {
+            properties.load(in);
+        } catch (IOException e) {
+            print("Unable to read cloud info snapshot " + file + ": " + e);
+            return null;
+        }
+        if (clcip != null && !clcip.equals(properties.getProperty("clcip"))) {
+            print("Ignoring cloud info snapshot " + file + " for other CLC " + properties.getProperty("clcip"));
+            return null;
+        }
+        print("Using cloud info snapshot " + file);
+        return new CloudInfoSnapshot(properties);
+    }
+
+    /**
+     * Save this snapshot if a snapshot file is configured.
+     */
+    void save() {
+        if (SNAPSHOT_FILE.isEmpty()) return;
+        try (OutputStream out = newPrivateOutputStream(SNAPSHOT_FILE)) {
+            properties.store(out, "N4j cloud info snapshot");
+        } catch (IOException e) {
+            print("Unable to write cloud info snapshot " + SNAPSHOT_FILE + ": " + e);
+        }
+    }
+
+    /**
+     * Set the N4j cloud information from this snapshot.
+     */
+    void apply() {
+        N4j.EC2_ENDPOINT = properties.getProperty("ec2-url");
+        N4j.AS_ENDPOINT = properties.getProperty("autoscaling-url");
+        N4j.ELB_ENDPOINT = properties.getProperty("elasticloadbalancing-url");
+        N4j.CW_ENDPOINT = properties.getProperty("monitoring-url");
+        N4j.IAM_ENDPOINT = properties.getProperty("iam-url");
+        N4j.S3_ENDPOINT = properties.getProperty("s3-url");
+        N4j.TOKENS_ENDPOINT = properties.getProperty("sts-url");
+        N4j.SECRET_KEY = properties.getProperty("secret-key");
+        N4j.ACCESS_KEY = properties.getProperty("key-id");
+        N4j.ACCOUNT_ID = properties.getProperty("account-id");
+        N4j.IMAGE_ID = properties.getProperty("image-id");
+        N4j.KERNEL_ID = properties.getProperty("kernel-id");
+        N4j.RAMDISK_ID = properties.getProperty("ramdisk-id");
+        N4j.AVAILABILITY_ZONE = properties.getProperty("availability-zone");
+    }
+
+    /**
+     * Open a file readable only by its owner for writing, as snapshots hold
+     * the admin secret key. Owner only permissions are set where the file
+     * system supports POSIX permissions, including on an existing file before
+     * it is truncated.
+     */
+    static OutputStream newPrivateOutputStream(String name) throws IOException {
+        final Path path = Paths.get(name);
+        if (path.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+            final Set<PosixFilePermission> ownerOnly = PosixFilePermissions.fromString("rw-------");
+            if (Files.exists(path)) {
+                Files.setPosixFilePermissions(path, ownerOnly);
+            } else {
+                Files.createFile(path, PosixFilePermissions.asFileAttribute(ownerOnly));
+            }
+        }
+        return Files.newOutputStream(path);
+    }
+
+    private static void put(Properties properties, String name, String value) {
+        if (value != null) properties.setProperty(name, value);
+    }
+}
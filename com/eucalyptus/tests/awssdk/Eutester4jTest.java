@@ -93,8 +93,6 @@ public class Eutester4jTest {
 //		sleep(60); // give the system a chance to complete test actions
 		deleteKeyPair(keyName);
 		deleteSecurityGroup(secGroupName);
-		ec2 = null;
-		as=null;
 	}
 
 	/*
@@ -99,7 +99,7 @@ public class JCloudsTest {
                 @Override
                 public void run() {
                     terminateInstances( Collections.singletonList( id ) );
-                    waitForInstances( TimeUnit.MINUTES.toMillis( 15 ) );
+                    waitForInstancesInState( TimeUnit.MINUTES.toMillis( 15 ), "terminated", id );
                 }
             } );
 
@@ -0,0 +1,84 @@
+package com.eucalyptus.tests.awssdk;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Thread safe latency histogram and error count for one operation.
+ *
+ * Latencies are recorded in microseconds with 3 significant digits.
+ */
+class LatencyStats {
+    private final String name;
+    private final Histogram histogram = new ConcurrentHistogram(3);
+    private final AtomicLong errors = new AtomicLong();
+
+    LatencyStats(String name) {
+        this.name = name;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    /**
+     * Record a successful operation.
+     *
+     * @param nanos the operation latency in nanoseconds
+     */
+    void record(long nanos) {
+        histogram.recordValue(Math.max(0, TimeUnit.NANOSECONDS.toMicros(nanos)));
+    }
+
+    void recordError() {
+        errors.incrementAndGet();
+    }
+
+    long getCount() {
+        return histogram.getTotalCount();
+    }
+
+    long getErrors() {
+        return errors.get();
+    }
+
+    /**
+     * @param percentile the percentile, e.g. 99.9
+     * @return the latency at the percentile in milliseconds
+     */
+    double getPercentile(double percentile) {
+        return histogram.getValueAtPercentile(percentile) / 1000.0;
+    }
+
+    double getMean() {
+        return histogram.getMean() / 1000.0;
+    }
+
+    double getMax() {
+        return histogram.getMaxValue() / 1000.0;
+    }
+
+    /**
+     * @param elapsed the time over which operations were recorded in ms
+     * @return operations per second
+     */
+    double getThroughput(long elapsed) {
+        return elapsed <= 0 ? 0 : getCount() * 1000.0 / elapsed;
+    }
+
+    /**
+     * @return a copy of the underlying histogram (values in microseconds)
+     */
+    Histogram getHistogram() {
+        return histogram.copy();
+    }
+
+    String summary(long elapsed) {
+        return String.format("%s: %d ops, %.1f ops/s, p50 %.2fms, p99 %.2fms, p999 %.2fms, max %.2fms, %d errors",
+                name, getCount(), getThroughput(elapsed), getPercentile(50), getPercentile(99), getPercentile(99.9),
+                getMax(), getErrors());
+    }
+}
@@ -0,0 +1,67 @@
+package com.eucalyptus.tests.awssdk;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static com.eucalyptus.tests.awssdk.N4j.print;
+
+/**
+ * Executors for the simulated clients of load drivers.
+ *
+ * With the load.executor system property set to "virtual" each client runs
+ * on its own virtual thread, so a run can simulate tens of thousands of
+ * clients that block in the N4j and S3 helpers. Virtual threads need a JDK
+ * with Executors.newVirtualThreadPerTaskExecutor (21 or later), which is
+ * looked up reflectively so the tests still build for JDK 8. On older JDKs,
+ * or with the default "platform" setting, a fixed pool of one thread per
+ * client is used.
+ *
+ * The number of concurrent requests is still limited by the client
+ * connection pools (client.maxconnections), so that should be raised along
+ * with the client count.
+ */
+class LoadExecutors {
+    static final String EXECUTOR = System.getProperty("load.executor", "platform");
+
+    private static final Method VIRTUAL_EXECUTOR = virtualExecutorMethod();
+
+    /**
+     * @return true if virtual threads were requested and are available
+     */
+    static boolean isVirtual() {
+        return "virtual".equalsIgnoreCase(EXECUTOR) && VIRTUAL_EXECUTOR != null;
+    }
+
+    /**
+     * @param clients the number of simulated clients that will be submitted
+     * @return an executor that runs each client on a virtual thread, or a fixed pool of clients threads
+     */
+    static ExecutorService newClientExecutor(int clients) {
+        if (isVirtual()) {
+            try {
+                return (ExecutorService) VIRTUAL_EXECUTOR.invoke(null);
+            } catch (ReflectiveOperationException e) {
+                print("Unable to create virtual thread executor, using platform threads: " + e);
+            }
+        } else if ("virtual".equalsIgnoreCase(EXECUTOR)) {
+            print("Virtual threads not available on Java " + System.getProperty("java.version") + ", using platform threads");
+        }
+        return Executors.newFixedThreadPool(Math.max(1, clients));
+    }
+
+    /**
+     * @return a description of the threads used for clients
+     */
+    static String describe() {
+        return isVirtual() ? "virtual threads" : "platform threads";
+    }
+
+    private static Method virtualExecutorMethod() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+}
@@ -1,7 +1,6 @@
 package com.eucalyptus.tests.awssdk;
 
 import com.amazonaws.AmazonServiceException;
-import com.amazonaws.ClientConfiguration;
 import com.amazonaws.Request;
 import com.amazonaws.auth.AWSCredentials;
 import com.amazonaws.auth.AWSCredentialsProvider;
@@ -32,6 +31,7 @@ import com.amazonaws.services.s3.AmazonS3;
 import com.amazonaws.services.s3.AmazonS3Client;
 import com.github.sjones4.youcan.youare.YouAre;
 import com.github.sjones4.youcan.youare.YouAreClient;
+import com.github.sjones4.youcan.youare.model.Account;
 import com.github.sjones4.youcan.youare.model.CreateAccountRequest;
 import com.github.sjones4.youcan.youare.model.DeleteAccountRequest;
 import com.jcraft.jsch.*;
@@ -43,6 +43,11 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
 class N4j {
@@ -63,6 +68,9 @@ class N4j {
     static String SECRET_KEY = null;
     static String ACCESS_KEY = null;
     static String ACCOUNT_ID = null;
+    /**
+     * Resource prefix chosen at discovery, use namePrefix() for the prefix of the current test class.
+     */
     static String NAME_PREFIX;
     static String endpoints;
     static AmazonAutoScaling as;
@@ -77,73 +85,135 @@ class N4j {
     static String AVAILABILITY_ZONE = null;
     static String INSTANCE_TYPE = "m1.small";
 
+    private static final Object discoveryLock = new Object();
+    private static CloudInfoSnapshot discovered;
+    private static boolean imagesDiscovered;
+    private static boolean connected;
+    private static final ThreadLocal<String> threadNamePrefix = new ThreadLocal<>();
+
+    /**
+     * Delegated IAM clients by admin access key, IAM endpoint and account,
+     * the least recently used are dropped once there are more than
+     * iam.delegated.clients (default 32). Dropped clients are not shut down
+     * as another thread may still be using one, the SDK client releases its
+     * connection pool when it is garbage collected.
+     */
+    private static final Map<String, YouAreClient> delegatedYouAreClients =
+            new LinkedHashMap<String, YouAreClient>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, YouAreClient> eldest) {
+                    return size() > Integer.getInteger("iam.delegated.clients", 32);
+                }
+            };
+
+    /**
+     * Discover the cloud and set up admin connections.
+     *
+     * Discovery is done once per JVM, later calls reuse the discovered
+     * information and connections without changing them, so classes running
+     * in parallel are not affected. Each call chooses a new resource prefix
+     * for the calling thread, see namePrefix().
+     */
     public static void getCloudInfo() throws Exception {
-        getAdminCreds(CLC_IP, USER, PASSWORD);
+        synchronized (discoveryLock) {
+            loadCloudCredentials();
+
+            if (!connected) {
+                print("Getting cloud connections with " + ClientConfigurations.describe());
+                as = getAutoScalingClient(ACCESS_KEY, SECRET_KEY, AS_ENDPOINT);
+                ec2 = getEc2Client(ACCESS_KEY, SECRET_KEY, EC2_ENDPOINT);
+                elb = getElbClient(ACCESS_KEY, SECRET_KEY, ELB_ENDPOINT);
+                cw = getCwClient(ACCESS_KEY, SECRET_KEY, CW_ENDPOINT);
+                if (s3 == null) {
+                    s3 = getS3Client(ACCESS_KEY, SECRET_KEY, S3_ENDPOINT);
+                }
+                if (youAre == null) {
+                    youAre = getYouAreClient(ACCESS_KEY, SECRET_KEY, IAM_ENDPOINT);
+                }
+                NAME_PREFIX = eucaUUID() + "-";
+                connected = true;
+            }
 
-        if (endpointFile != null) {
-            endpoints = endpointFile;
-        } else {
-            endpoints = "endpoints.xml";
-        }
+            if (!imagesDiscovered) {
+                if (IMAGE_ID == null || AVAILABILITY_ZONE == null) {
+                    IMAGE_ID = findImage();
+
+                    if (!isHVM()) {
+                        KERNEL_ID = findKernel();
+                        RAMDISK_ID = findRamdisk();
+                    }
 
-        print("Getting cloud information from " + LOCAL_INI_FILE);
-        EC2_ENDPOINT = getAttribute(LOCAL_INI_FILE, "ec2-url");
-        AS_ENDPOINT = getAttribute(LOCAL_INI_FILE, "autoscaling-url");
-        ELB_ENDPOINT = getAttribute(LOCAL_INI_FILE, "elasticloadbalancing-url");
-        CW_ENDPOINT = getAttribute(LOCAL_INI_FILE, "monitoring-url");
-        IAM_ENDPOINT = getAttribute(LOCAL_INI_FILE, "iam-url");
-        S3_ENDPOINT = getAttribute(LOCAL_INI_FILE, "s3-url");
-        TOKENS_ENDPOINT = getAttribute(LOCAL_INI_FILE, "sts-url");
-        SECRET_KEY = getAttribute(LOCAL_INI_FILE, "secret-key");
-        ACCESS_KEY = getAttribute(LOCAL_INI_FILE, "key-id");
-        ACCOUNT_ID = getAttribute(LOCAL_INI_FILE,"account-id");
-
-        print("Updating endpoints file");
-        updateEndpoints(endpoints, EC2_ENDPOINT, S3_ENDPOINT);
-
-        print("Getting cloud connections");
-        as = getAutoScalingClient(ACCESS_KEY, SECRET_KEY, AS_ENDPOINT);
-        ec2 = getEc2Client(ACCESS_KEY, SECRET_KEY, EC2_ENDPOINT);
-        elb = getElbClient(ACCESS_KEY, SECRET_KEY, ELB_ENDPOINT);
-        cw = getCwClient(ACCESS_KEY, SECRET_KEY, CW_ENDPOINT);
-        s3 = getS3Client(ACCESS_KEY, SECRET_KEY, S3_ENDPOINT);
-        youAre = getYouAreClient(ACCESS_KEY, SECRET_KEY, IAM_ENDPOINT);
-        IMAGE_ID = findImage();
-
-        if (!isHVM()) {
-            KERNEL_ID = findKernel();
-            RAMDISK_ID = findRamdisk();
+                    AVAILABILITY_ZONE = findAvailablityZone();
+                    discovered = CloudInfoSnapshot.capture();
+                    discovered.save();
+                } else {
+                    print("Using image: " + IMAGE_ID);
+                    print("Using availability zone: " + AVAILABILITY_ZONE);
+                }
+                imagesDiscovered = true;
+            }
         }
 
-        AVAILABILITY_ZONE = findAvailablityZone();
-        NAME_PREFIX = eucaUUID() + "-";
-        print("Using resource prefix for test: " + NAME_PREFIX);
+        final String prefix = eucaUUID() + "-";
+        threadNamePrefix.set(prefix);
+        print("Using resource prefix for test: " + prefix);
         print("Cloud Discovery Complete");
     }
 
-    // Quick way to initialize just the S3 client without initializing other clients in getCloudInfo().
-    // For ease of use against AWS (mainly) as well as Eucalyptus
-    public static void initS3Client() throws Exception {
-        getAdminCreds(CLC_IP, USER, PASSWORD);
-        if (endpointFile != null) {
-            endpoints = endpointFile;
-        } else {
-            endpoints = "endpoints.xml";
-        }
-
-        print("Getting cloud information from " + LOCAL_INI_FILE);
+    /**
+     * Load endpoints and admin credentials, once per JVM.
+     *
+     * A fresh cloud info snapshot is used if available, else the admin
+     * credentials are fetched from the CLC and the endpoints file updated.
+     */
+    private static void loadCloudCredentials() throws Exception {
+        synchronized (discoveryLock) {
+            if (endpointFile != null) {
+                endpoints = endpointFile;
+            } else {
+                endpoints = "endpoints.xml";
+            }
 
-        EC2_ENDPOINT = getAttribute(LOCAL_INI_FILE, "ec2-url");
-        S3_ENDPOINT = getAttribute(LOCAL_INI_FILE, "s3-url");
+            if (discovered == null) {
+                discovered = CloudInfoSnapshot.load(CLC_IP);
+                if (discovered == null) {
+                    getAdminCreds(CLC_IP, USER, PASSWORD);
+
+                    print("Getting cloud information from " + LOCAL_INI_FILE);
+                    EC2_ENDPOINT = getAttribute(LOCAL_INI_FILE, "ec2-url");
+                    AS_ENDPOINT = getAttribute(LOCAL_INI_FILE, "autoscaling-url");
+                    ELB_ENDPOINT = getAttribute(LOCAL_INI_FILE, "elasticloadbalancing-url");
+                    CW_ENDPOINT = getAttribute(LOCAL_INI_FILE, "monitoring-url");
+                    IAM_ENDPOINT = getAttribute(LOCAL_INI_FILE, "iam-url");
+                    S3_ENDPOINT = getAttribute(LOCAL_INI_FILE, "s3-url");
+                    TOKENS_ENDPOINT = getAttribute(LOCAL_INI_FILE, "sts-url");
+                    SECRET_KEY = getAttribute(LOCAL_INI_FILE, "secret-key");
+                    ACCESS_KEY = getAttribute(LOCAL_INI_FILE, "key-id");
+                    ACCOUNT_ID = getAttribute(LOCAL_INI_FILE,"account-id");
+                    discovered = CloudInfoSnapshot.capture();
+                    discovered.save();
+                }
 
-        SECRET_KEY = getAttribute(LOCAL_INI_FILE, "secret-key");
-        ACCESS_KEY = getAttribute(LOCAL_INI_FILE, "key-id");
+                discovered.apply();
+                print("Updating endpoints file");
+                updateEndpoints(endpoints, EC2_ENDPOINT, S3_ENDPOINT);
+            } else {
+                discovered.apply();
+            }
+        }
+    }
 
-        print("Updating endpoints file");
-        updateEndpoints(endpoints, EC2_ENDPOINT, S3_ENDPOINT);
+    // Quick way to initialize just the S3 client without initializing other clients in getCloudInfo().
+    // For ease of use against AWS (mainly) as well as Eucalyptus
+    public static void initS3Client() throws Exception {
+        synchronized (discoveryLock) {
+            loadCloudCredentials();
 
-        print("Initializing S3 connections");
-        s3 = getS3Client(ACCESS_KEY, SECRET_KEY, S3_ENDPOINT);
+            if (s3 == null) {
+                print("Initializing S3 connections");
+                s3 = getS3Client(ACCESS_KEY, SECRET_KEY, S3_ENDPOINT);
+            }
+        }
 
         print("S3 Discovery Complete");
     }
@@ -151,28 +221,7 @@ class N4j {
 	public static AmazonS3 initS3ClientWithNewAccount(String account, String user) throws Exception {
 
 		// Initialize everything for the first time
-		if (EC2_ENDPOINT == null || S3_ENDPOINT == null || IAM_ENDPOINT == null || ACCESS_KEY == null || SECRET_KEY == null) {
-            getAdminCreds(CLC_IP, USER, PASSWORD);
-			if (endpointFile != null) {
-				endpoints = endpointFile;
-			} else {
-				endpoints = "endpoints.xml";
-			}
-
-			print("Getting cloud information from " + LOCAL_INI_FILE);
-
-			EC2_ENDPOINT = getAttribute(LOCAL_INI_FILE, "ec2-url");
-			S3_ENDPOINT = getAttribute(LOCAL_INI_FILE, "s3-url");
-			IAM_ENDPOINT = getAttribute(LOCAL_INI_FILE, "iam-url");
-
-            SECRET_KEY = getAttribute(LOCAL_INI_FILE, "secret-key");
-            ACCESS_KEY = getAttribute(LOCAL_INI_FILE, "key-id");
-
-			print("Updating endpoints file");
-			updateEndpoints(endpoints, EC2_ENDPOINT, S3_ENDPOINT);
-
-			youAre = getYouAreClient(ACCESS_KEY, SECRET_KEY, IAM_ENDPOINT);
-		}
+		initYouAreClient();
 
 		// Create a new account if one does not exist
 		try {
@@ -189,16 +238,64 @@ class N4j {
 		return getS3Client(keyMap.get("ak"), keyMap.get("sk"), S3_ENDPOINT);
 	}
 
+    /**
+     * Load admin credentials and set up the admin IAM connection used for account management.
+     */
+    static void initYouAreClient() throws Exception {
+        synchronized (discoveryLock) {
+            loadCloudCredentials();
+            if (youAre == null) {
+                youAre = getYouAreClient(ACCESS_KEY, SECRET_KEY, IAM_ENDPOINT);
+            }
+        }
+    }
+
     public static void minimalInit() throws Exception {
-        getAdminCreds(CLC_IP, USER, PASSWORD);
-        EC2_ENDPOINT = getAttribute(LOCAL_INI_FILE, "ec2-url");
+        loadCloudCredentials();
         print("HOST = " + CLC_IP);
-        SECRET_KEY = getAttribute(LOCAL_INI_FILE, "secret-key");
-        ACCESS_KEY = getAttribute(LOCAL_INI_FILE, "key-id");
         print("Cloud Discovery Complete");
     }
     
 
+    /**
+     * @return the EC2 connection for the current thread's CloudContext, or the shared admin connection
+     */
+    static AmazonEC2 ec2() {
+        final CloudContext context = CloudContext.current();
+        return context != null ? context.ec2 : ec2;
+    }
+
+    static AmazonAutoScaling as() {
+        final CloudContext context = CloudContext.current();
+        return context != null ? context.as : as;
+    }
+
+    static AmazonElasticLoadBalancing elb() {
+        final CloudContext context = CloudContext.current();
+        return context != null ? context.elb : elb;
+    }
+
+    static AmazonCloudWatch cw() {
+        final CloudContext context = CloudContext.current();
+        return context != null ? context.cw : cw;
+    }
+
+    static AmazonS3 s3() {
+        final CloudContext context = CloudContext.current();
+        return context != null ? context.s3 : s3;
+    }
+
+    /**
+     * @return the resource name prefix for the current thread's CloudContext, or the prefix chosen by the
+     * thread's last getCloudInfo() call
+     */
+    static String namePrefix() {
+        final CloudContext context = CloudContext.current();
+        if (context != null) return context.namePrefix;
+        final String prefix = threadNamePrefix.get();
+        return prefix != null ? prefix : NAME_PREFIX;
+    }
+
     public static void testInfo(String testName) {
         print("*****TEST NAME: " + testName);
     }
@@ -209,57 +306,25 @@ class N4j {
      */
     public static void getAdminCreds(String clcip, String user, String password) {
         print("CLC IP: " + clcip);
-        SftpATTRS attrs = null;
 
         try {
-            JSch jsch = new JSch();
-            Session session = jsch.getSession(user, clcip, 22);
-            session.setPassword(password);
-            session.setConfig("StrictHostKeyChecking", "no");
-            print("Establishing Connection...");
-            session.connect();
-            print("Connection established.");
-            ChannelSftp sftpChannel = (ChannelSftp) session.openChannel("sftp");
-            sftpChannel.connect();
-
             // check to see if there are already creds created by us present
-            try {
-                attrs = sftpChannel.stat(REMOTE_INI_FILE);
-            } catch (Exception e){
-                print("No existing test creds found.");
-            }
+            final SftpATTRS attrs = statRemoteFile(clcip, user, password, REMOTE_INI_FILE);
 
             // if there are not creds already created by us create them
             if (attrs != null) {
                 print("Existing test creds found");
             } else {
+                print("No existing test creds found.");
                 print("Creating test creds: " + REMOTE_INI_FILE);
                 String command = "eval `clcadmin-assume-system-credentials`; " +
                         "DNSDOMAIN=`euctl -n system.dns.dnsdomain`; " +
                         "euare-useraddkey admin -wd $DNSDOMAIN &> " + REMOTE_INI_FILE + ";" +
                         "echo [global] >> " + REMOTE_INI_FILE + ";" +
                         "echo default-region = $DNSDOMAIN >>  " + REMOTE_INI_FILE;
-                Channel channel=session.openChannel("exec");
-                ((ChannelExec)channel).setCommand(command);
-                channel.connect();
-                InputStream in=channel.getInputStream();
-                byte[] tmp=new byte[1024];
-                while(true){
-                    while(in.available()>0){
-                        int i=in.read(tmp, 0, 1024);
-                        if(i<0)break;
-                        print(new String(tmp, 0, i));
-                    }
-                    if(channel.isClosed()){
-                        if(in.available()>0) continue;
-                        print("Get creds exit-status: "+channel.getExitStatus());
-                        break;
-                    }
-                    try{Thread.sleep(1000);}catch(Exception ee){}
-                }
-                channel.disconnect();
+                final RemoteCommand.Result result = RemoteCommand.run(clcip, user, password, command);
+                print("Get creds exit-status: " + result.getExitStatus() + " in " + result.getElapsed() + "ms");
             }
-            session.disconnect();
         }
         catch(JSchException | IOException e) {
             System.err.print(e);
@@ -269,31 +334,29 @@ class N4j {
         getRemoteFile(clcip, user, password, REMOTE_INI_FILE, "euca-admin.ini");
     }
 
-    public static void getRemoteFile(String clcip, String user, String password, String remoteFile, String localFile) {
+    public static void getRemoteFile(String clcip, String user, String password, final String remoteFile,
+                                     final String localFile) {
         try
         {
-            JSch jsch = new JSch();
-            Session session = jsch.getSession(user, clcip, 22);
-            session.setPassword(password);
-            session.setConfig("StrictHostKeyChecking", "no");
-            session.connect();
-            ChannelSftp sftpChannel = (ChannelSftp) session.openChannel("sftp");
-            sftpChannel.connect();
-            InputStream out;
-            out = sftpChannel.get(remoteFile);
-            BufferedReader reader = new BufferedReader(new InputStreamReader(out));
-            BufferedWriter writer = new BufferedWriter(new FileWriter(new File(localFile)));
-            String line;
-            while ((line = reader.readLine()) != null)
-            {
-                writer.write(line);
-                // must do this: .readLine() will have stripped line endings
-                writer.newLine();
-            }
-            reader.close();
-            writer.close();
-            sftpChannel.disconnect();
-            session.disconnect();
+            SshSessionPool.withSftp(clcip, user, password, new SshSessionPool.SftpTask<Void>() {
+                @Override
+                public Void run(ChannelSftp sftpChannel) throws SftpException, IOException {
+                    InputStream out;
+                    out = sftpChannel.get(remoteFile);
+                    BufferedReader reader = new BufferedReader(new InputStreamReader(out));
+                    BufferedWriter writer = new BufferedWriter(new FileWriter(new File(localFile)));
+                    String line;
+                    while ((line = reader.readLine()) != null)
+                    {
+                        writer.write(line);
+                        // must do this: .readLine() will have stripped line endings
+                        writer.newLine();
+                    }
+                    reader.close();
+                    writer.close();
+                    return null;
+                }
+            });
         }
         catch(JSchException | SftpException | IOException e)
         {
@@ -302,59 +365,43 @@ class N4j {
     }
 
     public static void removeRemoteFile(String clcip, String user, String password, String remoteFile) {
-        SftpATTRS attrs = null;
-
         try {
-            JSch jsch = new JSch();
-            Session session = jsch.getSession(user, clcip, 22);
-            session.setPassword(password);
-            session.setConfig("StrictHostKeyChecking", "no");
-            print("Establishing Connection...");
-            session.connect();
-            print("Connection established.");
-            ChannelSftp sftpChannel = (ChannelSftp) session.openChannel("sftp");
-            sftpChannel.connect();
-
             // check to see if there are already creds created by us present
-            try {
-                attrs = sftpChannel.stat(remoteFile);
-            } catch (Exception e){
-                print("No existing test creds found.");
-            }
+            final SftpATTRS attrs = statRemoteFile(clcip, user, password, remoteFile);
 
             // if there are creds already created by us delete them
             if (attrs == null) {
+                print("No existing test creds found.");
                 print("Nothing to delete.");
             } else {
                 print("Removing test creds: " + remoteFile);
                 String command = "rm -rf " + remoteFile;
-                Channel channel=session.openChannel("exec");
-                ((ChannelExec)channel).setCommand(command);
-                channel.connect();
-                InputStream in=channel.getInputStream();
-                byte[] tmp=new byte[1024];
-                while(true){
-                    while(in.available()>0){
-                        int i=in.read(tmp, 0, 1024);
-                        if(i<0)break;
-                        print(new String(tmp, 0, i));
-                    }
-                    if(channel.isClosed()){
-                        if(in.available()>0) continue;
-                        print("Remove remote file exit-status: "+channel.getExitStatus());
-                        break;
-                    }
-                    try{Thread.sleep(1000);}catch(Exception ee){}
-                }
-                channel.disconnect();
+                final RemoteCommand.Result result = RemoteCommand.run(clcip, user, password, command);
+                print("Remove remote file exit-status: " + result.getExitStatus() + " in " + result.getElapsed() + "ms");
             }
-            session.disconnect();
         }
         catch(JSchException | IOException e) {
             System.err.print(e);
         }
     }
 
+    /**
+     * @return the attributes of the remote file or null if it does not exist
+     */
+    private static SftpATTRS statRemoteFile(String clcip, String user, String password, final String remoteFile)
+            throws JSchException, IOException {
+        try {
+            return SshSessionPool.withSftp(clcip, user, password, new SshSessionPool.SftpTask<SftpATTRS>() {
+                @Override
+                public SftpATTRS run(ChannelSftp sftpChannel) throws SftpException {
+                    return sftpChannel.stat(remoteFile);
+                }
+            });
+        } catch (SftpException e) {
+            return null;
+        }
+    }
+
     /**
      * create ec2 connection based with supplied accessKey and secretKey
      *
@@ -364,24 +411,27 @@ class N4j {
     static AmazonEC2 getEc2Client(String accessKey, String secretKey,
                                   String endpoint) {
         AWSCredentials creds = new BasicAWSCredentials(accessKey, secretKey);
-        final AmazonEC2 ec2 = new AmazonEC2Client(creds);
+        final AmazonEC2Client ec2 = new AmazonEC2Client(creds, ClientConfigurations.create());
         ec2.setEndpoint(endpoint);
+        ec2.addRequestHandler(SdkMetrics.HANDLER);
         return ec2;
     }
 
     public static AmazonAutoScaling getAutoScalingClient(String accessKey,
                                                          String secretKey, String endpoint) {
         AWSCredentials creds = new BasicAWSCredentials(accessKey, secretKey);
-        final AmazonAutoScaling as = new AmazonAutoScalingClient(creds);
+        final AmazonAutoScalingClient as = new AmazonAutoScalingClient(creds, ClientConfigurations.create());
         as.setEndpoint(endpoint);
+        as.addRequestHandler(SdkMetrics.HANDLER);
         return as;
     }
 
-    private static AmazonElasticLoadBalancing getElbClient(String accessKey, String secretKey,
+    static AmazonElasticLoadBalancing getElbClient(String accessKey, String secretKey,
                                                            String endpoint) {
         AWSCredentials creds = new BasicAWSCredentials(accessKey, secretKey);
-        final AmazonElasticLoadBalancing elb = new AmazonElasticLoadBalancingClient(creds);
+        final AmazonElasticLoadBalancingClient elb = new AmazonElasticLoadBalancingClient(creds, ClientConfigurations.create());
         elb.setEndpoint(endpoint);
+        elb.addRequestHandler(SdkMetrics.HANDLER);
         return elb;
     }
 
@@ -393,16 +443,18 @@ class N4j {
                                                         String endpoint) {
         AWSCredentialsProvider awsCredentialsProvider =
                 new StaticCredentialsProvider( new BasicAWSCredentials(accessKey, secretKey));
-        final YouAre youAre = new YouAreClient(awsCredentialsProvider);
+        final YouAreClient youAre = new YouAreClient(awsCredentialsProvider, ClientConfigurations.create());
         youAre.setEndpoint(endpoint);
+        youAre.addRequestHandler(SdkMetrics.HANDLER);
         return youAre;
     }
 
     public static AmazonCloudWatch getCwClient(String accessKey, String secretKey,
                                                String endpoint) {
         AWSCredentials creds = new BasicAWSCredentials(accessKey, secretKey);
-        final AmazonCloudWatch cw = new AmazonCloudWatchClient(creds);
+        final AmazonCloudWatchClient cw = new AmazonCloudWatchClient(creds, ClientConfigurations.create());
         cw.setEndpoint(endpoint);
+        cw.addRequestHandler(SdkMetrics.HANDLER);
         return cw;
     }
 
@@ -412,9 +464,10 @@ class N4j {
     }
 
     public static AmazonS3 getS3Client(AWSCredentials credentials, String endpoint) {
-        final AmazonS3 s3 =
-            new AmazonS3Client(credentials, new ClientConfiguration( ).withSignerOverride("S3SignerType"));
+        final AmazonS3Client s3 =
+            new AmazonS3Client(credentials, ClientConfigurations.createS3());
         s3.setEndpoint(endpoint);
+        s3.addRequestHandler(SdkMetrics.HANDLER);
         return s3;
     }
 
@@ -482,21 +535,24 @@ class N4j {
 
     public static void waitForHealthStatus(final String instanceId, final String expectedStatus)
             throws Exception {
-        final long startTime = System.currentTimeMillis();
-        final long timeout = TimeUnit.MINUTES.toMillis(15);
-        boolean completed = false;
-        while (!completed && (System.currentTimeMillis() - startTime) < timeout) {
-            Thread.sleep(5000);
-            final String healthStatus = getHealthStatus(instanceId);
-            completed = expectedStatus.equals(healthStatus);
-        }
-        assertThat(completed, "Instances health status did not change to "
+        final Waiter.Result<String> result = Waiter.waitFor("health status " + expectedStatus, new Waiter.Poll<String>() {
+            @Override
+            public String poll() {
+                return getHealthStatus(instanceId);
+            }
+        }).until(new Waiter.Condition<String>() {
+            @Override
+            public boolean isSatisfied(String healthStatus) {
+                return expectedStatus.equals(healthStatus);
+            }
+        }).withTimeout(15, TimeUnit.MINUTES).await();
+        assertThat(result.isSatisfied(), "Instances health status did not change to "
                 + expectedStatus + " within the expected timeout");
-        print("Instance health status changed in " + (System.currentTimeMillis() - startTime) + "ms");
+        print("Instance health status changed in " + result.getElapsed() + "ms");
     }
 
     public static String getHealthStatus(final String instanceId) {
-        final DescribeAutoScalingInstancesResult instancesResult = as
+        final DescribeAutoScalingInstancesResult instancesResult = as()
                 .describeAutoScalingInstances(new DescribeAutoScalingInstancesRequest().withInstanceIds(instanceId));
         assertThat(instancesResult.getAutoScalingInstances().size() == 1, "Auto scaling instance found");
         final AutoScalingInstanceDetails details = instancesResult.getAutoScalingInstances().get(0);
@@ -507,33 +563,24 @@ class N4j {
 
     public static List<?> waitForInstances(final long timeout, final int expectedCount, final String groupName,
                                            final boolean asString) throws Exception {
-        final long startTime = System.currentTimeMillis();
-        boolean completed = false;
-        if (asString) {
-            List<?> instanceIds = Collections.emptyList();
-            while (!completed && (System.currentTimeMillis() - startTime) < timeout) {
-                Thread.sleep(5000);
-                instanceIds = getInstancesForGroup(groupName, "running", true);
-                completed = instanceIds.size() == expectedCount;
+        final Waiter.Result<List<?>> result = Waiter.waitFor("instance count " + expectedCount, new Waiter.Poll<List<?>>() {
+            @Override
+            public List<?> poll() {
+                return getInstancesForGroup(groupName, "running", asString);
             }
-            assertThat(completed, "Instances count did not change to " + expectedCount + " within the expected timeout");
-            print("Instance count changed in " + (System.currentTimeMillis() - startTime) + "ms");
-            return instanceIds;
-        } else {
-            List<?> instances = Collections.emptyList();
-            while (!completed && (System.currentTimeMillis() - startTime) < timeout) {
-                Thread.sleep(5000);
-                instances = getInstancesForGroup(groupName, "running", false);
-                completed = instances.size() == expectedCount;
+        }).until(new Waiter.Condition<List<?>>() {
+            @Override
+            public boolean isSatisfied(List<?> instances) {
+                return instances.size() == expectedCount;
             }
-            assertThat(completed, "Instances count did not change to " + expectedCount + " within the expected timeout");
-            print("Instance count changed in " + (System.currentTimeMillis() - startTime) + "ms");
-            return instances;
-        }
+        }).withTimeout(timeout, TimeUnit.MILLISECONDS).await();
+        assertThat(result.isSatisfied(), "Instances count did not change to " + expectedCount + " within the expected timeout");
+        print("Instance count changed in " + result.getElapsed() + "ms");
+        return result.getValue();
     }
 
     public static List<?> getInstancesForGroup(final String groupName, final String status, final boolean asString) {
-        final DescribeInstancesResult instancesResult = ec2
+        final DescribeInstancesResult instancesResult = ec2()
                 .describeInstances(new DescribeInstancesRequest()
                         .withFilters(new Filter()
                                 .withName("tag:aws:autoscaling:groupName")
@@ -567,29 +614,74 @@ class N4j {
      * Wait for instance steady state (no PENDING, no STOPPING, no SHUTTING-DOWN)
      */
     public static void waitForInstances(final long timeout) {
-        final long startTime = System.currentTimeMillis();
-        withWhile:
-        while (true) {
-            if ((System.currentTimeMillis() - startTime) > timeout) {
-                throw new IllegalStateException("Instance wait timed out");
-            }
-            try {
-                Thread.sleep(2000);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
+        waitForInstances(timeout, new Filter[0]);
+    }
+
+    /**
+     * Wait for steady state of the given instances
+     */
+    public static void waitForInstances(final long timeout, final String... instanceIds) {
+        waitForInstances(timeout, new Filter().withName("instance-id").withValues(instanceIds));
+    }
+
+    /**
+     * Wait for all the given instances to reach a state, e.g. "terminated"
+     *
+     * Unlike the steady state waits this cannot return early while a
+     * requested change is not yet visible, so use it to wait for a known
+     * outcome such as termination before deleting resources the instances use.
+     */
+    public static void waitForInstancesInState(final long timeout, final String state, final String... instanceIds) {
+        final DescribeInstancesRequest request = new DescribeInstancesRequest()
+                .withFilters(new Filter().withName("instance-id").withValues(instanceIds));
+        final Waiter.Result<Boolean> result = Waiter.waitFor("instance state " + state, new Waiter.Poll<Boolean>() {
+            @Override
+            public Boolean poll() {
+                int found = 0;
+                for (final Reservation reservation : ec2().describeInstances(request).getReservations()) {
+                    for (final Instance instance : reservation.getInstances()) {
+                        if (!state.equals(instance.getState().getName())) return false;
+                        found++;
+                    }
+                }
+                return found == instanceIds.length || "terminated".equals(state);
             }
-            DescribeInstancesResult result = ec2.describeInstances();
-            for (final Reservation reservation : result.getReservations()) {
-                for (final Instance instance : reservation.getInstances()) {
-                    switch (instance.getState().getCode()) {
-                        case 0:
-                        case 32:
-                        case 64:
-                            continue withWhile;
+        }).until(STEADY).withTimeout(timeout, TimeUnit.MILLISECONDS).await();
+        if (!result.isSatisfied()) {
+            throw new IllegalStateException("Instance wait for state " + state + " timed out");
+        }
+    }
+
+    /**
+     * Wait for steady state of the instances matching the filters, e.g. tag:Name
+     *
+     * Only instances in a transitional state are requested so each poll is
+     * proportional to the instances still changing, not to all instances.
+     */
+    public static void waitForInstances(final long timeout, final Filter... filters) {
+        final DescribeInstancesRequest request = new DescribeInstancesRequest()
+                .withFilters(new Filter().withName("instance-state-name").withValues("pending", "stopping", "shutting-down"))
+                .withFilters(filters);
+        final Waiter.Result<Boolean> result = Waiter.waitFor("instance steady state", new Waiter.Poll<Boolean>() {
+            @Override
+            public Boolean poll() {
+                DescribeInstancesResult result = ec2().describeInstances(request);
+                for (final Reservation reservation : result.getReservations()) {
+                    for (final Instance instance : reservation.getInstances()) {
+                        switch (instance.getState().getCode()) {
+                            case 0:
+                            case 32:
+                            case 64:
+                                return false;
+                        }
                     }
                 }
+                return true;
             }
-            break;
+        }).until(STEADY).withInitialDelay(STEADY_STATE_DELAY, TimeUnit.MILLISECONDS)
+                .withTimeout(timeout, TimeUnit.MILLISECONDS).await();
+        if (!result.isSatisfied()) {
+            throw new IllegalStateException("Instance wait timed out");
         }
     }
 
@@ -597,23 +689,20 @@ class N4j {
      * Wait for volume steady state (no creating, no deleting)
      */
     public static void waitForVolumes(final long timeout) {
-        final long startTime = System.currentTimeMillis();
-        withWhile:
-        while (true) {
-            if ((System.currentTimeMillis() - startTime) > timeout) {
-                throw new IllegalStateException("Volume wait timed out");
-            }
-            try {
-                Thread.sleep(2000);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-            }
-            final DescribeVolumesResult result = ec2.describeVolumes();
-            for (final Volume volume : result.getVolumes()) {
-                if ("creating".equals(volume.getState()) ||
-                        "deleting".equals(volume.getState())) continue withWhile;
+        final Waiter.Result<Boolean> result = Waiter.waitFor("volume steady state", new Waiter.Poll<Boolean>() {
+            @Override
+            public Boolean poll() {
+                final DescribeVolumesResult result = ec2().describeVolumes();
+                for (final Volume volume : result.getVolumes()) {
+                    if ("creating".equals(volume.getState()) ||
+                            "deleting".equals(volume.getState())) return false;
+                }
+                return true;
             }
-            break;
+        }).until(STEADY).withInitialDelay(STEADY_STATE_DELAY, TimeUnit.MILLISECONDS)
+                .withTimeout(timeout, TimeUnit.MILLISECONDS).await();
+        if (!result.isSatisfied()) {
+            throw new IllegalStateException("Volume wait timed out");
         }
     }
 
@@ -621,29 +710,39 @@ class N4j {
      * Wait for snapshot steady state (no pending)
      */
     public static void waitForSnapshots(final long timeout) {
-        final long startTime = System.currentTimeMillis();
-        withWhile:
-        while (true) {
-            if ((System.currentTimeMillis() - startTime) > timeout) {
-                throw new IllegalStateException("Snapshot wait timed out");
-            }
-            try {
-                Thread.sleep(2000);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-            }
-            final DescribeSnapshotsResult result = ec2.describeSnapshots();
-            for (final Snapshot snapshot : result.getSnapshots()) {
-                if ("pending".equals(snapshot.getState())) continue withWhile;
+        final Waiter.Result<Boolean> result = Waiter.waitFor("snapshot steady state", new Waiter.Poll<Boolean>() {
+            @Override
+            public Boolean poll() {
+                final DescribeSnapshotsResult result = ec2().describeSnapshots();
+                for (final Snapshot snapshot : result.getSnapshots()) {
+                    if ("pending".equals(snapshot.getState())) return false;
+                }
+                return true;
             }
-            break;
+        }).until(STEADY).withInitialDelay(STEADY_STATE_DELAY, TimeUnit.MILLISECONDS)
+                .withTimeout(timeout, TimeUnit.MILLISECONDS).await();
+        if (!result.isSatisfied()) {
+            throw new IllegalStateException("Snapshot wait timed out");
         }
     }
 
+    /**
+     * Delay before the first steady state poll, so that a change requested
+     * just before the wait is visible rather than the previous steady state.
+     */
+    private static final long STEADY_STATE_DELAY = TimeUnit.SECONDS.toMillis(2);
+
+    private static final Waiter.Condition<Boolean> STEADY = new Waiter.Condition<Boolean>() {
+        @Override
+        public boolean isSatisfied(Boolean steady) {
+            return steady;
+        }
+    };
+
     public static String findImage() {
         // Find an appropriate image to launch: instance-store not windows and not load balancer or image worker images
         String imageId=null;
-        final DescribeImagesResult imagesResult = ec2
+        final DescribeImagesResult imagesResult = ec2()
                 .describeImages(new DescribeImagesRequest().withFilters(
                         new Filter().withName("image-type").withValues("machine"),
                         new Filter().withName("root-device-type").withValues("instance-store"),
@@ -662,7 +761,7 @@ class N4j {
     }
 
     public static boolean isHVM() {
-        final DescribeImagesResult imagesResult = ec2
+        final DescribeImagesResult imagesResult = ec2()
                 .describeImages(new DescribeImagesRequest().withFilters(
                         new Filter().withName("image-id").withValues(
                                 findImage()),
@@ -673,7 +772,7 @@ class N4j {
 
     public static String findKernel() {
         // Find an appropriate image to launch
-        final DescribeImagesResult imagesResult = ec2
+        final DescribeImagesResult imagesResult = ec2()
                 .describeImages(new DescribeImagesRequest()
                         .withFilters(
                                 new Filter().withName("kernel-id").withValues(
@@ -687,7 +786,7 @@ class N4j {
 
     public static String findRamdisk() {
         // Find an appropriate image to launch
-        final DescribeImagesResult imagesResult = ec2
+        final DescribeImagesResult imagesResult = ec2()
                 .describeImages(new DescribeImagesRequest()
                         .withFilters(
                                 new Filter().withName("ramdisk-id").withValues(
@@ -701,7 +800,7 @@ class N4j {
 
     public static String findAvailablityZone() {
         // Find an AZ to use
-        final DescribeAvailabilityZonesResult azResult = ec2
+        final DescribeAvailabilityZonesResult azResult = ec2()
                 .describeAvailabilityZones();
 
         assertThat(azResult.getAvailabilityZones().size() > 0,
@@ -715,7 +814,7 @@ class N4j {
 
     public static List<AvailabilityZone> getAZ() {
         // Find an AZ to use
-        final DescribeAvailabilityZonesResult azResult = ec2
+        final DescribeAvailabilityZonesResult azResult = ec2()
                 .describeAvailabilityZones();
 
         assertThat(azResult.getAvailabilityZones().size() > 0,
@@ -732,7 +831,7 @@ class N4j {
         try {
             CreateSecurityGroupRequest securityGroupRequest = new CreateSecurityGroupRequest(
                     name, desc);
-            ec2.createSecurityGroup(securityGroupRequest);
+            ec2().createSecurityGroup(securityGroupRequest);
             print("Created Security Group: " + name);
         } catch (AmazonServiceException ase) {
             // Likely this means that the group is already created, so ignore.
@@ -747,7 +846,7 @@ class N4j {
         DescribeSecurityGroupsResult securityGroupsResult = null;
         try {
             DescribeSecurityGroupsRequest describeSecurityGroupsRequest = new DescribeSecurityGroupsRequest();
-            securityGroupsResult = ec2
+            securityGroupsResult = ec2()
                     .describeSecurityGroups(describeSecurityGroupsRequest);
         } catch (AmazonServiceException ase) {
             // Likely this means that the group is already created, so ignore.
@@ -763,7 +862,7 @@ class N4j {
         try {
             DeleteSecurityGroupRequest deleteSecurityGroupRequest = new DeleteSecurityGroupRequest(
                     groupName);
-            ec2.deleteSecurityGroup(deleteSecurityGroupRequest);
+            ec2().deleteSecurityGroup(deleteSecurityGroupRequest);
             print("Deleted Security Group: " + groupName);
         } catch (AmazonServiceException ase) {
             print(ase.getMessage());
@@ -783,7 +882,7 @@ class N4j {
                 .withInstanceType(type).withImageId(emi).withMinCount(minCount)
                 .withMaxCount(maxCount).withSecurityGroups(securityGroups)
                 .withKeyName(keyName);
-        ec2.runInstances(runInstancesRequest);
+        ec2().runInstances(runInstancesRequest);
         print("Started instance: "
                 + getLastlaunchedInstance().get(0).getInstanceId());
     }
@@ -794,7 +893,7 @@ class N4j {
     public static void stopInstances(List<String> instanceIds) {
         StopInstancesRequest stopInstancesRequest = new StopInstancesRequest(
                 instanceIds);
-        ec2.stopInstances(stopInstancesRequest);
+        ec2().stopInstances(stopInstancesRequest);
         for (String instance : instanceIds) {
             print("Stopped instance: " + instance);
         }
@@ -806,7 +905,7 @@ class N4j {
     public static void startInstances(List<String> instanceIds) {
         StartInstancesRequest startInstancesRequest = new StartInstancesRequest(
                 instanceIds);
-        ec2.startInstances(startInstancesRequest);
+        ec2().startInstances(startInstancesRequest);
         for (String instance : instanceIds) {
             print("Started instance: " + instance);
         }
@@ -817,7 +916,7 @@ class N4j {
      */
     public static void terminateInstances(List<String> instanceIds) {
         TerminateInstancesRequest terminateInstancesRequest = new TerminateInstancesRequest(instanceIds);
-        ec2.terminateInstances(terminateInstancesRequest);
+        ec2().terminateInstances(terminateInstancesRequest);
         for (String instance : instanceIds) {
             print("Terminated instance: " + instance);
         }
@@ -827,7 +926,7 @@ class N4j {
      * @return # of reservations
      */
     public static List<Reservation> getInstancesList() {
-        DescribeInstancesResult describeInstancesRequest = ec2.describeInstances();
+        DescribeInstancesResult describeInstancesRequest = ec2().describeInstances();
         return describeInstancesRequest.getReservations();
     }
 
@@ -837,7 +936,7 @@ class N4j {
     public static void createKeyPair(String keyName) {
         CreateKeyPairRequest createKeyPairRequest = new CreateKeyPairRequest(
                 keyName);
-        ec2.createKeyPair(createKeyPairRequest);
+        ec2().createKeyPair(createKeyPairRequest);
         print("Created keypair: " + keyName);
     }
 
@@ -846,7 +945,7 @@ class N4j {
      */
     public static int getKeyPairCount() {
         DescribeKeyPairsRequest describeKeyPairsRequest = new DescribeKeyPairsRequest();
-        DescribeKeyPairsResult describeKeyPairsResult = ec2
+        DescribeKeyPairsResult describeKeyPairsResult = ec2()
                 .describeKeyPairs(describeKeyPairsRequest);
         return describeKeyPairsResult.getKeyPairs().size();
     }
@@ -857,7 +956,7 @@ class N4j {
     public static void deleteKeyPair(String keyName) {
         DeleteKeyPairRequest deleteKeyPairRequest = new DeleteKeyPairRequest(
                 keyName);
-        ec2.deleteKeyPair(deleteKeyPairRequest);
+        ec2().deleteKeyPair(deleteKeyPairRequest);
         print("Deleted keypair: " + keyName);
     }
 
@@ -865,7 +964,7 @@ class N4j {
      * Create a volume, returning the identifier.
      */
     public static String createVolume(final String zone, final int size) {
-        final String volumeId = ec2.createVolume(
+        final String volumeId = ec2().createVolume(
                 new CreateVolumeRequest()
                         .withAvailabilityZone(zone)
                         .withSize(size)
@@ -875,7 +974,7 @@ class N4j {
     }
 
     public static void deleteVolume(final String volumeId) {
-        ec2.deleteVolume(new DeleteVolumeRequest().withVolumeId(volumeId));
+        ec2().deleteVolume(new DeleteVolumeRequest().withVolumeId(volumeId));
         print("Deleted Volume: " + volumeId);
     }
 
@@ -883,7 +982,7 @@ class N4j {
      * Create a snapshot, returning the identifier.
      */
     public static String createSnapshot(final String volumeId, final String description) {
-        final String snapshotId = ec2.createSnapshot(
+        final String snapshotId = ec2().createSnapshot(
                 new CreateSnapshotRequest()
                         .withVolumeId(volumeId)
                         .withDescription(description)
@@ -893,18 +992,18 @@ class N4j {
     }
 
     public static void deleteSnapshot(final String snapshotId) {
-        ec2.deleteSnapshot(new DeleteSnapshotRequest().withSnapshotId(snapshotId));
+        ec2().deleteSnapshot(new DeleteSnapshotRequest().withSnapshotId(snapshotId));
         print("Deleted Snapshot: " + snapshotId);
     }
 
     public static String allocateElasticIP() {
-        final String ip = ec2.allocateAddress().getPublicIp();
+        final String ip = ec2().allocateAddress().getPublicIp();
         print("Allocated Elastic IP: " + ip);
         return ip;
     }
 
     public static void releaseElasticIP(final String ip) {
-        ec2.releaseAddress(new ReleaseAddressRequest().withPublicIp(ip));
+        ec2().releaseAddress(new ReleaseAddressRequest().withPublicIp(ip));
         print("Released Elastic IP: " + ip);
     }
 
@@ -941,7 +1040,7 @@ class N4j {
                 .withIamInstanceProfile( iamInstanceProfile )
                 .withInstanceMonitoring( instanceMonitoring )
                 .withUserData( userData );
-        as.createLaunchConfiguration(createLaunchConfigurationRequest);
+        as().createLaunchConfiguration(createLaunchConfigurationRequest);
         print("Created Launch Configuration: " + launchConfig);
     }
 
@@ -949,7 +1048,7 @@ class N4j {
         DescribeLaunchConfigurationsResult launchConfigurationsResult = null;
         try {
             DescribeLaunchConfigurationsRequest describeLaunchConfigurationsRequest = new DescribeLaunchConfigurationsRequest();
-            launchConfigurationsResult = as.describeLaunchConfigurations(describeLaunchConfigurationsRequest);
+            launchConfigurationsResult = as().describeLaunchConfigurations(describeLaunchConfigurationsRequest);
         } catch (AmazonServiceException ase) {
             print(ase.getMessage());
         }
@@ -960,7 +1059,7 @@ class N4j {
         try {
             DeleteLaunchConfigurationRequest deleteLaunchConfigurationRequest = new DeleteLaunchConfigurationRequest()
                     .withLaunchConfigurationName(launchConfigurationName);
-            as.deleteLaunchConfiguration(deleteLaunchConfigurationRequest);
+            as().deleteLaunchConfiguration(deleteLaunchConfigurationRequest);
             print("Deleted Launch Configuration: "
                     + launchConfigurationName);
         } catch (AmazonServiceException ase) {
@@ -985,7 +1084,7 @@ class N4j {
                 .withLoadBalancerNames(list(loadBalancer))
                 .withTags(list(tag))
                 .withTerminationPolicies(list(terminationPolicy));
-        as.createAutoScalingGroup(createAutoScalingGroupRequest);
+        as().createAutoScalingGroup(createAutoScalingGroupRequest);
         print("Created Auto Scaling Group: " + groupName);
     }
 
@@ -993,7 +1092,7 @@ class N4j {
         DescribeAutoScalingGroupsResult autoScalingGroupsResult = null;
         try {
             DescribeAutoScalingGroupsRequest describeAutoScalingGroupsRequest = new DescribeAutoScalingGroupsRequest();
-            autoScalingGroupsResult = as.describeAutoScalingGroups(describeAutoScalingGroupsRequest);
+            autoScalingGroupsResult = as().describeAutoScalingGroups(describeAutoScalingGroupsRequest);
         } catch (AmazonServiceException ase) {
             print(ase.getMessage());
         }
@@ -1005,7 +1104,7 @@ class N4j {
             DeleteAutoScalingGroupRequest deleteAutoScalingGroupRequest = new DeleteAutoScalingGroupRequest()
                     .withAutoScalingGroupName(autoScalingGroupName)
                     .withForceDelete(force);
-            as.deleteAutoScalingGroup(deleteAutoScalingGroupRequest);
+            as().deleteAutoScalingGroup(deleteAutoScalingGroupRequest);
             print("Deleted Auto Scaling Group: " + autoScalingGroupName);
         } catch (AmazonServiceException ase) {
             print(ase.getMessage());
@@ -1014,7 +1113,7 @@ class N4j {
 
     public static String getInstanceState(final String groupName) {
         final DescribeAutoScalingGroupsResult groupResult =
-                as.describeAutoScalingGroups(new DescribeAutoScalingGroupsRequest().withAutoScalingGroupNames(groupName));
+                as().describeAutoScalingGroups(new DescribeAutoScalingGroupsRequest().withAutoScalingGroupNames(groupName));
         String state = null;
         for (final AutoScalingGroup group : groupResult.getAutoScalingGroups()) {
             assertThat(groupName.equals(group.getAutoScalingGroupName()), "Unexpected group: " + group.getAutoScalingGroupName());
@@ -1030,24 +1129,27 @@ class N4j {
                                         final long timeout,
                                         final String groupName,
                                         final boolean allowEmpty) throws Exception {
-        final long startTime = System.currentTimeMillis();
-        boolean completed = false;
-        String instanceState = null;
-        while (!completed && (System.currentTimeMillis() - startTime) < timeout) {
-            instanceState = getInstanceState(groupName);
-            completed = instanceState == null && allowEmpty || state.equals(instanceState);
-            Thread.sleep(2500);
-        }
-        assertThat(completed, "Instance not found with state " + state + " within the expected timeout");
-        print("Instance found in " + (System.currentTimeMillis() - startTime) + "ms for state: " +
-                state + (instanceState == null ? " (instance terminated before state detected)" : ""));
+        final Waiter.Result<String> result = Waiter.waitFor("instance state " + state, new Waiter.Poll<String>() {
+            @Override
+            public String poll() {
+                return getInstanceState(groupName);
+            }
+        }).until(new Waiter.Condition<String>() {
+            @Override
+            public boolean isSatisfied(String instanceState) {
+                return instanceState == null && allowEmpty || state.equals(instanceState);
+            }
+        }).withTimeout(timeout, TimeUnit.MILLISECONDS).await();
+        assertThat(result.isSatisfied(), "Instance not found with state " + state + " within the expected timeout");
+        print("Instance found in " + result.getElapsed() + "ms for state: " +
+                state + (result.getValue() == null ? " (instance terminated before state detected)" : ""));
     }
 
     public static void deletePolicy(String policyName) {
         DeletePolicyRequest deletePolicyRequest = null;
         try {
             deletePolicyRequest = new DeletePolicyRequest().withPolicyName(policyName);
-            as.deletePolicy(deletePolicyRequest);
+            as().deletePolicy(deletePolicyRequest);
             print("Deleted policy: " + policyName);
         } catch (AmazonServiceException ase) {
             print(ase.getMessage());
@@ -1058,7 +1160,7 @@ class N4j {
         DescribePoliciesResult describePoliciesResult = null;
         try {
             DescribePoliciesRequest describePoliciesRequest = new DescribePoliciesRequest();
-            describePoliciesResult = as.describePolicies(describePoliciesRequest);
+            describePoliciesResult = as().describePolicies(describePoliciesRequest);
         } catch (AmazonServiceException ase) {
             print(ase.getMessage());
         }
@@ -1066,7 +1168,7 @@ class N4j {
     }
 
     public static void createLoadBalancer(String loadBalancerName) {
-        elb.createLoadBalancer(new CreateLoadBalancerRequest()
+        elb().createLoadBalancer(new CreateLoadBalancerRequest()
                 .withLoadBalancerName(loadBalancerName)
                 .withAvailabilityZones( list( AVAILABILITY_ZONE ) )
                 .withListeners(
@@ -1078,7 +1180,7 @@ class N4j {
 
     public static void deleteLoadBlancer(String loadBalancerName) {
         try {
-            elb.deleteLoadBalancer(new DeleteLoadBalancerRequest().withLoadBalancerName(loadBalancerName));
+            elb().deleteLoadBalancer(new DeleteLoadBalancerRequest().withLoadBalancerName(loadBalancerName));
             print("Deleted load balancer: " + loadBalancerName);
         } catch (AmazonServiceException ase) {
             print(ase.getMessage());
@@ -1087,21 +1189,26 @@ class N4j {
 
     public static void waitForElbInstances(final String elbName, final long timeout, final List<String> instances)
             throws Exception {
-        final long startTime = System.currentTimeMillis();
-        boolean completed = false;
-        while (!completed && (System.currentTimeMillis() - startTime) < timeout) {
-            final List<String> elbInstances = new ArrayList<String>();
-            final DescribeLoadBalancersResult balancersResult = elb.describeLoadBalancers(new DescribeLoadBalancersRequest().withLoadBalancerNames(elbName));
-            for (final LoadBalancerDescription description : balancersResult.getLoadBalancerDescriptions()) {
-                for (final com.amazonaws.services.elasticloadbalancing.model.Instance instance : description.getInstances()) {
-                    elbInstances.add(instance.getInstanceId());
+        final Waiter.Result<List<String>> result = Waiter.waitFor("load balancer instances", new Waiter.Poll<List<String>>() {
+            @Override
+            public List<String> poll() {
+                final List<String> elbInstances = new ArrayList<String>();
+                final DescribeLoadBalancersResult balancersResult = elb().describeLoadBalancers(new DescribeLoadBalancersRequest().withLoadBalancerNames(elbName));
+                for (final LoadBalancerDescription description : balancersResult.getLoadBalancerDescriptions()) {
+                    for (final com.amazonaws.services.elasticloadbalancing.model.Instance instance : description.getInstances()) {
+                        elbInstances.add(instance.getInstanceId());
+                    }
                 }
+                return elbInstances;
             }
-            completed = elbInstances.containsAll(instances) && instances.containsAll(elbInstances);
-            Thread.sleep(2500);
-        }
-        assertThat(completed, "Instance not found for load balancer " + elbName + " within the expected timeout");
-        print("Instance found in " + (System.currentTimeMillis() - startTime) + "ms for load balancer: " + elbName);
+        }).until(new Waiter.Condition<List<String>>() {
+            @Override
+            public boolean isSatisfied(List<String> elbInstances) {
+                return elbInstances.containsAll(instances) && instances.containsAll(elbInstances);
+            }
+        }).withTimeout(timeout, TimeUnit.MILLISECONDS).await();
+        assertThat(result.isSatisfied(), "Instance not found for load balancer " + elbName + " within the expected timeout");
+        print("Instance found in " + result.getElapsed() + "ms for load balancer: " + elbName);
     }
 
     public static boolean isProfilePresent(final String profileName, final List<InstanceProfile> profiles) {
@@ -1113,15 +1220,7 @@ class N4j {
     }
 
     public static void createIAMPolicy(final String accountName, String userName, String policyName, String policyDocument) {
-        AWSCredentialsProvider awsCredentialsProvider = new StaticCredentialsProvider( new BasicAWSCredentials(ACCESS_KEY, SECRET_KEY));
-        final YouAreClient youAre = new YouAreClient(awsCredentialsProvider);
-        youAre.setEndpoint(IAM_ENDPOINT);
-
-        youAre.addRequestHandler(new AbstractRequestHandler() {
-            public void beforeRequest(final Request<?> request) {
-                request.addParameter("DelegateAccount", accountName);
-            }
-        });
+        final YouAre youAre = getDelegatedYouAreClient(accountName);
 
         if (policyDocument == null) {
             policyDocument = "{\n" +
@@ -1143,15 +1242,7 @@ class N4j {
     }
 
     public static AWSCredentials getUserCreds(final String accountName, String userName) {
-        AWSCredentialsProvider awsCredentialsProvider = new StaticCredentialsProvider( new BasicAWSCredentials(ACCESS_KEY, SECRET_KEY));
-        final YouAreClient youAre = new YouAreClient(awsCredentialsProvider);
-        youAre.setEndpoint(IAM_ENDPOINT);
-
-        youAre.addRequestHandler(new AbstractRequestHandler() {
-            public void beforeRequest(final Request<?> request) {
-                request.addParameter("DelegateAccount", accountName);
-            }
-        });
+        final YouAre youAre = getDelegatedYouAreClient(accountName);
 
         CreateAccessKeyRequest createAccessKeyRequest = new CreateAccessKeyRequest().withUserName(userName);
         String newKeys = String.valueOf(youAre.createAccessKey(createAccessKeyRequest));
@@ -1172,56 +1263,165 @@ class N4j {
         return new BasicAWSCredentials(accessKey, secretKey);
     }
 
-    public static void createAccount(String accountName) {
-        int numAccountsBefore = youAre.listAccounts().getAccounts().size();
+    /**
+     * Create an account and check that its admin user exists.
+     *
+     * @return the account id
+     */
+    public static String createAccount(String accountName) {
         CreateAccountRequest createAccountRequest = new CreateAccountRequest().withAccountName(accountName);
-        youAre.createAccount(createAccountRequest);
-        assertThat((numAccountsBefore < youAre.listAccounts().getAccounts().size()),"Failed to create account " + accountName);
+        final Account account = youAre.createAccount(createAccountRequest).getAccount();
+        assertThat(account != null && accountName.equals(account.getAccountName()), "Failed to create account " + accountName);
+        final User admin = getDelegatedYouAreClient(accountName).getUser(new GetUserRequest().withUserName("admin")).getUser();
+        assertThat(admin != null && account.getAccountId().equals(admin.getArn().split(":")[4]), "Failed to create account " + accountName);
         print("Created account: " + accountName);
+        return account.getAccountId();
+    }
+
+    /**
+     * Create accounts concurrently.
+     *
+     * @return the account ids by account name
+     */
+    public static Map<String, String> createAccounts(Collection<String> accountNames, int threads) throws Exception {
+        final List<Callable<String>> creates = new ArrayList<>();
+        for (final String accountName : accountNames) {
+            creates.add(new Callable<String>() {
+                @Override
+                public String call() {
+                    return createAccount(accountName);
+                }
+            });
+        }
+        final List<String> accountIds = runConcurrently(creates, threads);
+        final Map<String, String> accounts = new LinkedHashMap<>();
+        int index = 0;
+        for (final String accountName : accountNames) {
+            accounts.put(accountName, accountIds.get(index++));
+        }
+        return accounts;
     }
 
     public static void deleteAccount(String accountName){
-        int numAccountsBefore = youAre.listAccounts().getAccounts().size();
         DeleteAccountRequest deleteAccountRequest = new DeleteAccountRequest().withAccountName(accountName).withRecursive(Boolean.TRUE);
         youAre.deleteAccount(deleteAccountRequest);
-        assertThat((numAccountsBefore > youAre.listAccounts().getAccounts().size()),"Failed to delete account " + accountName);
+        boolean deleted = false;
+        try {
+            getDelegatedYouAreClient(accountName).getUser(new GetUserRequest().withUserName("admin"));
+        } catch (AmazonServiceException e) {
+            deleted = e.getStatusCode() < 500;
+        }
+        synchronized (delegatedYouAreClients) {
+            delegatedYouAreClients.remove(delegatedClientKey(accountName));
+        }
+        assertThat(deleted, "Failed to delete account " + accountName);
         print("Deleted account: " + accountName);
 
     }
 
     public static void createUser(final String accountName, String userName){
-        AWSCredentialsProvider awsCredentialsProvider = new StaticCredentialsProvider( new BasicAWSCredentials(ACCESS_KEY, SECRET_KEY));
-        final YouAreClient youAre = new YouAreClient(awsCredentialsProvider);
-        youAre.setEndpoint(IAM_ENDPOINT);
-
-        youAre.addRequestHandler(new AbstractRequestHandler() {
-            public void beforeRequest(final Request<?> request) {
-                request.addParameter("DelegateAccount", accountName);
-            }
-        });
+        final YouAre youAre = getDelegatedYouAreClient(accountName);
 
-        int numUsersBefore = youAre.listUsers().getUsers().size();
         CreateUserRequest createUserRequest = new CreateUserRequest()
                 .withUserName(userName)
                 .withPath("/");
         youAre.createUser(createUserRequest);
 
-        assertThat((numUsersBefore < youAre.listUsers().getUsers().size()), "Failed to create user " + userName);
+        final User user = youAre.getUser(new GetUserRequest().withUserName(userName)).getUser();
+        assertThat(user != null && userName.equals(user.getUserName()), "Failed to create user " + userName);
         print("Created new user " + userName + " in account " + accountName);
     }
 
-    public static Map<String, String> getUserKeys(final String accountName, String userName){
-        Map<String, String> keys = new HashMap<>();
+    /**
+     * Create users in an account concurrently.
+     */
+    public static void createUsers(final String accountName, Collection<String> userNames, int threads) throws Exception {
+        final List<Callable<Void>> creates = new ArrayList<>();
+        for (final String userName : userNames) {
+            creates.add(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    createUser(accountName, userName);
+                    return null;
+                }
+            });
+        }
+        runConcurrently(creates, threads);
+    }
 
-        AWSCredentialsProvider awsCredentialsProvider = new StaticCredentialsProvider( new BasicAWSCredentials(ACCESS_KEY, SECRET_KEY));
-        final YouAreClient youAre = new YouAreClient(awsCredentialsProvider);
-        youAre.setEndpoint(IAM_ENDPOINT);
+    /**
+     * @return an IAM client acting in the given account with the admin credentials
+     */
+    static YouAre getDelegatedYouAreClient(final String accountName) {
+        final String key = delegatedClientKey(accountName);
+        synchronized (delegatedYouAreClients) {
+            YouAreClient youAre = delegatedYouAreClients.get(key);
+            if (youAre == null) {
+                AWSCredentialsProvider awsCredentialsProvider = new StaticCredentialsProvider( new BasicAWSCredentials(ACCESS_KEY, SECRET_KEY));
+                youAre = new YouAreClient(awsCredentialsProvider, ClientConfigurations.create());
+                youAre.setEndpoint(IAM_ENDPOINT);
+                youAre.addRequestHandler(SdkMetrics.HANDLER);
+
+                youAre.addRequestHandler(new AbstractRequestHandler() {
+                    public void beforeRequest(final Request<?> request) {
+                        request.addParameter("DelegateAccount", accountName);
+                    }
+                });
+                delegatedYouAreClients.put(key, youAre);
+            }
+            return youAre;
+        }
+    }
 
-        youAre.addRequestHandler(new AbstractRequestHandler() {
-            public void beforeRequest(final Request<?> request) {
-                request.addParameter("DelegateAccount", accountName);
+    /**
+     * Key delegated clients by the admin credentials and endpoint too, so a client created before the cloud information was
+     * reloaded is not reused.
+     */
+    private static String delegatedClientKey(final String accountName) {
+        return ACCESS_KEY + "@" + IAM_ENDPOINT + "/" + accountName;
+    }
+
+    /**
+     * Run tasks on a pool of threads, waiting for all of them to finish.
+     *
+     * @return the task results in order
+     * @throws Exception the first failure, once all tasks are done
+     */
+    private static <T> List<T> runConcurrently(List<Callable<T>> tasks, int threads) throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, tasks.size())));
+        try {
+            final List<Future<T>> futures = new ArrayList<>();
+            for (final Callable<T> task : tasks) {
+                futures.add(executor.submit(task));
+            }
+            final List<T> results = new ArrayList<>();
+            Exception error = null;
+            int failures = 0;
+            for (final Future<T> future : futures) {
+                try {
+                    results.add(future.get());
+                } catch (ExecutionException e) {
+                    results.add(null);
+                    failures++;
+                    if (error == null) {
+                        error = e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+                    }
+                }
+            }
+            if (error != null) {
+                print(failures + " of " + tasks.size() + " concurrent tasks failed");
+                throw error;
             }
-        });
+            return results;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    public static Map<String, String> getUserKeys(final String accountName, String userName){
+        Map<String, String> keys = new HashMap<>();
+
+        final YouAre youAre = getDelegatedYouAreClient(accountName);
 
         CreateAccessKeyRequest createAccessKeyRequest = new CreateAccessKeyRequest().withUserName(userName);
         String newKeys = String.valueOf(youAre.createAccessKey(createAccessKeyRequest));
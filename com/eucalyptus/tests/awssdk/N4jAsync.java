@@ -0,0 +1,462 @@
+package com.eucalyptus.tests.awssdk;
+
+import com.amazonaws.AmazonWebServiceRequest;
+import com.amazonaws.auth.AWSCredentials;
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.handlers.AsyncHandler;
+import com.amazonaws.services.autoscaling.AmazonAutoScalingAsyncClient;
+import com.amazonaws.services.autoscaling.model.CreateAutoScalingGroupRequest;
+import com.amazonaws.services.autoscaling.model.CreateLaunchConfigurationRequest;
+import com.amazonaws.services.autoscaling.model.DeleteAutoScalingGroupRequest;
+import com.amazonaws.services.ec2.AmazonEC2AsyncClient;
+import com.amazonaws.services.ec2.model.*;
+import com.amazonaws.services.elasticloadbalancing.AmazonElasticLoadBalancingAsyncClient;
+import com.amazonaws.services.elasticloadbalancing.model.CreateLoadBalancerRequest;
+import com.amazonaws.services.elasticloadbalancing.model.CreateLoadBalancerResult;
+import com.amazonaws.services.elasticloadbalancing.model.DeleteLoadBalancerRequest;
+import com.amazonaws.services.elasticloadbalancing.model.DeleteLoadBalancerResult;
+import com.amazonaws.services.elasticloadbalancing.model.Listener;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+import static com.eucalyptus.tests.awssdk.N4j.*;
+
+/**
+ * Asynchronous versions of the N4j resource helpers.
+ *
+ * Each call returns a CompletableFuture so that many control plane
+ * operations can be started from a few threads and composed with waits on
+ * the resources they create:
+ *
+ * <pre>
+ * N4jAsync async = N4jAsync.forAdmin().withMaxInFlight(32);
+ * List&lt;CompletableFuture&lt;Volume&gt;&gt; volumes = new ArrayList&lt;&gt;();
+ * for (int i = 0; i &lt; 100; i++) {
+ *     volumes.add(async.createVolume(AVAILABILITY_ZONE, 1).thenCompose(new Function&lt;String, CompletionStage&lt;Volume&gt;&gt;() {
+ *         public CompletionStage&lt;Volume&gt; apply(String volumeId) { return async.volume(volumeId, "available"); }
+ *     }));
+ * }
+ * </pre>
+ *
+ * At most maxInFlight requests are outstanding at once, requests over the
+ * limit are queued and started as others complete. Calls never block, so
+ * they are safe to make from continuations running on the SDK threads.
+ * Waits share a ResourceWaiter so all pending resources are polled
+ * together, and fail with a TimeoutException if the resource is not in a
+ * target state within the wait timeout, after which it is no longer polled.
+ */
+class N4jAsync implements AutoCloseable {
+    private final AWSCredentials credentials;
+    private final ScheduledExecutorService scheduler;
+    private ExecutorService executor;
+    private AmazonEC2AsyncClient ec2;
+    private AmazonAutoScalingAsyncClient as;
+    private AmazonElasticLoadBalancingAsyncClient elb;
+    private ResourceWaiter waiter;
+    private ScheduledFuture<?> polling;
+    private final Deque<Queued> queued = new ArrayDeque<>();
+    private int inFlight;
+    private int maxInFlight = 16;
+    private long pollInterval = TimeUnit.SECONDS.toMillis(2);
+    private long waitTimeout = TimeUnit.MINUTES.toMillis(15);
+
+    /**
+     * Call an async client method with a completion handler.
+     */
+    private interface Call<Q extends AmazonWebServiceRequest, R> {
+        Future<R> call(Q request, AsyncHandler<Q, R> handler);
+    }
+
+    /**
+     * A request waiting for a slot.
+     */
+    private interface Queued {
+        /**
+         * @return false if the request failed to start, so its slot is free
+         */
+        boolean start();
+
+        void cancel();
+    }
+
+    N4jAsync(AWSCredentials credentials) {
+        this.credentials = credentials;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    /**
+     * @return async helpers using the cloud admin credentials
+     */
+    static N4jAsync forAdmin() throws Exception {
+        getCloudInfo();
+        return new N4jAsync(new BasicAWSCredentials(ACCESS_KEY, SECRET_KEY));
+    }
+
+    /**
+     * @return async helpers using the credentials of the given context
+     */
+    static N4jAsync forContext(CloudContext context) {
+        return new N4jAsync(context.credentials);
+    }
+
+    /**
+     * @param maxInFlight the maximum number of outstanding requests
+     */
+    N4jAsync withMaxInFlight(int maxInFlight) {
+        this.maxInFlight = Math.max(1, maxInFlight);
+        return this;
+    }
+
+    N4jAsync withPollInterval(long interval, TimeUnit unit) {
+        this.pollInterval = unit.toMillis(interval);
+        return this;
+    }
+
+    N4jAsync withWaitTimeout(long timeout, TimeUnit unit) {
+        this.waitTimeout = unit.toMillis(timeout);
+        return this;
+    }
+
+    private synchronized void init() {
+        if (executor == null) {
+            executor = Executors.newFixedThreadPool(maxInFlight);
+            ec2 = new AmazonEC2AsyncClient(credentials, ClientConfigurations.create(), executor);
+            ec2.setEndpoint(EC2_ENDPOINT);
+            ec2.addRequestHandler(SdkMetrics.HANDLER);
+            as = new AmazonAutoScalingAsyncClient(credentials, ClientConfigurations.create(), executor);
+            as.setEndpoint(AS_ENDPOINT);
+            as.addRequestHandler(SdkMetrics.HANDLER);
+            elb = new AmazonElasticLoadBalancingAsyncClient(credentials, ClientConfigurations.create(), executor);
+            elb.setEndpoint(ELB_ENDPOINT);
+            elb.addRequestHandler(SdkMetrics.HANDLER);
+            waiter = new ResourceWaiter(ec2);
+        }
+    }
+
+    /**
+     * @return the instances started
+     */
+    CompletableFuture<List<Instance>> runInstances(String emi, String keyName, String type, List<String> securityGroups,
+                                                   int minCount, int maxCount) {
+        final RunInstancesRequest runInstancesRequest = new RunInstancesRequest()
+                .withInstanceType(type).withImageId(emi).withMinCount(minCount)
+                .withMaxCount(maxCount).withSecurityGroups(securityGroups)
+                .withKeyName(keyName);
+        return call(runInstancesRequest, new Call<RunInstancesRequest, RunInstancesResult>() {
+            @Override
+            public Future<RunInstancesResult> call(RunInstancesRequest request, AsyncHandler<RunInstancesRequest, RunInstancesResult> handler) {
+                return ec2.runInstancesAsync(request, handler);
+            }
+        }).thenApply(new Function<RunInstancesResult, List<Instance>>() {
+            @Override
+            public List<Instance> apply(RunInstancesResult result) {
+                final List<Instance> instances = result.getReservation().getInstances();
+                for (final Instance instance : instances) {
+                    print("Started instance: " + instance.getInstanceId());
+                }
+                return instances;
+            }
+        });
+    }
+
+    CompletableFuture<Void> terminateInstances(final List<String> instanceIds) {
+        return call(new TerminateInstancesRequest(instanceIds), new Call<TerminateInstancesRequest, TerminateInstancesResult>() {
+            @Override
+            public Future<TerminateInstancesResult> call(TerminateInstancesRequest request,
+                                                         AsyncHandler<TerminateInstancesRequest, TerminateInstancesResult> handler) {
+                return ec2.terminateInstancesAsync(request, handler);
+            }
+        }).thenApply(done("Terminated instances: " + instanceIds));
+    }
+
+    /**
+     * @return the volume identifier
+     */
+    CompletableFuture<String> createVolume(final String zone, final int size) {
+        return call(new CreateVolumeRequest().withAvailabilityZone(zone).withSize(size), new Call<CreateVolumeRequest, CreateVolumeResult>() {
+            @Override
+            public Future<CreateVolumeResult> call(CreateVolumeRequest request, AsyncHandler<CreateVolumeRequest, CreateVolumeResult> handler) {
+                return ec2.createVolumeAsync(request, handler);
+            }
+        }).thenApply(new Function<CreateVolumeResult, String>() {
+            @Override
+            public String apply(CreateVolumeResult result) {
+                print("Created Volume: " + result.getVolume().getVolumeId());
+                return result.getVolume().getVolumeId();
+            }
+        });
+    }
+
+    CompletableFuture<Void> deleteVolume(final String volumeId) {
+        return call(new DeleteVolumeRequest().withVolumeId(volumeId), new Call<DeleteVolumeRequest, Void>() {
+            @Override
+            public Future<Void> call(DeleteVolumeRequest request, AsyncHandler<DeleteVolumeRequest, Void> handler) {
+                return ec2.deleteVolumeAsync(request, handler);
+            }
+        }).thenApply(done("Deleted Volume: " + volumeId));
+    }
+
+    /**
+     * @return the snapshot identifier
+     */
+    CompletableFuture<String> createSnapshot(final String volumeId, final String description) {
+        return call(new CreateSnapshotRequest().withVolumeId(volumeId).withDescription(description),
+                new Call<CreateSnapshotRequest, CreateSnapshotResult>() {
+                    @Override
+                    public Future<CreateSnapshotResult> call(CreateSnapshotRequest request,
+                                                             AsyncHandler<CreateSnapshotRequest, CreateSnapshotResult> handler) {
+                        return ec2.createSnapshotAsync(request, handler);
+                    }
+                }).thenApply(new Function<CreateSnapshotResult, String>() {
+            @Override
+            public String apply(CreateSnapshotResult result) {
+                print("Created Snapshot: " + result.getSnapshot().getSnapshotId());
+                return result.getSnapshot().getSnapshotId();
+            }
+        });
+    }
+
+    CompletableFuture<Void> deleteSnapshot(final String snapshotId) {
+        return call(new DeleteSnapshotRequest().withSnapshotId(snapshotId), new Call<DeleteSnapshotRequest, Void>() {
+            @Override
+            public Future<Void> call(DeleteSnapshotRequest request, AsyncHandler<DeleteSnapshotRequest, Void> handler) {
+                return ec2.deleteSnapshotAsync(request, handler);
+            }
+        }).thenApply(done("Deleted Snapshot: " + snapshotId));
+    }
+
+    CompletableFuture<Void> createLaunchConfig(final CreateLaunchConfigurationRequest createLaunchConfigurationRequest) {
+        return call(createLaunchConfigurationRequest, new Call<CreateLaunchConfigurationRequest, Void>() {
+            @Override
+            public Future<Void> call(CreateLaunchConfigurationRequest request,
+                                                                AsyncHandler<CreateLaunchConfigurationRequest, Void> handler) {
+                return as.createLaunchConfigurationAsync(request, handler);
+            }
+        }).thenApply(done("Created Launch Configuration: " + createLaunchConfigurationRequest.getLaunchConfigurationName()));
+    }
+
+    CompletableFuture<Void> createAutoScalingGroup(final CreateAutoScalingGroupRequest createAutoScalingGroupRequest) {
+        return call(createAutoScalingGroupRequest, new Call<CreateAutoScalingGroupRequest, Void>() {
+            @Override
+            public Future<Void> call(CreateAutoScalingGroupRequest request,
+                                                             AsyncHandler<CreateAutoScalingGroupRequest, Void> handler) {
+                return as.createAutoScalingGroupAsync(request, handler);
+            }
+        }).thenApply(done("Created Auto Scaling Group: " + createAutoScalingGroupRequest.getAutoScalingGroupName()));
+    }
+
+    CompletableFuture<Void> deleteAutoScalingGroup(final String autoScalingGroupName, boolean force) {
+        return call(new DeleteAutoScalingGroupRequest().withAutoScalingGroupName(autoScalingGroupName).withForceDelete(force),
+                new Call<DeleteAutoScalingGroupRequest, Void>() {
+                    @Override
+                    public Future<Void> call(DeleteAutoScalingGroupRequest request,
+                                                                     AsyncHandler<DeleteAutoScalingGroupRequest, Void> handler) {
+                        return as.deleteAutoScalingGroupAsync(request, handler);
+                    }
+                }).thenApply(done("Deleted Auto Scaling Group: " + autoScalingGroupName));
+    }
+
+    CompletableFuture<Void> createLoadBalancer(final String loadBalancerName) {
+        final CreateLoadBalancerRequest createLoadBalancerRequest = new CreateLoadBalancerRequest()
+                .withLoadBalancerName(loadBalancerName)
+                .withAvailabilityZones(AVAILABILITY_ZONE)
+                .withListeners(new Listener().withInstancePort(80).withLoadBalancerPort(80).withProtocol("HTTP"));
+        return call(createLoadBalancerRequest, new Call<CreateLoadBalancerRequest, CreateLoadBalancerResult>() {
+            @Override
+            public Future<CreateLoadBalancerResult> call(CreateLoadBalancerRequest request,
+                                                         AsyncHandler<CreateLoadBalancerRequest, CreateLoadBalancerResult> handler) {
+                return elb.createLoadBalancerAsync(request, handler);
+            }
+        }).thenApply(done("Created load balancer: " + loadBalancerName));
+    }
+
+    CompletableFuture<Void> deleteLoadBalancer(final String loadBalancerName) {
+        return call(new DeleteLoadBalancerRequest().withLoadBalancerName(loadBalancerName),
+                new Call<DeleteLoadBalancerRequest, DeleteLoadBalancerResult>() {
+                    @Override
+                    public Future<DeleteLoadBalancerResult> call(DeleteLoadBalancerRequest request,
+                                                                 AsyncHandler<DeleteLoadBalancerRequest, DeleteLoadBalancerResult> handler) {
+                        return elb.deleteLoadBalancerAsync(request, handler);
+                    }
+                }).thenApply(done("Deleted load balancer: " + loadBalancerName));
+    }
+
+    /**
+     * Wait for an instance to reach one of the given states.
+     *
+     * @return the instance, or null if it is gone and a gone state was requested
+     */
+    CompletableFuture<Instance> instance(String instanceId, String... states) {
+        init();
+        return await(waiter.instance(instanceId, states), instanceId, "instance " + instanceId);
+    }
+
+    CompletableFuture<Volume> volume(String volumeId, String... states) {
+        init();
+        return await(waiter.volume(volumeId, states), volumeId, "volume " + volumeId);
+    }
+
+    CompletableFuture<Snapshot> snapshot(String snapshotId, String... states) {
+        init();
+        return await(waiter.snapshot(snapshotId, states), snapshotId, "snapshot " + snapshotId);
+    }
+
+    /**
+     * Wait for all the futures, failing with the first failure.
+     */
+    static <T> CompletableFuture<List<T>> all(final List<CompletableFuture<T>> futures) {
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[futures.size()]))
+                .thenApply(new Function<Void, List<T>>() {
+                    @Override
+                    public List<T> apply(Void ignored) {
+                        final List<T> results = new ArrayList<>();
+                        for (final CompletableFuture<T> future : futures) {
+                            results.add(future.join());
+                        }
+                        return results;
+                    }
+                });
+    }
+
+    /**
+     * Shut down the clients and stop polling, incomplete waits are left incomplete.
+     */
+    @Override
+    public synchronized void close() {
+        final List<Queued> cancelled;
+        synchronized (queued) {
+            cancelled = new ArrayList<>(queued);
+            queued.clear();
+        }
+        for (final Queued request : cancelled) {
+            request.cancel();
+        }
+        scheduler.shutdownNow();
+        if (executor != null) {
+            ec2.shutdown();
+            as.shutdown();
+            elb.shutdown();
+            executor.shutdownNow();
+        }
+    }
+
+    private <Q extends AmazonWebServiceRequest, R> CompletableFuture<R> call(final Q request, final Call<Q, R> call) {
+        init();
+        final CompletableFuture<R> future = new CompletableFuture<>();
+        final Queued queuedRequest = new Queued() {
+            @Override
+            public boolean start() {
+                try {
+                    call.call(request, new AsyncHandler<Q, R>() {
+                        @Override
+                        public void onError(Exception exception) {
+                            release();
+                            future.completeExceptionally(exception);
+                        }
+
+                        @Override
+                        public void onSuccess(Q request, R result) {
+                            release();
+                            future.complete(result);
+                        }
+                    });
+                    return true;
+                } catch (RuntimeException e) {
+                    future.completeExceptionally(e);
+                    return false;
+                }
+            }
+
+            @Override
+            public void cancel() {
+                future.cancel(false);
+            }
+        };
+        synchronized (queued) {
+            if (inFlight >= maxInFlight) {
+                queued.add(queuedRequest);
+                return future;
+            }
+            inFlight++;
+        }
+        if (!queuedRequest.start()) {
+            release();
+        }
+        return future;
+    }
+
+    /**
+     * Pass a finished request's slot to the next queued request, or free it.
+     */
+    private void release() {
+        while (true) {
+            final Queued next;
+            synchronized (queued) {
+                next = queued.poll();
+                if (next == null) {
+                    inFlight--;
+                    return;
+                }
+            }
+            if (next.start()) return;
+        }
+    }
+
+    private <R> CompletableFuture<R> await(final CompletableFuture<R> resource, final String id, final String description) {
+        final CompletableFuture<R> future = new CompletableFuture<>();
+        resource.whenComplete(new BiConsumer<R, Throwable>() {
+            @Override
+            public void accept(R value, Throwable error) {
+                if (error != null) {
+                    future.completeExceptionally(error);
+                } else {
+                    future.complete(value);
+                }
+            }
+        });
+        final ScheduledFuture<?> timeout = scheduler.schedule(new Runnable() {
+            @Override
+            public void run() {
+                if (future.completeExceptionally(new TimeoutException(description + " not in expected state after " + waitTimeout + "ms"))) {
+                    waiter.deregister(id, resource);
+                }
+            }
+        }, waitTimeout, TimeUnit.MILLISECONDS);
+        future.whenComplete(new BiConsumer<R, Throwable>() {
+            @Override
+            public void accept(R value, Throwable error) {
+                timeout.cancel(false);
+            }
+        });
+        startPolling();
+        return future;
+    }
+
+    private synchronized void startPolling() {
+        if (polling == null) {
+            polling = scheduler.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        waiter.pollOnce();
+                    } catch (Exception e) {
+                        print("Error polling resources: " + e);
+                    }
+                }
+            }, 0, pollInterval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private static <R> Function<R, Void> done(final String message) {
+        return new Function<R, Void>() {
+            @Override
+            public Void apply(R result) {
+                print(message);
+                return null;
+            }
+        };
+    }
+}
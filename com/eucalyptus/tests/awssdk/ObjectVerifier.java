@@ -0,0 +1,202 @@
+package com.eucalyptus.tests.awssdk;
+
+import static com.eucalyptus.tests.awssdk.N4j.print;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.StandardOpenOption;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.S3Object;
+
+/**
+ * <p>
+ * Verifies object content as it is downloaded, without saving it.
+ * </p>
+ *
+ * <p>
+ * The expected content is either a local file, which is memory mapped, or a {@link Payload} which is regenerated. Downloaded content is
+ * read into a buffer a chunk at a time and compared with the same range of the expected content, so objects of any size can be checked
+ * without a full download to disk.
+ * </p>
+ *
+ * <p>
+ * A verifier reuses its buffers and must only be used by one thread at a time.
+ * </p>
+ */
+class ObjectVerifier implements Closeable {
+
+  private static final int CHUNK_SIZE = 256 * 1024;
+  private static final long MAP_WINDOW = 64 * 1024 * 1024;
+
+  private final Reference reference;
+  private final ByteBuffer received = ByteBuffer.allocateDirect(CHUNK_SIZE);
+
+  private ObjectVerifier(Reference reference) {
+    this.reference = reference;
+  }
+
+  /**
+   * @return a verifier for objects expected to match the given file
+   */
+  static ObjectVerifier forFile(File file) throws IOException {
+    return new ObjectVerifier(new FileReference(file));
+  }
+
+  /**
+   * @return a verifier for objects expected to match the given payload
+   */
+  static ObjectVerifier forPayload(Payload payload) {
+    return new ObjectVerifier(new PayloadReference(payload));
+  }
+
+  /**
+   * Get the whole object and assert that it matches.
+   */
+  void verifyObject(String account, AmazonS3 s3, String bucket, String key) throws IOException {
+    print(account + ": Getting object " + key + " to verify " + reference.getSize() + " bytes");
+    final S3Object s3Object = s3.getObject(new GetObjectRequest(bucket, key));
+    verify(key, s3Object, 0, reference.getSize());
+  }
+
+  /**
+   * Get a range of the object and assert that it matches the same range of the expected content.
+   */
+  void verifyRange(String account, AmazonS3 s3, String bucket, String key, long offset, long length) throws IOException {
+    print(account + ": Getting object " + key + " with range " + offset + "-" + (offset + length - 1));
+    final S3Object s3Object = s3.getObject(new GetObjectRequest(bucket, key).withRange(offset, offset + length - 1));
+    verify(key, s3Object, offset, length);
+  }
+
+  private void verify(String key, S3Object s3Object, long offset, long length) throws IOException {
+    try (InputStream in = s3Object.getObjectContent()) {
+      final long contentLength = s3Object.getObjectMetadata().getContentLength();
+      assertTrue("Expected " + length + " bytes but got " + contentLength + " bytes", contentLength == length);
+      final long mismatch = compare(in, offset, length);
+      assertTrue("Mismatch in source and fetched data for " + key + " at byte " + mismatch, mismatch < 0);
+    }
+  }
+
+  /**
+   * Compare a stream with a range of the expected content.
+   *
+   * @return -1 if the stream matches, else the offset of the first difference (or of the end of the shorter of the two)
+   */
+  long compare(InputStream in, long offset, long length) throws IOException {
+    if (offset + length > reference.getSize()) {
+      return reference.getSize();
+    }
+    final ReadableByteChannel channel = Channels.newChannel(in);
+    long position = offset;
+    final long end = offset + length;
+    while (position < end) {
+      received.clear();
+      received.limit((int) Math.min(received.capacity(), end - position));
+      while (received.hasRemaining()) {
+        if (channel.read(received) < 0) {
+          break;
+        }
+      }
+      received.flip();
+      if (!received.hasRemaining()) {
+        return position;
+      }
+      final ByteBuffer expected = reference.get(position, received.remaining());
+      if (!received.equals(expected)) {
+        for (int i = 0; ; i++) {
+          if (received.get(received.position() + i) != expected.get(expected.position() + i)) {
+            return position + i;
+          }
+        }
+      }
+      position += received.remaining();
+    }
+    received.clear();
+    received.limit(1);
+    return channel.read(received) > 0 ? end : -1;
+  }
+
+  @Override
+  public void close() throws IOException {
+    reference.close();
+  }
+
+  private interface Reference extends Closeable {
+    long getSize();
+
+    /**
+     * @return a buffer with length bytes of expected content starting at position between its position and limit
+     */
+    ByteBuffer get(long position, int length) throws IOException;
+  }
+
+  private static class FileReference implements Reference {
+    private final FileChannel channel;
+    private final long size;
+    private MappedByteBuffer window;
+    private long windowStart;
+
+    private FileReference(File file) throws IOException {
+      this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+      this.size = channel.size();
+    }
+
+    @Override
+    public long getSize() {
+      return size;
+    }
+
+    @Override
+    public ByteBuffer get(long position, int length) throws IOException {
+      if (window == null || position < windowStart || position + length > windowStart + window.capacity()) {
+        windowStart = position;
+        window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(Math.max(MAP_WINDOW, length), size - position));
+      }
+      final ByteBuffer buffer = window.duplicate();
+      buffer.position((int) (position - windowStart));
+      buffer.limit(buffer.position() + length);
+      return buffer;
+    }
+
+    @Override
+    public void close() throws IOException {
+      window = null;
+      channel.close();
+    }
+  }
+
+  private static class PayloadReference implements Reference {
+    private final Payload payload;
+    private final ByteBuffer buffer = ByteBuffer.allocate(CHUNK_SIZE);
+
+    private PayloadReference(Payload payload) {
+      this.payload = payload;
+    }
+
+    @Override
+    public long getSize() {
+      return payload.getSize();
+    }
+
+    @Override
+    public ByteBuffer get(long position, int length) {
+      payload.fill(position, buffer.array(), 0, length);
+      buffer.clear();
+      buffer.limit(length);
+      return buffer;
+    }
+
+    @Override
+    public void close() {
+    }
+  }
+}
@@ -0,0 +1,222 @@
+package com.eucalyptus.tests.awssdk;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import static com.eucalyptus.tests.awssdk.N4j.print;
+
+/**
+ * Issues requests at a constant arrival rate, independent of how quickly
+ * earlier requests complete.
+ *
+ * A closed loop driver only sends its next request when the last one
+ * completes, so when the service slows down fewer requests are sent and the
+ * queueing delay is never measured (coordinated omission). Here each request
+ * has an intended start time on a fixed schedule and its latency is measured
+ * from that time, so time spent waiting behind slow requests is included.
+ * The time from the actual start is also recorded as the service time.
+ *
+ * <pre>
+ * OpenLoopDriver.Result result = new OpenLoopDriver("RunInstances", new OpenLoopDriver.Operation() {
+ *     public void execute(long sequence) { runInstances(IMAGE_ID, null, INSTANCE_TYPE, null, 1, 1); }
+ * }).withRate(50, TimeUnit.MINUTES).withDuration(10, TimeUnit.MINUTES).run();
+ * </pre>
+ *
+ * Requests run on client threads from {@link LoadExecutors}, one per
+ * outstanding request up to the concurrency limit. Requests that would take
+ * the number outstanding over maxOutstanding are dropped rather than queued
+ * without bound. A dropped request has no latency to record, leaving it out
+ * would hide the slow period that caused it, so drops are counted as latency
+ * errors and the drop rate is reported with the percentiles.
+ */
+class OpenLoopDriver {
+    private final String name;
+    private final Operation operation;
+    private double ratePerSecond = 10;
+    private long duration = TimeUnit.MINUTES.toNanos(1);
+    private int concurrency = 256;
+    private int maxOutstanding = 10000;
+
+    /**
+     * A request to issue.
+     */
+    interface Operation {
+        /**
+         * @param sequence the number of the request, from 0
+         */
+        void execute(long sequence) throws Exception;
+    }
+
+    OpenLoopDriver(String name, Operation operation) {
+        this.name = name;
+        this.operation = operation;
+    }
+
+    /**
+     * @param count the number of requests to start each unit of time, e.g. 50 per minute
+     */
+    OpenLoopDriver withRate(double count, TimeUnit per) {
+        this.ratePerSecond = count * TimeUnit.SECONDS.toNanos(1) / per.toNanos(1);
+        return this;
+    }
+
+    OpenLoopDriver withDuration(long duration, TimeUnit unit) {
+        this.duration = unit.toNanos(duration);
+        return this;
+    }
+
+    /**
+     * @param concurrency the maximum number of requests executing at once, ignored with virtual threads
+     */
+    OpenLoopDriver withConcurrency(int concurrency) {
+        this.concurrency = Math.max(1, concurrency);
+        return this;
+    }
+
+    /**
+     * @param maxOutstanding the maximum number of requests queued or executing before new requests are dropped
+     */
+    OpenLoopDriver withMaxOutstanding(int maxOutstanding) {
+        this.maxOutstanding = Math.max(1, maxOutstanding);
+        return this;
+    }
+
+    /**
+     * Issue requests on schedule for the duration, then wait for outstanding requests and print a report.
+     */
+    Result run() throws InterruptedException {
+        final double interval = TimeUnit.SECONDS.toNanos(1) / ratePerSecond;
+        final long scheduled = (long) (duration / interval);
+        final LatencyStats latency = new LatencyStats(name);
+        final LatencyStats serviceTime = new LatencyStats(name + " service time");
+        final AtomicLong outstanding = new AtomicLong();
+        long dropped = 0;
+        print(String.format("Running %s at %.2f/s for %dms on %s", name, ratePerSecond, TimeUnit.NANOSECONDS.toMillis(duration),
+                LoadExecutors.describe()));
+
+        final ExecutorService executor = LoadExecutors.newClientExecutor(concurrency);
+        final long start = System.nanoTime();
+        try {
+            for (long i = 0; i < scheduled; i++) {
+                final long intended = start + (long) (i * interval);
+                long wait;
+                while ((wait = intended - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                if (outstanding.get() >= maxOutstanding) {
+                    dropped++;
+                    latency.recordError();
+                    continue;
+                }
+                outstanding.incrementAndGet();
+                final long sequence = i;
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        final long actual = System.nanoTime();
+                        try {
+                            operation.execute(sequence);
+                            final long end = System.nanoTime();
+                            latency.record(end - intended);
+                            serviceTime.record(end - actual);
+                        } catch (Exception e) {
+                            latency.recordError();
+                            serviceTime.recordError();
+                        } finally {
+                            outstanding.decrementAndGet();
+                        }
+                    }
+                });
+            }
+        } finally {
+            executor.shutdown();
+            while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                print("Waiting for " + outstanding.get() + " outstanding " + name + " requests");
+            }
+        }
+
+        final Result result = new Result(ratePerSecond, scheduled, dropped, latency, serviceTime,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        print(result.toString());
+        return result;
+    }
+
+    static class Result {
+        private final double rate;
+        private final long scheduled;
+        private final long dropped;
+        private final LatencyStats latency;
+        private final LatencyStats serviceTime;
+        private final long elapsed;
+
+        private Result(double rate, long scheduled, long dropped, LatencyStats latency, LatencyStats serviceTime, long elapsed) {
+            this.rate = rate;
+            this.scheduled = scheduled;
+            this.dropped = dropped;
+            this.latency = latency;
+            this.serviceTime = serviceTime;
+            this.elapsed = elapsed;
+        }
+
+        /**
+         * @return the target arrival rate per second
+         */
+        double getRate() {
+            return rate;
+        }
+
+        long getScheduled() {
+            return scheduled;
+        }
+
+        /**
+         * @return the number of requests not sent as too many were outstanding
+         */
+        long getDropped() {
+            return dropped;
+        }
+
+        /**
+         * @return the fraction of scheduled requests dropped, from 0 to 1
+         */
+        double getDropRate() {
+            return scheduled > 0 ? (double) dropped / scheduled : 0;
+        }
+
+        /**
+         * @return latency measured from the intended start of each request, dropped requests are counted as errors
+         */
+        LatencyStats getLatency() {
+            return latency;
+        }
+
+        /**
+         * @return latency measured from the actual start of each request
+         */
+        LatencyStats getServiceTime() {
+            return serviceTime;
+        }
+
+        /**
+         * @return the time until all requests completed in ms
+         */
+        long getElapsed() {
+            return elapsed;
+        }
+
+        /**
+         * @return completed requests per second
+         */
+        double getThroughput() {
+            return latency.getThroughput(elapsed);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("target %.2f/s, %d scheduled, %d dropped (%.2f%%)%n  %s%n  %s", rate, scheduled, dropped,
+                    getDropRate() * 100, latency.summary(elapsed), serviceTime.summary(elapsed));
+        }
+    }
+}
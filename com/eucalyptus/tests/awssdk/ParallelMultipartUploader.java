@@ -0,0 +1,304 @@
+package com.eucalyptus.tests.awssdk;
+
+import static com.eucalyptus.tests.awssdk.N4j.print;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadResult;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.PartETag;
+import com.amazonaws.services.s3.model.UploadPartRequest;
+
+/**
+ * <p>
+ * Uploads an object as a multipart upload with several parts in flight at once.
+ * </p>
+ *
+ * <p>
+ * The part size is the configured minimum (5MB by default) unless the object is too large for that to stay within the 10000 part limit, in
+ * which case it is raised to the smallest whole number of megabytes that fits. Parts read from a stream are buffered in memory, the memory
+ * budget limits how many such buffers exist at once and so also limits the number of parts in flight. Parts uploaded from a file are read by
+ * the SDK from the file at their offset.
+ * </p>
+ *
+ * <pre>
+ * ParallelMultipartUploader.Result result = new ParallelMultipartUploader(s3).withConcurrency(8).upload(bucket, key, file);
+ * </pre>
+ */
+class ParallelMultipartUploader {
+
+  static final long MIN_PART_SIZE = 5 * 1024 * 1024;
+  static final int MAX_PARTS = 10000;
+
+  private final AmazonS3 s3;
+  private int concurrency = 4;
+  private long minPartSize = MIN_PART_SIZE;
+  private long memoryBudget = 256 * 1024 * 1024;
+
+  ParallelMultipartUploader(AmazonS3 s3) {
+    this.s3 = s3;
+  }
+
+  /**
+   * @param concurrency the maximum number of parts to upload at once
+   */
+  ParallelMultipartUploader withConcurrency(int concurrency) {
+    this.concurrency = Math.max(1, concurrency);
+    return this;
+  }
+
+  /**
+   * @param minPartSize the part size to use unless the object needs larger parts
+   */
+  ParallelMultipartUploader withMinPartSize(long minPartSize) {
+    this.minPartSize = minPartSize;
+    return this;
+  }
+
+  /**
+   * @param memoryBudget the maximum number of bytes to buffer for parts read from a stream
+   */
+  ParallelMultipartUploader withMemoryBudget(long memoryBudget) {
+    this.memoryBudget = memoryBudget;
+    return this;
+  }
+
+  /**
+   * @return the part size that will be used for an object of the given size
+   */
+  long partSize(long objectSize) {
+    final long mb = 1024 * 1024;
+    final long required = (objectSize + MAX_PARTS - 1) / MAX_PARTS;
+    if (required <= minPartSize) {
+      return minPartSize;
+    }
+    return ((required + mb - 1) / mb) * mb;
+  }
+
+  /**
+   * Upload the contents of a file.
+   */
+  Result upload(final String bucket, final String key, final File file) throws Exception {
+    final long size = file.length();
+    final long partSize = partSize(size);
+    return upload(bucket, key, size, partSize, concurrency, new PartSource() {
+      @Override
+      public UploadPartRequest next(int partNumber, long offset, long length) {
+        return new UploadPartRequest().withFile(file).withFileOffset(offset).withPartSize(length);
+      }
+
+      @Override
+      public void release(int partNumber, long length) {
+      }
+    });
+  }
+
+  /**
+   * Upload size bytes read from the given stream. The stream is read by the calling thread one part at a time and is not closed.
+   */
+  Result upload(final String bucket, final String key, final InputStream in, final long size) throws Exception {
+    final long partSize = partSize(size);
+    if (partSize > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Part size " + partSize + " too large to buffer");
+    }
+    if (Math.min(partSize, size) > memoryBudget) {
+      throw new IllegalArgumentException("Memory budget of " + memoryBudget + " bytes cannot buffer a part of " + partSize + " bytes");
+    }
+    final int buffers = (int) Math.max(1, Math.min(concurrency, memoryBudget / partSize));
+    if (buffers < concurrency) {
+      print("Memory budget of " + memoryBudget + " bytes limits upload of " + key + " to " + buffers + " parts in flight");
+    }
+    final Semaphore budget = new Semaphore(buffers);
+    return upload(bucket, key, size, partSize, buffers, new PartSource() {
+      @Override
+      public UploadPartRequest next(int partNumber, long offset, long length) throws IOException, InterruptedException {
+        budget.acquire();
+        try {
+          final byte[] buffer = new byte[(int) length];
+          int read = 0;
+          while (read < buffer.length) {
+            final int count = in.read(buffer, read, buffer.length - read);
+            if (count < 0) {
+              throw new IOException("Stream ended after " + (offset + read) + " of " + size + " bytes");
+            }
+            read += count;
+          }
+          return new UploadPartRequest().withInputStream(new ByteArrayInputStream(buffer)).withPartSize(length);
+        } catch (IOException | RuntimeException e) {
+          budget.release();
+          throw e;
+        }
+      }
+
+      @Override
+      public void release(int partNumber, long length) {
+        budget.release();
+      }
+    });
+  }
+
+  private Result upload(final String bucket, final String key, final long size, final long partSize, final int threads,
+      final PartSource source) throws Exception {
+    final int numberOfParts = (int) Math.max(1, (size + partSize - 1) / partSize);
+    if (numberOfParts > MAX_PARTS) {
+      throw new IllegalArgumentException("Object of " + size + " bytes needs " + numberOfParts + " parts");
+    }
+    print("Uploading " + size + " bytes to " + bucket + "/" + key + " as " + numberOfParts + " parts of " + partSize + " bytes, " + threads
+        + " at a time");
+    final long startTime = System.currentTimeMillis();
+    final String uploadId = s3.initiateMultipartUpload(new InitiateMultipartUploadRequest(bucket, key)).getUploadId();
+    final LatencyStats partStats = new LatencyStats("UploadPart");
+    final ExecutorService executor = Executors.newFixedThreadPool(threads);
+    final List<Future<PartETag>> futures = new ArrayList<>();
+    final AtomicBoolean failed = new AtomicBoolean();
+    try {
+      for (int partNumber = 1; partNumber <= numberOfParts; partNumber++) {
+        final long offset = (partNumber - 1) * partSize;
+        final long length = Math.min(partSize, size - offset);
+        final int number = partNumber;
+        final UploadPartRequest request = source.next(number, offset, length)
+            .withBucketName(bucket).withKey(key).withUploadId(uploadId).withPartNumber(number);
+        futures.add(executor.submit(new Callable<PartETag>() {
+          @Override
+          public PartETag call() throws Exception {
+            final long start = System.nanoTime();
+            try {
+              final PartETag etag = s3.uploadPart(request).getPartETag();
+              partStats.record(System.nanoTime() - start);
+              return etag;
+            } catch (Exception e) {
+              partStats.recordError();
+              failed.set(true);
+              throw e;
+            } finally {
+              source.release(number, length);
+            }
+          }
+        }));
+        if (failed.get()) {
+          break;
+        }
+      }
+      final List<PartETag> partETags = new ArrayList<>();
+      for (Future<PartETag> future : futures) {
+        partETags.add(future.get());
+      }
+      Collections.sort(partETags, new Comparator<PartETag>() {
+        @Override
+        public int compare(PartETag p1, PartETag p2) {
+          return Integer.compare(p1.getPartNumber(), p2.getPartNumber());
+        }
+      });
+      final CompleteMultipartUploadResult result =
+          s3.completeMultipartUpload(new CompleteMultipartUploadRequest(bucket, key, uploadId, partETags));
+      final Result uploadResult = new Result(uploadId, result.getETag(), size, partSize, partETags, partStats,
+          System.currentTimeMillis() - startTime);
+      print("Uploaded " + bucket + "/" + key + ": " + uploadResult);
+      return uploadResult;
+    } catch (Exception e) {
+      for (Future<PartETag> future : futures) {
+        future.cancel(true);
+      }
+      print("Aborting multipart upload " + uploadId + " for " + bucket + "/" + key + " due to " + e);
+      try {
+        s3.abortMultipartUpload(new AbortMultipartUploadRequest(bucket, key, uploadId));
+      } catch (Exception ae) {
+        print("Unable to abort multipart upload " + uploadId + ": " + ae);
+      }
+      if (e instanceof ExecutionException && e.getCause() instanceof Exception) {
+        throw (Exception) e.getCause();
+      }
+      throw e;
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private interface PartSource {
+    UploadPartRequest next(int partNumber, long offset, long length) throws IOException, InterruptedException;
+
+    void release(int partNumber, long length);
+  }
+
+  static class Result {
+    private final String uploadId;
+    private final String etag;
+    private final long size;
+    private final long partSize;
+    private final List<PartETag> partETags;
+    private final LatencyStats partStats;
+    private final long elapsed;
+
+    private Result(String uploadId, String etag, long size, long partSize, List<PartETag> partETags, LatencyStats partStats,
+        long elapsed) {
+      this.uploadId = uploadId;
+      this.etag = etag;
+      this.size = size;
+      this.partSize = partSize;
+      this.partETags = partETags;
+      this.partStats = partStats;
+      this.elapsed = elapsed;
+    }
+
+    String getUploadId() {
+      return uploadId;
+    }
+
+    String getETag() {
+      return etag;
+    }
+
+    long getSize() {
+      return size;
+    }
+
+    long getPartSize() {
+      return partSize;
+    }
+
+    List<PartETag> getPartETags() {
+      return partETags;
+    }
+
+    /**
+     * @return latency of the individual part uploads
+     */
+    LatencyStats getPartStats() {
+      return partStats;
+    }
+
+    long getElapsed() {
+      return elapsed;
+    }
+
+    /**
+     * @return upload throughput in MB/s
+     */
+    double getThroughput() {
+      return elapsed <= 0 ? 0 : (size / (1024.0 * 1024.0)) / (elapsed / 1000.0);
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%d bytes in %d parts, %dms, %.1f MB/s, part p50 %.2fms, part p99 %.2fms", size, partETags.size(), elapsed,
+          getThroughput(), partStats.getPercentile(50), partStats.getPercentile(99));
+    }
+  }
+}
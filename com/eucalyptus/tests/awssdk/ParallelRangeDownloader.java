@@ -0,0 +1,206 @@
+package com.eucalyptus.tests.awssdk;
+
+import static com.eucalyptus.tests.awssdk.N4j.print;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.S3Object;
+
+/**
+ * <p>
+ * Downloads an object to a file as byte ranges fetched concurrently.
+ * </p>
+ *
+ * <p>
+ * The file is preallocated to the object size and each range is written at its offset as it is read, so ranges can complete in any order.
+ * The result reports the aggregate throughput and the latency of the individual range requests.
+ * </p>
+ *
+ * <pre>
+ * ParallelRangeDownloader.Result result = new ParallelRangeDownloader(s3).withConcurrency(8).download(bucket, key, file);
+ * </pre>
+ */
+class ParallelRangeDownloader {
+
+  private static final int BUFFER_SIZE = 256 * 1024;
+
+  private final AmazonS3 s3;
+  private final ThreadLocal<ByteBuffer> buffers = new ThreadLocal<ByteBuffer>() {
+    @Override
+    protected ByteBuffer initialValue() {
+      return ByteBuffer.allocateDirect(BUFFER_SIZE);
+    }
+  };
+  private int concurrency = 4;
+  private long rangeSize = 8 * 1024 * 1024;
+
+  ParallelRangeDownloader(AmazonS3 s3) {
+    this.s3 = s3;
+  }
+
+  /**
+   * @param concurrency the maximum number of ranges to fetch at once
+   */
+  ParallelRangeDownloader withConcurrency(int concurrency) {
+    this.concurrency = Math.max(1, concurrency);
+    return this;
+  }
+
+  /**
+   * @param rangeSize the number of bytes to fetch with each request
+   */
+  ParallelRangeDownloader withRangeSize(long rangeSize) {
+    this.rangeSize = Math.max(1, rangeSize);
+    return this;
+  }
+
+  /**
+   * Download the object to the given file, replacing any existing content.
+   */
+  Result download(final String bucket, final String key, final File file) throws Exception {
+    final long startTime = System.currentTimeMillis();
+    final ObjectMetadata metadata = s3.getObjectMetadata(bucket, key);
+    final long size = metadata.getContentLength();
+    final int ranges = (int) ((size + rangeSize - 1) / rangeSize);
+    print("Downloading " + size + " bytes from " + bucket + "/" + key + " as " + ranges + " ranges of " + rangeSize + " bytes, "
+        + concurrency + " at a time");
+    final LatencyStats rangeStats = new LatencyStats("GetObject range");
+    final ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+    final List<Future<Long>> futures = new ArrayList<>();
+    try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+      randomAccessFile.setLength(size);
+      final FileChannel channel = randomAccessFile.getChannel();
+      for (long offset = 0; offset < size; offset += rangeSize) {
+        final long start = offset;
+        final long end = Math.min(size, offset + rangeSize) - 1;
+        futures.add(executor.submit(new Callable<Long>() {
+          @Override
+          public Long call() throws Exception {
+            final long requestStart = System.nanoTime();
+            try {
+              final long written = fetch(bucket, key, start, end, channel);
+              rangeStats.record(System.nanoTime() - requestStart);
+              return written;
+            } catch (Exception e) {
+              rangeStats.recordError();
+              throw e;
+            }
+          }
+        }));
+      }
+      long total = 0;
+      for (Future<Long> future : futures) {
+        total += future.get();
+      }
+      if (total != size) {
+        throw new IOException("Downloaded " + total + " of " + size + " bytes for " + bucket + "/" + key);
+      }
+      channel.force(false);
+    } catch (ExecutionException e) {
+      for (Future<Long> future : futures) {
+        future.cancel(true);
+      }
+      if (e.getCause() instanceof Exception) {
+        throw (Exception) e.getCause();
+      }
+      throw e;
+    } finally {
+      executor.shutdownNow();
+    }
+    final Result result = new Result(metadata, size, ranges, rangeStats, System.currentTimeMillis() - startTime);
+    print("Downloaded " + bucket + "/" + key + ": " + result);
+    return result;
+  }
+
+  private long fetch(String bucket, String key, long start, long end, FileChannel channel) throws IOException {
+    final S3Object object = s3.getObject(new GetObjectRequest(bucket, key).withRange(start, end));
+    final ByteBuffer buffer = buffers.get();
+    buffer.clear();
+    long position = start;
+    try (InputStream in = object.getObjectContent()) {
+      final ReadableByteChannel source = Channels.newChannel(in);
+      while (source.read(buffer) >= 0 || buffer.position() > 0) {
+        buffer.flip();
+        // check before writing so extra bytes never land in the next range's part of the file
+        if (buffer.remaining() > end + 1 - position) {
+          throw new IOException("Range " + start + "-" + end + " of " + bucket + "/" + key + " returned more than " + (end - start + 1)
+              + " bytes");
+        }
+        while (buffer.hasRemaining()) {
+          position += channel.write(buffer, position);
+        }
+        buffer.clear();
+      }
+    }
+    return position - start;
+  }
+
+  static class Result {
+    private final ObjectMetadata metadata;
+    private final long size;
+    private final int ranges;
+    private final LatencyStats rangeStats;
+    private final long elapsed;
+
+    private Result(ObjectMetadata metadata, long size, int ranges, LatencyStats rangeStats, long elapsed) {
+      this.metadata = metadata;
+      this.size = size;
+      this.ranges = ranges;
+      this.rangeStats = rangeStats;
+      this.elapsed = elapsed;
+    }
+
+    ObjectMetadata getMetadata() {
+      return metadata;
+    }
+
+    long getSize() {
+      return size;
+    }
+
+    int getRanges() {
+      return ranges;
+    }
+
+    /**
+     * @return latency of the individual range requests
+     */
+    LatencyStats getRangeStats() {
+      return rangeStats;
+    }
+
+    long getElapsed() {
+      return elapsed;
+    }
+
+    /**
+     * @return download throughput in MB/s
+     */
+    double getThroughput() {
+      return elapsed <= 0 ? 0 : (size / (1024.0 * 1024.0)) / (elapsed / 1000.0);
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%d bytes in %d ranges, %dms, %.1f MB/s, range p50 %.2fms, range p99 %.2fms", size, ranges, elapsed,
+          getThroughput(), rangeStats.getPercentile(50), rangeStats.getPercentile(99));
+    }
+  }
+}
@@ -0,0 +1,260 @@
+package com.eucalyptus.tests.awssdk;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ThreadLocalRandom;
+
+import com.amazonaws.util.BinaryUtils;
+
+/**
+ * <p>
+ * Deterministic pseudo random object content of any size.
+ * </p>
+ *
+ * <p>
+ * The byte at each position is a function of the seed and the position only, so any range of the content can be streamed or regenerated
+ * without holding the object in memory or on disk. The same seed and size always give the same content.
+ * </p>
+ *
+ * <pre>
+ * Payload payload = new Payload(seed, 2L * 1024 * 1024 * 1024);
+ * s3.putObject(bucket, key, payload.stream(), metadata);
+ * assertTrue(payload.getMd5().equals(...));
+ * </pre>
+ */
+class Payload {
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private final long seed;
+  private final long size;
+  private String md5;
+
+  Payload(long seed, long size) {
+    if (size < 0) {
+      throw new IllegalArgumentException("Invalid size " + size);
+    }
+    this.seed = seed;
+    this.size = size;
+  }
+
+  /**
+   * @return a payload with a random seed
+   */
+  static Payload random(long size) {
+    return new Payload(ThreadLocalRandom.current().nextLong(), size);
+  }
+
+  long getSeed() {
+    return seed;
+  }
+
+  long getSize() {
+    return size;
+  }
+
+  /**
+   * @return a stream of the whole payload
+   */
+  PayloadInputStream stream() {
+    return stream(0, size);
+  }
+
+  /**
+   * @return a stream of length bytes of the payload starting at offset
+   */
+  PayloadInputStream stream(long offset, long length) {
+    if (offset < 0 || length < 0 || offset + length > size) {
+      throw new IllegalArgumentException("Range " + offset + "+" + length + " outside payload of " + size + " bytes");
+    }
+    return new PayloadInputStream(this, offset, offset + length);
+  }
+
+  /**
+   * Copy length bytes of the payload starting at position into the array.
+   */
+  void fill(long position, byte[] bytes, int offset, int length) {
+    long block = position >>> 3;
+    int shift = (int) (position & 7) * 8;
+    long value = block(block);
+    for (int i = 0; i < length; i++) {
+      bytes[offset + i] = (byte) (value >>> shift);
+      shift += 8;
+      if (shift == 64) {
+        shift = 0;
+        value = block(++block);
+      }
+    }
+  }
+
+  /**
+   * Copy the payload starting at position into the remaining space in the buffer.
+   */
+  void fill(long position, ByteBuffer buffer) {
+    long block = position >>> 3;
+    int shift = (int) (position & 7) * 8;
+    long value = block(block);
+    while (buffer.hasRemaining()) {
+      buffer.put((byte) (value >>> shift));
+      shift += 8;
+      if (shift == 64) {
+        shift = 0;
+        value = block(++block);
+      }
+    }
+  }
+
+  /**
+   * @return the hex MD5 of the whole payload
+   */
+  synchronized String getMd5() throws IOException {
+    if (md5 == null) {
+      final PayloadInputStream in = stream();
+      drain(in);
+      md5 = in.getMd5();
+    }
+    return md5;
+  }
+
+  /**
+   * The ETag S3 gives an object uploaded as a multipart upload: the MD5 of the part MD5s followed by the number of parts.
+   *
+   * @param partSize the size of each part but the last
+   * @return the expected multipart upload ETag
+   */
+  String getETag(long partSize) throws IOException {
+    final MessageDigest digest = md5Digest();
+    int parts = 0;
+    for (long offset = 0; offset < size || parts == 0; offset += partSize) {
+      final PayloadInputStream in = stream(offset, Math.min(partSize, size - offset));
+      drain(in);
+      digest.update(in.getMd5Bytes());
+      parts++;
+    }
+    return BinaryUtils.toHex(digest.digest()) + "-" + parts;
+  }
+
+  @Override
+  public String toString() {
+    return "Payload(seed " + seed + ", " + size + " bytes)";
+  }
+
+  static MessageDigest md5Digest() {
+    try {
+      return MessageDigest.getInstance("MD5");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static void drain(InputStream in) throws IOException {
+    final byte[] buffer = new byte[BUFFER_SIZE];
+    while (in.read(buffer) >= 0) {
+    }
+  }
+
+  // SplitMix64 of the seed and block index
+  private long block(long index) {
+    long z = seed + (index + 1) * 0x9E3779B97F4A7C15L;
+    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    return z ^ (z >>> 31);
+  }
+
+  /**
+   * Stream of a range of a payload that computes the MD5 of the range as it is read.
+   *
+   * Mark and reset are supported so the SDK can retry requests, bytes read again after a reset are not digested twice.
+   */
+  static class PayloadInputStream extends InputStream {
+    private final Payload payload;
+    private final long start;
+    private final long end;
+    private final MessageDigest digest = md5Digest();
+    private long position;
+    private long digested;
+    private long mark;
+    private byte[] md5;
+
+    private PayloadInputStream(Payload payload, long start, long end) {
+      this.payload = payload;
+      this.start = start;
+      this.end = end;
+      this.position = start;
+      this.digested = start;
+      this.mark = start;
+    }
+
+    @Override
+    public int read() throws IOException {
+      final byte[] single = new byte[1];
+      return read(single, 0, 1) < 0 ? -1 : single[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+      if (length == 0) {
+        return 0;
+      }
+      if (position >= end) {
+        return -1;
+      }
+      final int count = (int) Math.min(length, end - position);
+      payload.fill(position, bytes, offset, count);
+      if (position + count > digested) {
+        final int skip = (int) (digested - position);
+        digest.update(bytes, offset + skip, count - skip);
+        digested = position + count;
+      }
+      position += count;
+      return count;
+    }
+
+    @Override
+    public int available() {
+      return (int) Math.min(Integer.MAX_VALUE, end - position);
+    }
+
+    @Override
+    public boolean markSupported() {
+      return true;
+    }
+
+    @Override
+    public synchronized void mark(int readlimit) {
+      mark = position;
+    }
+
+    @Override
+    public synchronized void reset() {
+      position = mark;
+    }
+
+    /**
+     * @return the number of bytes of the range read so far
+     */
+    long getPosition() {
+      return position - start;
+    }
+
+    /**
+     * @return the hex MD5 of the range, which must have been read to the end
+     */
+    String getMd5() {
+      return BinaryUtils.toHex(getMd5Bytes());
+    }
+
+    byte[] getMd5Bytes() {
+      if (md5 == null) {
+        if (digested < end) {
+          throw new IllegalStateException("Stream not read to end, at " + (digested - start) + " of " + (end - start) + " bytes");
+        }
+        md5 = digest.digest();
+      }
+      return md5;
+    }
+  }
+}
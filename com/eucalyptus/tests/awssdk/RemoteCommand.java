@@ -0,0 +1,109 @@
+package com.eucalyptus.tests.awssdk;
+
+import com.jcraft.jsch.ChannelExec;
+import com.jcraft.jsch.JSchException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
+
+import static com.eucalyptus.tests.awssdk.N4j.print;
+
+/**
+ * Runs commands on a remote host over a pooled SSH session.
+ *
+ * Output is read with blocking reads so it is logged as it arrives and the
+ * command returns as soon as the remote side closes the channel.
+ */
+class RemoteCommand {
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final long CLOSE_TIMEOUT = TimeUnit.SECONDS.toMillis(30);
+
+    static class Result {
+        private final String command;
+        private final int exitStatus;
+        private final String output;
+        private final String error;
+        private final long elapsed;
+
+        private Result(String command, int exitStatus, String output, String error, long elapsed) {
+            this.command = command;
+            this.exitStatus = exitStatus;
+            this.output = output;
+            this.error = error;
+            this.elapsed = elapsed;
+        }
+
+        String getCommand() {
+            return command;
+        }
+
+        /**
+         * @return the exit status, or -1 if the remote side did not report one
+         */
+        int getExitStatus() {
+            return exitStatus;
+        }
+
+        String getOutput() {
+            return output;
+        }
+
+        String getError() {
+            return error;
+        }
+
+        /**
+         * @return time from opening the channel to the channel closing in ms
+         */
+        long getElapsed() {
+            return elapsed;
+        }
+
+        boolean isSuccess() {
+            return exitStatus == 0;
+        }
+    }
+
+    /**
+     * Run the command and wait for it to complete.
+     */
+    static Result run(String clcip, String user, String password, String command) throws JSchException, IOException {
+        final long startTime = System.currentTimeMillis();
+        final ChannelExec channel = SshSessionPool.exec(clcip, user, password, command);
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        final ByteArrayOutputStream error = new ByteArrayOutputStream();
+        final int exitStatus;
+        try {
+            channel.setErrStream(error, true);
+            final InputStream in = channel.getInputStream();
+            channel.connect();
+
+            // blocks until data arrives, returns -1 once the remote side is done
+            final byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) >= 0) {
+                output.write(buffer, 0, read);
+                print(new String(buffer, 0, read, UTF8));
+            }
+
+            // exit status arrives with the channel close, which may trail the end of output
+            final long closeStart = System.currentTimeMillis();
+            while (!channel.isClosed() && (System.currentTimeMillis() - closeStart) < CLOSE_TIMEOUT) {
+                try {
+                    Thread.sleep(10);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            exitStatus = channel.getExitStatus();
+        } finally {
+            channel.disconnect();
+        }
+        return new Result(command, exitStatus, new String(output.toByteArray(), UTF8),
+                new String(error.toByteArray(), UTF8), System.currentTimeMillis() - startTime);
+    }
+}
@@ -0,0 +1,216 @@
+package com.eucalyptus.tests.awssdk;
+
+import com.amazonaws.services.ec2.AmazonEC2;
+import com.amazonaws.services.ec2.model.*;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Waits on many EC2 resources of different types at once.
+ *
+ * Each poll cycle issues one Describe* call per resource type for all the
+ * resources still being waited on, and completes the future for each
+ * resource as it reaches one of its target states. The total wait is then
+ * that of the slowest resource rather than the sum for all resources.
+ *
+ * A resource that is no longer described is treated as being in the
+ * "terminated" or "deleted" state, whichever was requested.
+ */
+class ResourceWaiter {
+    private static final Set<String> GONE_STATES = new HashSet<>(Arrays.asList("terminated", "deleted"));
+
+    private final AmazonEC2 ec2;
+    private final Map<String, List<Pending<Instance>>> instances = new LinkedHashMap<>();
+    private final Map<String, List<Pending<Volume>>> volumes = new LinkedHashMap<>();
+    private final Map<String, List<Pending<Snapshot>>> snapshots = new LinkedHashMap<>();
+    private final Map<String, List<Pending<NetworkInterface>>> networkInterfaces = new LinkedHashMap<>();
+
+    private static class Pending<R> {
+        private final Set<String> states;
+        private final CompletableFuture<R> future = new CompletableFuture<>();
+
+        private Pending(String... states) {
+            this.states = new HashSet<>(Arrays.asList(states));
+        }
+    }
+
+    ResourceWaiter(AmazonEC2 ec2) {
+        this.ec2 = ec2;
+    }
+
+    synchronized CompletableFuture<Instance> instance(String instanceId, String... states) {
+        return register(instances, instanceId, states);
+    }
+
+    synchronized CompletableFuture<Volume> volume(String volumeId, String... states) {
+        return register(volumes, volumeId, states);
+    }
+
+    synchronized CompletableFuture<Snapshot> snapshot(String snapshotId, String... states) {
+        return register(snapshots, snapshotId, states);
+    }
+
+    synchronized CompletableFuture<NetworkInterface> networkInterface(String networkInterfaceId, String... statuses) {
+        return register(networkInterfaces, networkInterfaceId, statuses);
+    }
+
+    /**
+     * Stop waiting on a resource for the registration that returned the given
+     * future, e.g. when a caller's wait times out. Other registrations for the
+     * same resource are unaffected.
+     */
+    synchronized void deregister(String id, CompletableFuture<?> future) {
+        for (final Map<String, ? extends List<? extends Pending<?>>> pending : Arrays.asList(instances, volumes, snapshots, networkInterfaces)) {
+            final List<? extends Pending<?>> registrations = pending.get(id);
+            if (registrations != null) {
+                for (final Iterator<? extends Pending<?>> it = registrations.iterator(); it.hasNext(); ) {
+                    final Pending<?> registration = it.next();
+                    if (registration.future == future) {
+                        it.remove();
+                    }
+                }
+                if (registrations.isEmpty()) {
+                    pending.remove(id);
+                }
+            }
+        }
+    }
+
+    /**
+     * Poll until all registered resources reach a target state or the timeout
+     * expires. Futures for resources that did not reach a target state are
+     * left incomplete.
+     *
+     * @return true if all resources reached a target state
+     */
+    boolean await(long timeout, TimeUnit unit) {
+        final Waiter.Result<Boolean> result = Waiter.waitFor("resources", new Waiter.Poll<Boolean>() {
+            @Override
+            public Boolean poll() {
+                return pollOnce();
+            }
+        }).until(new Waiter.Condition<Boolean>() {
+            @Override
+            public boolean isSatisfied(Boolean done) {
+                return done;
+            }
+        }).withTimeout(timeout, unit).await();
+        if (!result.isSatisfied()) {
+            N4j.print("Resources not in expected state after " + result.getElapsed() + "ms: " + pendingIds());
+        }
+        return result.isSatisfied();
+    }
+
+    /**
+     * Run one poll cycle.
+     *
+     * @return true if there are no resources left to wait on
+     */
+    synchronized boolean pollOnce() {
+        if (!instances.isEmpty()) {
+            final Map<String, Instance> described = new HashMap<>();
+            for (final Reservation reservation : ec2.describeInstances(new DescribeInstancesRequest()
+                    .withFilters(idFilter("instance-id", instances))).getReservations()) {
+                for (final Instance instance : reservation.getInstances()) {
+                    described.put(instance.getInstanceId(), instance);
+                }
+            }
+            for (final Iterator<Map.Entry<String, List<Pending<Instance>>>> it = instances.entrySet().iterator(); it.hasNext(); ) {
+                final Map.Entry<String, List<Pending<Instance>>> entry = it.next();
+                final Instance instance = described.get(entry.getKey());
+                if (complete(entry.getValue(), instance, instance == null ? null : instance.getState().getName())) {
+                    it.remove();
+                }
+            }
+        }
+        if (!volumes.isEmpty()) {
+            final Map<String, Volume> described = new HashMap<>();
+            for (final Volume volume : ec2.describeVolumes(new DescribeVolumesRequest()
+                    .withFilters(idFilter("volume-id", volumes))).getVolumes()) {
+                described.put(volume.getVolumeId(), volume);
+            }
+            for (final Iterator<Map.Entry<String, List<Pending<Volume>>>> it = volumes.entrySet().iterator(); it.hasNext(); ) {
+                final Map.Entry<String, List<Pending<Volume>>> entry = it.next();
+                final Volume volume = described.get(entry.getKey());
+                if (complete(entry.getValue(), volume, volume == null ? null : volume.getState())) {
+                    it.remove();
+                }
+            }
+        }
+        if (!snapshots.isEmpty()) {
+            final Map<String, Snapshot> described = new HashMap<>();
+            for (final Snapshot snapshot : ec2.describeSnapshots(new DescribeSnapshotsRequest()
+                    .withFilters(idFilter("snapshot-id", snapshots))).getSnapshots()) {
+                described.put(snapshot.getSnapshotId(), snapshot);
+            }
+            for (final Iterator<Map.Entry<String, List<Pending<Snapshot>>>> it = snapshots.entrySet().iterator(); it.hasNext(); ) {
+                final Map.Entry<String, List<Pending<Snapshot>>> entry = it.next();
+                final Snapshot snapshot = described.get(entry.getKey());
+                if (complete(entry.getValue(), snapshot, snapshot == null ? null : snapshot.getState())) {
+                    it.remove();
+                }
+            }
+        }
+        if (!networkInterfaces.isEmpty()) {
+            final Map<String, NetworkInterface> described = new HashMap<>();
+            for (final NetworkInterface networkInterface : ec2.describeNetworkInterfaces(new DescribeNetworkInterfacesRequest()
+                    .withFilters(idFilter("network-interface-id", networkInterfaces))).getNetworkInterfaces()) {
+                described.put(networkInterface.getNetworkInterfaceId(), networkInterface);
+            }
+            for (final Iterator<Map.Entry<String, List<Pending<NetworkInterface>>>> it = networkInterfaces.entrySet().iterator(); it.hasNext(); ) {
+                final Map.Entry<String, List<Pending<NetworkInterface>>> entry = it.next();
+                final NetworkInterface networkInterface = described.get(entry.getKey());
+                if (complete(entry.getValue(), networkInterface, networkInterface == null ? null : networkInterface.getStatus())) {
+                    it.remove();
+                }
+            }
+        }
+        return instances.isEmpty() && volumes.isEmpty() && snapshots.isEmpty() && networkInterfaces.isEmpty();
+    }
+
+    private synchronized List<String> pendingIds() {
+        final List<String> ids = new ArrayList<>();
+        ids.addAll(instances.keySet());
+        ids.addAll(volumes.keySet());
+        ids.addAll(snapshots.keySet());
+        ids.addAll(networkInterfaces.keySet());
+        return ids;
+    }
+
+    private static <R> CompletableFuture<R> register(Map<String, List<Pending<R>>> pending, String id, String... states) {
+        List<Pending<R>> registrations = pending.get(id);
+        if (registrations == null) {
+            registrations = new ArrayList<>();
+            pending.put(id, registrations);
+        }
+        final Pending<R> resource = new Pending<>(states);
+        registrations.add(resource);
+        return resource.future;
+    }
+
+    /**
+     * Complete each registration for a resource whose target states include
+     * the resource's current state.
+     *
+     * @return true if no registrations are left for the resource
+     */
+    private static <R> boolean complete(List<Pending<R>> registrations, R resource, String state) {
+        for (final Iterator<Pending<R>> it = registrations.iterator(); it.hasNext(); ) {
+            final Pending<R> pending = it.next();
+            if (resource == null && !Collections.disjoint(pending.states, GONE_STATES)) {
+                pending.future.complete(null);
+                it.remove();
+            } else if (resource != null && pending.states.contains(state)) {
+                pending.future.complete(resource);
+                it.remove();
+            }
+        }
+        return registrations.isEmpty();
+    }
+
+    private static Filter idFilter(String name, Map<String, ?> pending) {
+        return new Filter().withName(name).withValues(pending.keySet());
+    }
+}
@@ -2,7 +2,6 @@ package com.eucalyptus.tests.awssdk;
 
 import static com.eucalyptus.tests.awssdk.N4j.assertThat;
 import static com.eucalyptus.tests.awssdk.N4j.eucaUUID;
-import static com.eucalyptus.tests.awssdk.N4j.initS3ClientWithNewAccount;
 import static com.eucalyptus.tests.awssdk.N4j.print;
 import static com.eucalyptus.tests.awssdk.N4j.testInfo;
 import static org.testng.AssertJUnit.assertTrue;
@@ -49,6 +48,7 @@ public class S3CopyObjectTests {
   private static final File fileToPut = new File("test.dat");
   private static AmazonS3 s3ClientA = null;
   private static AmazonS3 s3ClientB = null;
+  private static List<AccountPool.Account> accounts = null;
   private static String accountA = null;
   private static String accountB = null;
   private static String ownerNameA = null;
@@ -62,10 +62,11 @@ public class S3CopyObjectTests {
     print("### PRE SUITE SETUP - " + this.getClass().getSimpleName());
 
     try {
-      accountA = this.getClass().getSimpleName().toLowerCase() + "a";
-      accountB = this.getClass().getSimpleName().toLowerCase() + "b";
-      s3ClientA = initS3ClientWithNewAccount(accountA, "admin");
-      s3ClientB = initS3ClientWithNewAccount(accountB, "admin");
+      accounts = AccountPool.acquire(2);
+      accountA = accounts.get(0).getName();
+      accountB = accounts.get(1).getName();
+      s3ClientA = accounts.get(0).getS3();
+      s3ClientB = accounts.get(1).getS3();
     } catch (Exception e) {
       try {
         teardown();
@@ -102,8 +103,8 @@ public class S3CopyObjectTests {
   @AfterClass
   public void teardown() throws Exception {
     print("### POST SUITE CLEANUP - " + this.getClass().getSimpleName());
-    N4j.deleteAccount(accountA);
-    N4j.deleteAccount(accountB);
+    AccountPool.release(accounts);
+    accounts = null;
     s3ClientA = null;
     s3ClientB = null;
   }
@@ -9,8 +9,6 @@ import static org.testng.AssertJUnit.assertTrue;
 
 import java.io.File;
 import java.io.FileInputStream;
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -63,7 +61,7 @@ import com.amazonaws.util.Md5Utils;
 public class S3ListObjectsTests {
 
   private static String bucketName = null;
-  private static List<Runnable> cleanupTasks = null;
+  private static CleanupExecutor cleanupExecutor = null;
   private static Random random = new Random();
   private static File fileToPut = new File("test.dat");
   private static long size = 0;
@@ -102,20 +100,9 @@ public class S3ListObjectsTests {
   @BeforeMethod
   public void setup() throws Exception {
     bucketName = eucaUUID();
-    cleanupTasks = new ArrayList<Runnable>();
+    cleanupExecutor = new CleanupExecutor();
     Bucket bucket = S3Utils.createBucket(s3, account, bucketName, S3Utils.BUCKET_CREATION_RETRIES);
-    cleanupTasks.add(new Runnable() {
-      @Override
-      public void run() {
-        print(account + ": Deleting bucket " + bucketName);
-        try {
-          s3.deleteBucket(bucketName);
-        } catch (AmazonServiceException ase) {
-          printException(ase);
-          assertThat(false, "Failed to delete bucket " + bucketName);
-        }
-      }
-    });
+    cleanupExecutor.deleteBucket(s3, bucketName);
 
     assertTrue("Invalid reference to bucket", bucket != null);
     assertTrue("Mismatch in bucket names. Expected bucket name to be " + bucketName + ", but got " + bucket.getName(),
@@ -124,14 +111,9 @@ public class S3ListObjectsTests {
 
   @AfterMethod
   public void cleanup() throws Exception {
-    Collections.reverse(cleanupTasks);
-    for (final Runnable cleanupTask : cleanupTasks) {
-      try {
-        cleanupTask.run();
-      } catch (Exception e) {
-        print("Unable to run clean up task: " + e);
-      }
-    }
+    // Objects are deleted in batches before the bucket
+    final List<CleanupExecutor.Task> failures = CleanupExecutor.failures(cleanupExecutor.run());
+    assertTrue("Failed to clean up bucket " + bucketName + ": " + failures, failures.isEmpty());
   }
 
   /**
@@ -657,13 +639,7 @@ public class S3ListObjectsTests {
     ObjectMetadata metadata = new ObjectMetadata();
     metadata.addUserMetadata("foo", "bar");
     final PutObjectResult putResult = s3.putObject(new PutObjectRequest(bucketName, key, fileToPut).withMetadata(metadata));
-    cleanupTasks.add(new Runnable() {
-      @Override
-      public void run() {
-        print(account + ": Deleting object " + key);
-        s3.deleteObject(bucketName, key);
-      }
-    });
+    cleanupExecutor.deleteObject(s3, bucketName, key);
     assertTrue("Invalid put object result", putResult != null);
     assertTrue("Expected version ID to be null, but got " + putResult.getVersionId(), putResult.getVersionId() == null);
     assertTrue("Mimatch in md5sums between object and PUT result. Expected " + md5 + ", but got " + putResult.getETag(), putResult.getETag() != null
@@ -0,0 +1,340 @@
+package com.eucalyptus.tests.awssdk;
+
+import static com.eucalyptus.tests.awssdk.N4j.print;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.ListObjectsRequest;
+import com.amazonaws.services.s3.model.ListVersionsRequest;
+import com.amazonaws.services.s3.model.ObjectListing;
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+import com.amazonaws.services.s3.model.S3VersionSummary;
+import com.amazonaws.services.s3.model.VersionListing;
+
+/**
+ * <p>
+ * Loads a bucket with a large number of keys using an {@link S3Seeder} and measures paginated ListObjects and ListVersions walks over
+ * it.
+ * </p>
+ *
+ * <p>
+ * Keys are spread over a tree of prefixes given by the fan out, e.g. a fan out of "10,100" puts each key under one of 10 top level
+ * prefixes and one of 100 second level prefixes: "list/d3/d42/k1234". Each walk records the latency of every page and checks that the
+ * pages are consistent: ordered, without duplicates, with valid markers and with the expected number of entries.
+ * </p>
+ */
+class S3ListingBenchmark {
+
+  private static final String ROOT = "list/";
+
+  private final AmazonS3 s3;
+  private final String bucket;
+  private int keys = 100000;
+  private int[] fanout = {10, 10};
+  private String delimiter = "/";
+  private int pageSize = 1000;
+  private int threads = 32;
+  private int versions = 1;
+  private long objectSize = 0;
+
+  S3ListingBenchmark(AmazonS3 s3, String bucket) {
+    this.s3 = s3;
+    this.bucket = bucket;
+  }
+
+  /**
+   * Configure from system properties: load.list.keys, load.list.fanout, load.list.delimiter, load.list.pagesize, load.list.threads,
+   * load.list.versions and load.list.size.
+   */
+  S3ListingBenchmark withSystemProperties() {
+    withKeys(Integer.getInteger("load.list.keys", keys));
+    if (System.getProperty("load.list.fanout") != null) {
+      withFanout(System.getProperty("load.list.fanout"));
+    }
+    withDelimiter(System.getProperty("load.list.delimiter", delimiter));
+    withPageSize(Integer.getInteger("load.list.pagesize", pageSize));
+    withThreads(Integer.getInteger("load.list.threads", threads));
+    withVersions(Integer.getInteger("load.list.versions", versions));
+    withObjectSize(S3LoadGenerator.parseSize(System.getProperty("load.list.size", String.valueOf(objectSize))));
+    return this;
+  }
+
+  S3ListingBenchmark withKeys(int keys) {
+    this.keys = keys;
+    return this;
+  }
+
+  /**
+   * @param spec comma separated number of prefixes at each level, e.g. "10,100"
+   */
+  S3ListingBenchmark withFanout(String spec) {
+    final String[] levels = spec.trim().isEmpty() ? new String[0] : spec.split(",");
+    fanout = new int[levels.length];
+    for (int i = 0; i < levels.length; i++) {
+      fanout[i] = Math.max(1, Integer.parseInt(levels[i].trim()));
+    }
+    return this;
+  }
+
+  S3ListingBenchmark withDelimiter(String delimiter) {
+    this.delimiter = delimiter;
+    return this;
+  }
+
+  S3ListingBenchmark withPageSize(int pageSize) {
+    this.pageSize = pageSize;
+    return this;
+  }
+
+  S3ListingBenchmark withThreads(int threads) {
+    this.threads = threads;
+    return this;
+  }
+
+  /**
+   * @param versions the number of versions to put for each key, more than one needs a versioned bucket
+   */
+  S3ListingBenchmark withVersions(int versions) {
+    this.versions = Math.max(1, versions);
+    return this;
+  }
+
+  S3ListingBenchmark withObjectSize(long objectSize) {
+    this.objectSize = objectSize;
+    return this;
+  }
+
+  int getVersions() {
+    return versions;
+  }
+
+  String key(int index) {
+    final StringBuilder key = new StringBuilder(ROOT);
+    int remaining = index;
+    for (int level : fanout) {
+      key.append('d').append(remaining % level).append(delimiter);
+      remaining /= level;
+    }
+    return key.append('k').append(index).toString();
+  }
+
+  /**
+   * Put every key, and each of its versions, from a pool of threads.
+   */
+  S3Seeder.Manifest load() throws Exception {
+    final S3Seeder.Manifest manifest = new S3Seeder(s3, bucket).withThreads(threads).withObjectSize(objectSize)
+        .withKeyNamer(new S3Seeder.KeyNamer() {
+          @Override
+          public String key(int index) {
+            return S3ListingBenchmark.this.key(index);
+          }
+        }).seed(keys, versions);
+    if (manifest.getFailures() > 0) {
+      throw new IllegalStateException(manifest.getFailures() + " keys failed loading bucket " + bucket);
+    }
+    return manifest;
+  }
+
+  /**
+   * Run the listing walks and print a report.
+   *
+   * @return the result of each walk
+   */
+  List<Walk> run() {
+    final List<Walk> walks = new ArrayList<>();
+    walks.add(walkObjects("ListObjects all", ROOT, null, keys));
+    if (fanout.length > 0) {
+      walks.add(walkObjects("ListObjects delimiter", ROOT, delimiter, Math.min(keys, fanout[0])));
+      final String firstPrefix = ROOT + "d0" + delimiter;
+      walks.add(walkObjects("ListObjects prefix", firstPrefix, null, (keys + fanout[0] - 1) / fanout[0]));
+    }
+    walks.add(walkVersions("ListVersions all", ROOT, (long) keys * versions));
+    print("S3 listing results for " + keys + " keys, page size " + pageSize + ":");
+    for (Walk walk : walks) {
+      print(walk.toString());
+      for (String error : walk.getErrors()) {
+        print("  " + error);
+      }
+    }
+    return walks;
+  }
+
+  /**
+   * Walk a listing page by page following next markers.
+   *
+   * @param expected the number of keys and common prefixes expected
+   */
+  Walk walkObjects(String name, String prefix, String delimiter, long expected) {
+    final Walk walk = new Walk(name, expected);
+    final long startTime = System.currentTimeMillis();
+    String marker = null;
+    String last = null;
+    while (true) {
+      final ListObjectsRequest request =
+          new ListObjectsRequest().withBucketName(bucket).withPrefix(prefix).withDelimiter(delimiter).withMarker(marker).withMaxKeys(pageSize);
+      final long start = System.nanoTime();
+      final ObjectListing listing;
+      try {
+        listing = s3.listObjects(request);
+        walk.pages.record(System.nanoTime() - start);
+      } catch (Exception e) {
+        walk.pages.recordError();
+        walk.error("page after " + marker + " failed: " + e);
+        break;
+      }
+      // Keys and common prefixes are each in order, merge them to check the page as a whole
+      final List<String> entries = new ArrayList<>();
+      for (S3ObjectSummary summary : listing.getObjectSummaries()) {
+        entries.add(summary.getKey());
+      }
+      entries.addAll(listing.getCommonPrefixes());
+      Collections.sort(entries);
+      if (entries.size() > pageSize) {
+        walk.error("page after " + marker + " has " + entries.size() + " entries, max " + pageSize);
+      }
+      for (String entry : entries) {
+        if (last != null && entry.compareTo(last) <= 0) {
+          walk.error("entry " + entry + " out of order or repeated after " + last);
+        }
+        last = entry;
+      }
+      walk.entries += entries.size();
+      if (!listing.isTruncated()) {
+        break;
+      }
+      final String nextMarker = listing.getNextMarker() != null ? listing.getNextMarker() : last;
+      if (nextMarker == null || (marker != null && nextMarker.compareTo(marker) <= 0)) {
+        walk.error("truncated page after " + marker + " has invalid next marker " + nextMarker);
+        break;
+      }
+      marker = nextMarker;
+    }
+    walk.complete(System.currentTimeMillis() - startTime);
+    return walk;
+  }
+
+  /**
+   * Walk the versions listing page by page following next key and version id markers.
+   *
+   * @param expected the number of versions expected
+   */
+  Walk walkVersions(String name, String prefix, long expected) {
+    final Walk walk = new Walk(name, expected);
+    final long startTime = System.currentTimeMillis();
+    String keyMarker = null;
+    String versionIdMarker = null;
+    String lastKey = null;
+    final Set<String> keyVersions = new HashSet<>();
+    while (true) {
+      final ListVersionsRequest request = new ListVersionsRequest().withBucketName(bucket).withPrefix(prefix).withKeyMarker(keyMarker)
+          .withVersionIdMarker(versionIdMarker).withMaxResults(pageSize);
+      final long start = System.nanoTime();
+      final VersionListing listing;
+      try {
+        listing = s3.listVersions(request);
+        walk.pages.record(System.nanoTime() - start);
+      } catch (Exception e) {
+        walk.pages.recordError();
+        walk.error("page after " + keyMarker + "/" + versionIdMarker + " failed: " + e);
+        break;
+      }
+      if (listing.getVersionSummaries().size() > pageSize) {
+        walk.error("page after " + keyMarker + " has " + listing.getVersionSummaries().size() + " entries, max " + pageSize);
+      }
+      for (S3VersionSummary summary : listing.getVersionSummaries()) {
+        if (lastKey != null && summary.getKey().compareTo(lastKey) < 0) {
+          walk.error("key " + summary.getKey() + " out of order after " + lastKey);
+        }
+        if (!summary.getKey().equals(lastKey)) {
+          keyVersions.clear();
+        }
+        if (!keyVersions.add(summary.getVersionId())) {
+          walk.error("version " + summary.getKey() + "/" + summary.getVersionId() + " repeated");
+        }
+        lastKey = summary.getKey();
+      }
+      walk.entries += listing.getVersionSummaries().size();
+      if (!listing.isTruncated()) {
+        break;
+      }
+      if (listing.getNextKeyMarker() == null || (keyMarker != null && listing.getNextKeyMarker().compareTo(keyMarker) < 0)) {
+        walk.error("truncated page after " + keyMarker + " has invalid next key marker " + listing.getNextKeyMarker());
+        break;
+      }
+      keyMarker = listing.getNextKeyMarker();
+      versionIdMarker = listing.getNextVersionIdMarker();
+    }
+    walk.complete(System.currentTimeMillis() - startTime);
+    return walk;
+  }
+
+  static class Walk {
+    private final String name;
+    private final long expected;
+    private final LatencyStats pages;
+    private final List<String> errors = new ArrayList<>();
+    private long entries;
+    private long elapsed;
+
+    private Walk(String name, long expected) {
+      this.name = name;
+      this.expected = expected;
+      this.pages = new LatencyStats(name + " page");
+    }
+
+    private void error(String error) {
+      if (errors.size() < 100) {
+        errors.add(error);
+      }
+    }
+
+    private void complete(long elapsed) {
+      this.elapsed = elapsed;
+      if (entries != expected) {
+        error("expected " + expected + " entries but listed " + entries);
+      }
+    }
+
+    String getName() {
+      return name;
+    }
+
+    long getEntries() {
+      return entries;
+    }
+
+    /**
+     * @return the time for the whole walk in ms
+     */
+    long getElapsed() {
+      return elapsed;
+    }
+
+    /**
+     * @return latency of the individual pages
+     */
+    LatencyStats getPages() {
+      return pages;
+    }
+
+    List<String> getErrors() {
+      return errors;
+    }
+
+    boolean isConsistent() {
+      return errors.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%s: %d entries in %d pages, %dms (%.1f entries/s), page p50 %.2fms, p99 %.2fms, max %.2fms, %s", name,
+          entries, pages.getCount(), elapsed, elapsed <= 0 ? 0 : entries * 1000.0 / elapsed, pages.getPercentile(50),
+          pages.getPercentile(99), pages.getMax(), errors.isEmpty() ? "consistent" : errors.size() + " consistency errors");
+    }
+  }
+}
@@ -0,0 +1,86 @@
+package com.eucalyptus.tests.awssdk;
+
+import static com.eucalyptus.tests.awssdk.N4j.eucaUUID;
+import static com.eucalyptus.tests.awssdk.N4j.print;
+import static com.eucalyptus.tests.awssdk.N4j.testInfo;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.util.List;
+
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.BucketVersioningConfiguration;
+import com.amazonaws.services.s3.model.SetBucketVersioningConfigurationRequest;
+
+/**
+ * <p>
+ * Measures listing latency and checks pagination consistency for a large bucket with {@link S3ListingBenchmark}. Not part of the
+ * functional suites, run it with S3LoadSuite.xml, e.g.
+ * </p>
+ *
+ * <pre>
+ * ant -Dtests=S3LoadSuite.xml -Dload.list.keys=1000000 -Dload.list.fanout=16,256 -Dload.list.threads=64 -Dload.list.versions=2
+ * </pre>
+ */
+public class S3ListingLoadTest {
+
+  private static CloudContext context = null;
+  private static AmazonS3 s3 = null;
+  private static String account = null;
+  private static String bucketName = null;
+
+  public static void main(String[] args) throws Exception {
+    final S3ListingLoadTest test = new S3ListingLoadTest();
+    test.init();
+    try {
+      test.listing();
+    } finally {
+      test.teardown();
+    }
+  }
+
+  @BeforeClass
+  public void init() throws Exception {
+    print("### PRE SUITE SETUP - " + this.getClass().getSimpleName());
+    account = this.getClass().getSimpleName().toLowerCase();
+    context = CloudContext.forNewAccount(account).bind();
+    s3 = context.s3;
+    bucketName = eucaUUID();
+    S3Utils.createBucket(s3, account, bucketName, S3Utils.BUCKET_CREATION_RETRIES);
+  }
+
+  @AfterClass
+  public void teardown() throws Exception {
+    print("### POST SUITE CLEANUP - " + this.getClass().getSimpleName());
+    if (bucketName != null) {
+      print(account + ": Deleting objects and bucket " + bucketName);
+      final CleanupExecutor cleanupExecutor = new CleanupExecutor();
+      cleanupExecutor.purgeBucket(s3, bucketName);
+      cleanupExecutor.run();
+    }
+    if (context != null) {
+      context.close();
+    }
+    context = null;
+    s3 = null;
+  }
+
+  @Test
+  public void listing() throws Exception {
+    testInfo(this.getClass().getSimpleName() + " - listing");
+    final S3ListingBenchmark benchmark = new S3ListingBenchmark(s3, bucketName).withSystemProperties();
+    if (benchmark.getVersions() > 1) {
+      print(account + ": Setting bucket versioning configuration to ENABLED");
+      s3.setBucketVersioningConfiguration(new SetBucketVersioningConfigurationRequest(bucketName, new BucketVersioningConfiguration()
+          .withStatus(BucketVersioningConfiguration.ENABLED)));
+    }
+    benchmark.load();
+    final List<S3ListingBenchmark.Walk> walks = benchmark.run();
+    for (S3ListingBenchmark.Walk walk : walks) {
+      assertTrue("Inconsistent listing for " + walk.getName() + ": " + walk.getErrors(), walk.isConsistent());
+    }
+  }
+}
@@ -0,0 +1,340 @@
+package com.eucalyptus.tests.awssdk;
+
+import static com.eucalyptus.tests.awssdk.N4j.print;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.S3Object;
+
+/**
+ * <p>
+ * Generates a put/get/head/delete load against a bucket from a number of worker threads and records the latency of each operation.
+ * </p>
+ *
+ * <p>
+ * Object sizes and the operation mix are given as weighted lists, e.g. "4k:50,1m:40,16m:10" and "put:25,get:50,head:15,delete:10". Keys are
+ * chosen at random from a fixed size key space so gets, heads and deletes hit objects written earlier. Requests for keys that do not exist
+ * (e.g. deleted earlier) are counted as misses, not errors.
+ * </p>
+ */
+class S3LoadGenerator {
+
+  enum Operation {
+    PUT, GET, HEAD, DELETE
+  }
+
+  private static final int MAX_PRELOAD_THREADS = 64;
+
+  private final AmazonS3 s3;
+  private final String bucket;
+  private int threads = 8;
+  private long duration = TimeUnit.MINUTES.toMillis(1);
+  private int keySpace = 1000;
+  private String keyPrefix = "load/";
+  private boolean preload = true;
+  private NavigableMap<Integer, Long> sizes = parseWeights("64k:100", new SizeParser());
+  private NavigableMap<Integer, Operation> mix = parseWeights("put:25,get:50,head:15,delete:10", new OperationParser());
+  private final Map<Operation, LatencyStats> stats = new EnumMap<>(Operation.class);
+  private final Map<Operation, LatencyStats> misses = new EnumMap<>(Operation.class);
+  private final Map<Operation, AtomicBoolean> failed = new EnumMap<>(Operation.class);
+  private long elapsed;
+
+  S3LoadGenerator(AmazonS3 s3, String bucket) {
+    this.s3 = s3;
+    this.bucket = bucket;
+    for (Operation operation : Operation.values()) {
+      stats.put(operation, new LatencyStats(operation.name()));
+      failed.put(operation, new AtomicBoolean());
+      misses.put(operation, new LatencyStats(operation.name() + " (miss)"));
+    }
+  }
+
+  /**
+   * Configure from system properties: load.threads, load.duration (seconds), load.keys, load.sizes, load.mix and load.preload. Each of the
+   * load.threads clients runs on its own thread, a virtual thread with load.executor=virtual (see {@link LoadExecutors}).
+   */
+  S3LoadGenerator withSystemProperties() {
+    withThreads(Integer.getInteger("load.threads", threads));
+    withDuration(Long.getLong("load.duration", TimeUnit.MILLISECONDS.toSeconds(duration)), TimeUnit.SECONDS);
+    withKeySpace(Integer.getInteger("load.keys", keySpace));
+    if (System.getProperty("load.sizes") != null) {
+      withObjectSizes(System.getProperty("load.sizes"));
+    }
+    if (System.getProperty("load.mix") != null) {
+      withMix(System.getProperty("load.mix"));
+    }
+    withPreload(Boolean.parseBoolean(System.getProperty("load.preload", String.valueOf(preload))));
+    return this;
+  }
+
+  S3LoadGenerator withThreads(int threads) {
+    this.threads = threads;
+    return this;
+  }
+
+  S3LoadGenerator withDuration(long duration, TimeUnit unit) {
+    this.duration = unit.toMillis(duration);
+    return this;
+  }
+
+  S3LoadGenerator withKeySpace(int keySpace) {
+    this.keySpace = keySpace;
+    return this;
+  }
+
+  S3LoadGenerator withKeyPrefix(String keyPrefix) {
+    this.keyPrefix = keyPrefix;
+    return this;
+  }
+
+  /**
+   * @param preload if true every key in the key space is written before the timed run
+   */
+  S3LoadGenerator withPreload(boolean preload) {
+    this.preload = preload;
+    return this;
+  }
+
+  /**
+   * @param spec weighted object sizes, e.g. "4k:50,1m:40,16m:10"
+   */
+  S3LoadGenerator withObjectSizes(String spec) {
+    this.sizes = parseWeights(spec, new SizeParser());
+    return this;
+  }
+
+  /**
+   * @param spec weighted operations, e.g. "put:25,get:50,head:15,delete:10"
+   */
+  S3LoadGenerator withMix(String spec) {
+    this.mix = parseWeights(spec, new OperationParser());
+    return this;
+  }
+
+  String key(int index) {
+    return keyPrefix + index;
+  }
+
+  int getKeySpace() {
+    return keySpace;
+  }
+
+  /**
+   * Run the load and print a report.
+   *
+   * @return latency stats for each operation
+   */
+  Map<Operation, LatencyStats> run() throws Exception {
+    final Payload payload = Payload.random(maxSize());
+
+    if (preload) {
+      print("Preloading " + keySpace + " objects into bucket " + bucket);
+      final ExecutorService preloader = Executors.newFixedThreadPool(Math.min(threads, MAX_PRELOAD_THREADS));
+      try {
+        final List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < keySpace; i++) {
+          final int index = i;
+          futures.add(preloader.submit(new Runnable() {
+            @Override
+            public void run() {
+              put(index, payload, pick(sizes));
+            }
+          }));
+        }
+        for (Future<?> future : futures) {
+          future.get();
+        }
+      } finally {
+        preloader.shutdownNow();
+      }
+    }
+
+    final ExecutorService executor = LoadExecutors.newClientExecutor(threads);
+    try {
+      print("Running " + threads + " clients on " + LoadExecutors.describe() + " for " + duration + "ms against bucket " + bucket);
+      final long startTime = System.currentTimeMillis();
+      final long deadline = startTime + duration;
+      final List<Future<?>> workers = new ArrayList<>();
+      for (int i = 0; i < threads; i++) {
+        workers.add(executor.submit(new Runnable() {
+          @Override
+          public void run() {
+            while (System.currentTimeMillis() < deadline) {
+              execute(pick(mix), ThreadLocalRandom.current().nextInt(keySpace), payload);
+            }
+          }
+        }));
+      }
+      for (Future<?> worker : workers) {
+        worker.get();
+      }
+      elapsed = System.currentTimeMillis() - startTime;
+    } finally {
+      executor.shutdownNow();
+    }
+
+    print("S3 load results over " + elapsed + "ms:");
+    for (Operation operation : Operation.values()) {
+      if (stats.get(operation).getCount() > 0 || stats.get(operation).getErrors() > 0) {
+        print(stats.get(operation).summary(elapsed));
+      }
+      if (misses.get(operation).getCount() > 0) {
+        print(misses.get(operation).summary(elapsed));
+      }
+    }
+    return stats;
+  }
+
+  /**
+   * @return the duration of the timed run in ms
+   */
+  long getElapsed() {
+    return elapsed;
+  }
+
+  private void execute(Operation operation, int index, Payload payload) {
+    switch (operation) {
+      case PUT:
+        put(index, payload, pick(sizes));
+        break;
+      case GET:
+      case HEAD:
+      case DELETE:
+        final long start = System.nanoTime();
+        try {
+          if (operation == Operation.GET) {
+            drain(s3.getObject(bucket, key(index)));
+          } else if (operation == Operation.HEAD) {
+            s3.getObjectMetadata(bucket, key(index));
+          } else {
+            s3.deleteObject(bucket, key(index));
+          }
+          stats.get(operation).record(System.nanoTime() - start);
+        } catch (AmazonServiceException e) {
+          if (e.getStatusCode() == 404) {
+            misses.get(operation).record(System.nanoTime() - start);
+          } else {
+            error(operation, e);
+          }
+        } catch (Exception e) {
+          error(operation, e);
+        }
+        break;
+    }
+  }
+
+  private void put(int index, Payload payload, long size) {
+    final ObjectMetadata metadata = new ObjectMetadata();
+    metadata.setContentLength(size);
+    final long start = System.nanoTime();
+    try {
+      s3.putObject(bucket, key(index), payload.stream(0, size), metadata);
+      stats.get(Operation.PUT).record(System.nanoTime() - start);
+    } catch (Exception e) {
+      error(Operation.PUT, e);
+    }
+  }
+
+  /**
+   * Record a failed operation, printing the first failure for each operation so errors are not only counted.
+   */
+  private void error(Operation operation, Exception e) {
+    stats.get(operation).recordError();
+    if (failed.get(operation).compareAndSet(false, true)) {
+      print("First " + operation + " failure: " + e);
+    }
+  }
+
+  private static void drain(S3Object object) throws IOException {
+    final byte[] buffer = new byte[64 * 1024];
+    try (InputStream in = object.getObjectContent()) {
+      while (in.read(buffer) >= 0) {
+      }
+    }
+  }
+
+  private long maxSize() {
+    long max = 0;
+    for (Long size : sizes.values()) {
+      max = Math.max(max, size);
+    }
+    return max;
+  }
+
+  private static <T> T pick(NavigableMap<Integer, T> weights) {
+    return weights.higherEntry(ThreadLocalRandom.current().nextInt(weights.lastKey())).getValue();
+  }
+
+  interface Parser<T> {
+    T parse(String value);
+  }
+
+  static class SizeParser implements Parser<Long> {
+    @Override
+    public Long parse(String value) {
+      return parseSize(value);
+    }
+  }
+
+  static class OperationParser implements Parser<Operation> {
+    @Override
+    public Operation parse(String value) {
+      return Operation.valueOf(value.trim().toUpperCase());
+    }
+  }
+
+  /**
+   * Parse a weighted list such as "a:1,b:3" into a map from cumulative weight to value.
+   */
+  static <T> NavigableMap<Integer, T> parseWeights(String spec, Parser<T> parser) {
+    final NavigableMap<Integer, T> weights = new TreeMap<>();
+    int total = 0;
+    for (String entry : spec.split(",")) {
+      final String[] parts = entry.trim().split(":");
+      final int weight = parts.length > 1 ? Integer.parseInt(parts[1].trim()) : 1;
+      if (weight <= 0) {
+        continue;
+      }
+      total += weight;
+      weights.put(total, parser.parse(parts[0]));
+    }
+    if (weights.isEmpty()) {
+      throw new IllegalArgumentException("No weighted values in: " + spec);
+    }
+    return weights;
+  }
+
+  /**
+   * Parse a size such as 512, 4k, 16m or 2g into bytes.
+   */
+  static long parseSize(String value) {
+    final String size = value.trim().toLowerCase();
+    final char unit = size.charAt(size.length() - 1);
+    switch (unit) {
+      case 'k':
+        return Long.parseLong(size.substring(0, size.length() - 1)) * 1024;
+      case 'm':
+        return Long.parseLong(size.substring(0, size.length() - 1)) * 1024 * 1024;
+      case 'g':
+        return Long.parseLong(size.substring(0, size.length() - 1)) * 1024 * 1024 * 1024;
+      default:
+        return Long.parseLong(size);
+    }
+  }
+}
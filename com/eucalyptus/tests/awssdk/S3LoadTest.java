@@ -0,0 +1,164 @@
+package com.eucalyptus.tests.awssdk;
+
+import static com.eucalyptus.tests.awssdk.N4j.eucaUUID;
+import static com.eucalyptus.tests.awssdk.N4j.print;
+import static com.eucalyptus.tests.awssdk.N4j.testInfo;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.io.File;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+
+/**
+ * <p>
+ * Measures object storage throughput and latency with {@link S3LoadGenerator}. Not part of the functional suites, run it with
+ * S3LoadSuite.xml, e.g.
+ * </p>
+ *
+ * <pre>
+ * ant -Dtests=S3LoadSuite.xml -Dload.threads=32 -Dload.duration=300 -Dload.sizes=4k:50,1m:40,16m:10 -Dload.keys=5000
+ * </pre>
+ *
+ * <p>
+ * The multipart upload throughput run is configured with load.mpu.size, load.mpu.concurrency, load.mpu.partsize and load.mpu.memory. The
+ * ranged download throughput run uses an object of load.mpu.size and is configured with load.download.concurrency and
+ * load.download.rangesize.
+ * </p>
+ *
+ * <p>
+ * The open loop run puts objects at a constant rate regardless of how quickly puts complete, so latency includes any queueing in the
+ * service. It is configured with load.openloop.rate (puts per second), load.openloop.duration (seconds), load.openloop.size and
+ * load.openloop.concurrency.
+ * </p>
+ *
+ * <p>
+ * For very large numbers of clients use the load-virtual target with a JDK 21 test JVM, which runs each client on a virtual thread:
+ * </p>
+ *
+ * <pre>
+ * ant load-virtual -Dtest.jvm=/usr/lib/jvm/java-21/bin/java -Dload.threads=10000 -Dclient.maxconnections=1000
+ * </pre>
+ */
+public class S3LoadTest {
+
+  private static CloudContext context = null;
+  private static AmazonS3 s3 = null;
+  private static String account = null;
+  private static String bucketName = null;
+
+  public static void main(String[] args) throws Exception {
+    final S3LoadTest test = new S3LoadTest();
+    test.init();
+    try {
+      test.load();
+      test.multipartUpload();
+      test.rangedDownload();
+      test.openLoopPut();
+    } finally {
+      test.teardown();
+    }
+  }
+
+  @BeforeClass
+  public void init() throws Exception {
+    print("### PRE SUITE SETUP - " + this.getClass().getSimpleName());
+    account = this.getClass().getSimpleName().toLowerCase();
+    context = CloudContext.forNewAccount(account).bind();
+    s3 = context.s3;
+    bucketName = eucaUUID();
+    S3Utils.createBucket(s3, account, bucketName, S3Utils.BUCKET_CREATION_RETRIES);
+  }
+
+  @AfterClass
+  public void teardown() throws Exception {
+    print("### POST SUITE CLEANUP - " + this.getClass().getSimpleName());
+    if (bucketName != null) {
+      print(account + ": Deleting objects and bucket " + bucketName);
+      final CleanupExecutor cleanupExecutor = new CleanupExecutor();
+      cleanupExecutor.purgeBucket(s3, bucketName);
+      cleanupExecutor.run();
+    }
+    if (context != null) {
+      context.close();
+    }
+    context = null;
+    s3 = null;
+  }
+
+  @Test
+  public void load() throws Exception {
+    testInfo(this.getClass().getSimpleName() + " - load");
+    final S3LoadGenerator generator = new S3LoadGenerator(s3, bucketName).withSystemProperties();
+    final Map<S3LoadGenerator.Operation, LatencyStats> stats = generator.run();
+    long total = 0;
+    for (LatencyStats stat : stats.values()) {
+      total += stat.getCount();
+    }
+    assertTrue("Expected some operations to complete", total > 0);
+  }
+
+  @Test
+  public void multipartUpload() throws Exception {
+    testInfo(this.getClass().getSimpleName() + " - multipartUpload");
+    final long size = S3LoadGenerator.parseSize(System.getProperty("load.mpu.size", "256m"));
+    final ParallelMultipartUploader uploader = new ParallelMultipartUploader(s3)
+        .withConcurrency(Integer.getInteger("load.mpu.concurrency", 8))
+        .withMinPartSize(S3LoadGenerator.parseSize(System.getProperty("load.mpu.partsize", "5m")))
+        .withMemoryBudget(S3LoadGenerator.parseSize(System.getProperty("load.mpu.memory", "256m")));
+    final ParallelMultipartUploader.Result result = uploader.upload(bucketName, "mpu/" + eucaUUID(), Payload.random(size).stream(), size);
+    print(account + ": Multipart upload throughput " + String.format("%.1f", result.getThroughput()) + " MB/s");
+    print(result.getPartStats().summary(result.getElapsed()));
+    assertTrue("Expected " + size + " bytes uploaded but got " + result.getSize(), result.getSize() == size);
+  }
+
+  @Test
+  public void rangedDownload() throws Exception {
+    testInfo(this.getClass().getSimpleName() + " - rangedDownload");
+    final long size = S3LoadGenerator.parseSize(System.getProperty("load.mpu.size", "256m"));
+    final String key = "download/" + eucaUUID();
+    new ParallelMultipartUploader(s3).withConcurrency(8).upload(bucketName, key, Payload.random(size).stream(), size);
+    final File file = File.createTempFile("download", ".dat");
+    try {
+      final ParallelRangeDownloader downloader = new ParallelRangeDownloader(s3)
+          .withConcurrency(Integer.getInteger("load.download.concurrency", 8))
+          .withRangeSize(S3LoadGenerator.parseSize(System.getProperty("load.download.rangesize", "8m")));
+      final ParallelRangeDownloader.Result result = downloader.download(bucketName, key, file);
+      print(account + ": Ranged download throughput " + String.format("%.1f", result.getThroughput()) + " MB/s");
+      print(result.getRangeStats().summary(result.getElapsed()));
+      assertTrue("Expected " + size + " bytes downloaded but got " + file.length(), file.length() == size);
+    } finally {
+      file.delete();
+    }
+  }
+
+  @Test
+  public void openLoopPut() throws Exception {
+    testInfo(this.getClass().getSimpleName() + " - openLoopPut");
+    final long size = S3LoadGenerator.parseSize(System.getProperty("load.openloop.size", "64k"));
+    final Payload payload = Payload.random(size);
+    final OpenLoopDriver.Result result = new OpenLoopDriver("PutObject", new OpenLoopDriver.Operation() {
+      @Override
+      public void execute(long sequence) {
+        final ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setContentLength(size);
+        s3.putObject(bucketName, "openloop/" + sequence, payload.stream(), metadata);
+      }
+    }).withRate(Double.parseDouble(System.getProperty("load.openloop.rate", "100")), TimeUnit.SECONDS)
+        .withDuration(Long.getLong("load.openloop.duration", 60), TimeUnit.SECONDS)
+        .withConcurrency(Integer.getInteger("load.openloop.concurrency", 256))
+        .run();
+    print(account + ": Open loop put throughput " + String.format("%.1f", result.getThroughput()) + " ops/s, p99 "
+        + String.format("%.2f", result.getLatency().getPercentile(99)) + "ms from intended start, "
+        + String.format("%.2f", result.getDropRate() * 100) + "% dropped");
+    assertTrue("Expected some puts to complete", result.getLatency().getCount() > 0);
+    assertTrue("Dropped " + result.getDropped() + " of " + result.getScheduled() + " puts, p99 excludes them",
+        result.getDropped() == 0);
+  }
+}
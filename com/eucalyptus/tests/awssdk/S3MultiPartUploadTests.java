@@ -69,17 +69,9 @@ import static com.eucalyptus.tests.awssdk.N4j.print;
 import static com.eucalyptus.tests.awssdk.N4j.testInfo;
 import static org.testng.AssertJUnit.assertTrue;
 
-import java.io.BufferedInputStream;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
-import java.io.IOException;
-import java.nio.file.Files;
-import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -134,7 +126,7 @@ public class S3MultiPartUploadTests {
   private static String ownerName = null;
   private static Owner owner = null;
   private static String ownerId = null;
-  byte[] randomBytes;
+  Payload payload;
 
   @BeforeClass
   public void init() throws Exception {
@@ -156,10 +148,9 @@ public class S3MultiPartUploadTests {
     ownerName = owner.getDisplayName();
     ownerId = owner.getId();
 
-    // Generate a 6M random byte stream
-    print("Generating a 6MB random byte array");
-    randomBytes = new byte[6 * 1024 * 1024];
-    new Random().nextBytes(randomBytes);
+    // 6M of random data for each part
+    payload = Payload.random(6 * 1024 * 1024);
+    print("Using " + payload + " for parts");
   }
 
   public AmazonS3 getS3Client(String credPath) throws Exception {
@@ -219,14 +210,12 @@ public class S3MultiPartUploadTests {
   @Test
   public void basicMultiPartUpload() throws Exception {
     testInfo(this.getClass().getSimpleName() + " - basicMultiPartUpload");
-    final File fileToPut = new File(eucaUUID());
-    FileOutputStream fos = new FileOutputStream(fileToPut);
-
     try {
       final String key = eucaUUID();
       List<PartETag> partETags = Lists.newArrayList();
-      long partSize = randomBytes.length;
+      long partSize = payload.getSize();
       int numberOfParts = 2 + new Random().nextInt(14); // 2-15 parts
+      final Payload object = Payload.random(partSize * numberOfParts);
 
       // Inititate mpu
       print(account + ": Initiating multipart upload for object " + key + " in bucket " + bucketName);
@@ -236,27 +225,17 @@ public class S3MultiPartUploadTests {
       for (int partNumber = 1; partNumber <= numberOfParts; partNumber++) {
         print(account + ": Uploading part of size " + partSize + " bytes for object " + key + ", upload ID " + initiateMpuResult.getUploadId()
             + ", part number " + partNumber);
-        partETags.add(s3.uploadPart(
+        Payload.PayloadInputStream part = object.stream((partNumber - 1) * partSize, partSize);
+        PartETag partETag = s3.uploadPart(
             new UploadPartRequest().withBucketName(bucketName).withKey(key).withUploadId(initiateMpuResult.getUploadId()).withPartNumber(partNumber)
-                .withInputStream(new ByteArrayInputStream(randomBytes)).withPartSize(partSize)).getPartETag());
+                .withInputStream(part).withPartSize(partSize)).getPartETag();
+        partETags.add(partETag);
 
-        // Write the bytes to a byte array output stream
-        fos.write(randomBytes);
+        // The part etag is the md5 of the part, computed as it was sent
+        assertTrue("Expected etag for part " + partNumber + " to be " + part.getMd5() + " but got " + partETag.getETag(),
+            part.getMd5().equals(partETag.getETag().replace("\"", "")));
       }
 
-      fos.close();
-      cleanupTasks.add(new Runnable() {
-        @Override
-        public void run() {
-          try {
-            print(account + ": Deleting file " + fileToPut.toPath());
-            Files.deleteIfExists(fileToPut.toPath());
-          } catch (IOException e) {
-            print("Unable to delete file " + fileToPut.toPath() + " due to " + e);
-          }
-        }
-      });
-
       // Complete mpu
       print(account + ": Completing multipart upload for object " + key + ", upload ID " + initiateMpuResult.getUploadId());
       s3.completeMultipartUpload(new CompleteMultipartUploadRequest(bucketName, key, initiateMpuResult.getUploadId(), partETags));
@@ -268,9 +247,6 @@ public class S3MultiPartUploadTests {
         }
       });
 
-      // Compute md5 of uploaded object
-      String mpuMd5 = BinaryUtils.toHex(Md5Utils.computeMD5Hash(new FileInputStream(fileToPut)));
-
       // Get the final object to compute the md5
       print(account + ": Downloading object " + key);
       S3Object s3Obj = s3.getObject(new GetObjectRequest(bucketName, key));
@@ -278,14 +254,82 @@ public class S3MultiPartUploadTests {
 
       assertTrue("Expected objectsize to be " + (partSize * numberOfParts) + " bytes but got a file of size "
           + s3Obj.getObjectMetadata().getContentLength() + " bytes", s3Obj.getObjectMetadata().getContentLength() == (partSize * numberOfParts));
-      assertTrue("Expected md5sum to be " + mpuMd5 + " but got " + getMd5, mpuMd5.equals(getMd5));
+      assertTrue("Expected md5sum to be " + object.getMd5() + " but got " + getMd5, object.getMd5().equals(getMd5));
     } catch (AmazonServiceException ase) {
       printException(ase);
       assertThat(false, "Failed to run basicMultiPartUpload");
-    } finally {
-      if (fos != null) {
-        fos.close();
+    }
+  }
+
+  @Test
+  public void parallelMultiPartUpload() throws Exception {
+    testInfo(this.getClass().getSimpleName() + " - parallelMultiPartUpload");
+    try {
+      final String key = eucaUUID();
+      final Payload object = Payload.random(payload.getSize() * (2 + new Random().nextInt(14)));
+
+      // Upload with a part size that does not line up with the size of the object
+      final ParallelMultipartUploader uploader = new ParallelMultipartUploader(s3).withConcurrency(4);
+      final ParallelMultipartUploader.Result result = uploader.upload(bucketName, key, object.stream(), object.getSize());
+      cleanupTasks.add(new Runnable() {
+        @Override
+        public void run() {
+          print(account + ": Deleting object " + key + " from bucket " + bucketName);
+          s3.deleteObject(bucketName, key);
+        }
+      });
+      print(account + ": Parallel upload of object " + key + " completed: " + result);
+
+      print(account + ": Downloading object " + key);
+      S3Object s3Obj = s3.getObject(new GetObjectRequest(bucketName, key));
+      String getMd5 = BinaryUtils.toHex(Md5Utils.computeMD5Hash(s3Obj.getObjectContent()));
+
+      assertTrue("Expected objectsize to be " + object.getSize() + " bytes but got a file of size "
+          + s3Obj.getObjectMetadata().getContentLength() + " bytes", s3Obj.getObjectMetadata().getContentLength() == object.getSize());
+      assertTrue("Expected md5sum to be " + object.getMd5() + " but got " + getMd5, object.getMd5().equals(getMd5));
+    } catch (AmazonServiceException ase) {
+      printException(ase);
+      assertThat(false, "Failed to run parallelMultiPartUpload");
+    }
+  }
+
+  @Test
+  public void parallelRangeDownload() throws Exception {
+    testInfo(this.getClass().getSimpleName() + " - parallelRangeDownload");
+    try {
+      final String key = eucaUUID();
+      final Payload object = Payload.random(payload.getSize() * 3 + 12345);
+      new ParallelMultipartUploader(s3).withConcurrency(4).upload(bucketName, key, object.stream(), object.getSize());
+      cleanupTasks.add(new Runnable() {
+        @Override
+        public void run() {
+          print(account + ": Deleting object " + key + " from bucket " + bucketName);
+          s3.deleteObject(bucketName, key);
+        }
+      });
+
+      // Download with ranges that do not line up with the parts
+      final File fileToVerify = new File(eucaUUID());
+      cleanupTasks.add(new Runnable() {
+        @Override
+        public void run() {
+          print(account + ": Deleting file " + fileToVerify.getName());
+          fileToVerify.delete();
+        }
+      });
+      final ParallelRangeDownloader downloader = new ParallelRangeDownloader(s3).withConcurrency(4).withRangeSize(4 * 1024 * 1024 + 1);
+      final ParallelRangeDownloader.Result result = downloader.download(bucketName, key, fileToVerify);
+      print(account + ": Parallel download of object " + key + " completed: " + result);
+
+      assertTrue("Expected file size to be " + object.getSize() + " bytes but got " + fileToVerify.length() + " bytes",
+          fileToVerify.length() == object.getSize());
+      try (ObjectVerifier verifier = ObjectVerifier.forFile(fileToVerify)) {
+        final long mismatch = verifier.compare(object.stream(), 0, object.getSize());
+        assertTrue("Mismatch in source and downloaded data at byte " + mismatch, mismatch < 0);
       }
+    } catch (AmazonServiceException ase) {
+      printException(ase);
+      assertThat(false, "Failed to run parallelRangeDownload");
     }
   }
 
@@ -294,7 +338,7 @@ public class S3MultiPartUploadTests {
     testInfo(this.getClass().getSimpleName() + " - multiPartUploadWithBadId");
     try {
       final String key = eucaUUID();
-      long partSize = randomBytes.length;
+      long partSize = payload.getSize();
       print("using multi-part-upload to create file with key - " + key + " in bucket - " + bucketName);
       List<PartETag> partETags = Lists.newArrayList();
 
@@ -305,7 +349,7 @@ public class S3MultiPartUploadTests {
         String badId = eucaUUID();
         UploadPartRequest upr =
             new UploadPartRequest().withBucketName(bucketName).withKey(key).withUploadId(badId).withPartNumber(1)
-                .withInputStream(new ByteArrayInputStream(randomBytes)).withPartSize(partSize);
+                .withInputStream(payload.stream()).withPartSize(partSize);
         print(account + ": sending part number - " + 1 + " with size - " + partSize + " in bytes using id - " + badId);
         partETags.add(s3.uploadPart(upr).getPartETag());
         print(account + ": part number - " + 1 + " sent successfully");
@@ -439,7 +483,7 @@ public class S3MultiPartUploadTests {
     try {
       final String key = eucaUUID();
       List<PartETag> partETags = Lists.newArrayList();
-      long partSize = randomBytes.length;
+      long partSize = payload.getSize();
 
       // Inititate mpu
       print(account + ": Initiating multipart upload for object " + key + " in bucket " + bucketName);
@@ -459,7 +503,7 @@ public class S3MultiPartUploadTests {
             + ", part number " + partNumber);
         partETags.add(s3.uploadPart(
             new UploadPartRequest().withBucketName(bucketName).withKey(key).withUploadId(initiateMpuResult.getUploadId()).withPartNumber(partNumber)
-                .withInputStream(new ByteArrayInputStream(randomBytes)).withPartSize(partSize)).getPartETag());
+                .withInputStream(payload.stream()).withPartSize(partSize)).getPartETag());
       }
 
       // Reverse the list of etags
@@ -658,7 +702,8 @@ public class S3MultiPartUploadTests {
     try {
       final String key = eucaUUID();
       List<PartETag> partETags = Lists.newArrayList();
-      long partSize = randomBytes.length;
+      long partSize = payload.getSize();
+      final Payload object = Payload.random(partSize * 4);
 
       // Inititate mpu
       print(account + ": Initiating multipart upload for object " + key + " in bucket " + bucketName);
@@ -670,7 +715,7 @@ public class S3MultiPartUploadTests {
             + ", part number " + partNumber);
         partETags.add(s3.uploadPart(
             new UploadPartRequest().withBucketName(bucketName).withKey(key).withUploadId(initiateMpuResult.getUploadId()).withPartNumber(partNumber)
-                .withInputStream(new ByteArrayInputStream(randomBytes)).withPartSize(partSize)).getPartETag());
+                .withInputStream(object.stream((partNumber - 1) * partSize, partSize)).withPartSize(partSize)).getPartETag());
       }
 
       // Complete mpu
@@ -684,52 +729,40 @@ public class S3MultiPartUploadTests {
         }
       });
 
-      // Get the final object to verify
-      final File fileToVerify = new File(eucaUUID());
-      print(account + ": Downloading object " + key + " to file " + fileToVerify.getName());
-      s3.getObject(new GetObjectRequest(bucketName, key), fileToVerify);
-      cleanupTasks.add(new Runnable() {
-        @Override
-        public void run() {
-          try {
-            print(account + ": Deleting file " + fileToVerify.getName());
-            fileToVerify.delete();
-          } catch (Exception e) {
-          }
-        }
-      });
-      assertTrue("Expected objectsize to be " + (partSize * 4) + " bytes but got a file of size " + fileToVerify.length() + " bytes",
-          fileToVerify.length() == (partSize * 4));
+      // Verify the final object against the regenerated content
+      try (ObjectVerifier verifier = ObjectVerifier.forPayload(object)) {
+        verifier.verifyObject(account, s3, bucketName, key);
 
-      // Verify get for first 100 bytes
-      verifyGetWithRange(account, s3, bucketName, key, fileToVerify, 0, 100);
+        // Verify get for first 100 bytes
+        verifier.verifyRange(account, s3, bucketName, key, 0, 100);
 
-      // Verify get for first 100 bytes of second part
-      verifyGetWithRange(account, s3, bucketName, key, fileToVerify, (int) partSize, 100);
+        // Verify get for first 100 bytes of second part
+        verifier.verifyRange(account, s3, bucketName, key, partSize, 100);
 
-      // Verify get for first 100 bytes of third part
-      verifyGetWithRange(account, s3, bucketName, key, fileToVerify, (int) (partSize * 2), 100);
+        // Verify get for first 100 bytes of third part
+        verifier.verifyRange(account, s3, bucketName, key, partSize * 2, 100);
 
-      // Verify get for first 100 bytes of third part
-      verifyGetWithRange(account, s3, bucketName, key, fileToVerify, (int) (partSize * 3), 100);
+        // Verify get for first 100 bytes of third part
+        verifier.verifyRange(account, s3, bucketName, key, partSize * 3, 100);
 
-      // Verify get for 100 bytes between first and second part
-      verifyGetWithRange(account, s3, bucketName, key, fileToVerify, (int) (partSize - 58), 100);
+        // Verify get for 100 bytes between first and second part
+        verifier.verifyRange(account, s3, bucketName, key, partSize - 58, 100);
 
-      // Verify get for 100 bytes between second and third part
-      verifyGetWithRange(account, s3, bucketName, key, fileToVerify, (int) ((2 * partSize) - 47), 100);
+        // Verify get for 100 bytes between second and third part
+        verifier.verifyRange(account, s3, bucketName, key, (2 * partSize) - 47, 100);
 
-      // Verify get for last 100 bytes of first part
-      verifyGetWithRange(account, s3, bucketName, key, fileToVerify, (int) (partSize - 100), 100);
+        // Verify get for last 100 bytes of first part
+        verifier.verifyRange(account, s3, bucketName, key, partSize - 100, 100);
 
-      // Verify get for last 100 bytes of second part
-      verifyGetWithRange(account, s3, bucketName, key, fileToVerify, (int) ((2 * partSize) - 100), 100);
+        // Verify get for last 100 bytes of second part
+        verifier.verifyRange(account, s3, bucketName, key, (2 * partSize) - 100, 100);
 
-      // Verify get for partSize bytes starting from the last 100 bytes of first part
-      verifyGetWithRange(account, s3, bucketName, key, fileToVerify, (int) (partSize - 100), (int) partSize);
+        // Verify get for partSize bytes starting from the last 100 bytes of first part
+        verifier.verifyRange(account, s3, bucketName, key, partSize - 100, partSize);
 
-      // Verify get for two times the partSize bytes starting from the last 100 bytes of first part
-      verifyGetWithRange(account, s3, bucketName, key, fileToVerify, (int) (partSize - 100), (int) (2 * partSize));
+        // Verify get for two times the partSize bytes starting from the last 100 bytes of first part
+        verifier.verifyRange(account, s3, bucketName, key, partSize - 100, 2 * partSize);
+      }
 
     } catch (AmazonServiceException ase) {
       printException(ase);
@@ -737,51 +770,13 @@ public class S3MultiPartUploadTests {
     }
   }
 
-  private void verifyGetWithRange(String ownerName, AmazonS3 s3, String bucket, String key, File fileToVerify, int offset, int length)
-      throws IOException, NoSuchAlgorithmException {
-    BufferedInputStream bis = new BufferedInputStream(new FileInputStream(fileToVerify));
-    S3Object s3Object = null;
-    ByteArrayOutputStream baos = new ByteArrayOutputStream();
-    try {
-      byte[] sourceBuffer = new byte[length];
-      bis.skip(offset);
-      bis.read(sourceBuffer, 0, length);
-      String sourceMd5 = BinaryUtils.toHex(Md5Utils.computeMD5Hash(sourceBuffer));
-
-      print(ownerName + ": Getting object " + key + " with range " + offset + "-" + (offset + length - 1));
-      s3Object = s3.getObject(new GetObjectRequest(bucket, key).withRange(offset, offset + length - 1));
-      ObjectMetadata objectMetadata = s3Object.getObjectMetadata();
-
-      assertTrue("Expected " + length + " bytes but got " + objectMetadata.getContentLength() + " bytes", objectMetadata.getContentLength() == length);
-
-      byte[] readBuffer = new byte[1024 * 10];
-      int bytesRead;
-      while ((bytesRead = s3Object.getObjectContent().read(readBuffer)) > -1) {
-        baos.write(readBuffer, 0, bytesRead);
-      }
-      byte[] getBuffer = baos.toByteArray();
-      String getMd5 = BinaryUtils.toHex(Md5Utils.computeMD5Hash(getBuffer));
-
-      assertTrue("Expected md5 to be " + sourceMd5 + " but got " + getMd5, sourceMd5.equals(getMd5));
-      assertTrue("Mismatch in source and fetched data", Arrays.equals(sourceBuffer, getBuffer));
-    } finally {
-      bis.close();
-      try {
-        s3Object.getObjectContent().close();
-      } catch (Exception e) {
-      }
-      baos.close();
-      baos = null;
-    }
-  }
-
   @Test
   public void cannedACL() throws Exception {
     testInfo(this.getClass().getSimpleName() + " - cannedACL");
     try {
       final String key = eucaUUID();
       List<PartETag> partETags = Lists.newArrayList();
-      long partSize = randomBytes.length;
+      long partSize = payload.getSize();
 
       // Inititate mpu with canned ACL
       print(account + ": Initiating multipart upload for object " + key + " in bucket " + bucketName);
@@ -794,7 +789,7 @@ public class S3MultiPartUploadTests {
             + ", part number " + partNumber);
         partETags.add(s3.uploadPart(
             new UploadPartRequest().withBucketName(bucketName).withKey(key).withUploadId(initiateMpuResult.getUploadId()).withPartNumber(partNumber)
-                .withInputStream(new ByteArrayInputStream(randomBytes)).withPartSize(partSize)).getPartETag());
+                .withInputStream(payload.stream()).withPartSize(partSize)).getPartETag());
       }
 
       // Complete mpu
@@ -821,7 +816,7 @@ public class S3MultiPartUploadTests {
     try {
       final String key = eucaUUID();
       List<PartETag> partETags = Lists.newArrayList();
-      long partSize = randomBytes.length;
+      long partSize = payload.getSize();
 
       Grant ownerGrant = new Grant(new CanonicalGrantee(ownerId), Permission.FullControl);
       AccessControlList acl = new AccessControlList();
@@ -838,7 +833,7 @@ public class S3MultiPartUploadTests {
             + ", part number " + partNumber);
         partETags.add(s3.uploadPart(
             new UploadPartRequest().withBucketName(bucketName).withKey(key).withUploadId(initiateMpuResult.getUploadId()).withPartNumber(partNumber)
-                .withInputStream(new ByteArrayInputStream(randomBytes)).withPartSize(partSize)).getPartETag());
+                .withInputStream(payload.stream()).withPartSize(partSize)).getPartETag());
       }
 
       // Complete mpu
@@ -866,7 +861,7 @@ public class S3MultiPartUploadTests {
     try {
       final String key = eucaUUID();
       List<PartETag> partETags = Lists.newArrayList();
-      long partSize = randomBytes.length;
+      long partSize = payload.getSize();
 
       ObjectMetadata objectMetadata = new ObjectMetadata();
       Map<String, String> userMetadataMap = new HashMap<String, String>();
@@ -885,7 +880,7 @@ public class S3MultiPartUploadTests {
             + ", part number " + partNumber);
         partETags.add(s3.uploadPart(
             new UploadPartRequest().withBucketName(bucketName).withKey(key).withUploadId(initiateMpuResult.getUploadId()).withPartNumber(partNumber)
-                .withInputStream(new ByteArrayInputStream(randomBytes)).withPartSize(partSize)).getPartETag());
+                .withInputStream(payload.stream()).withPartSize(partSize)).getPartETag());
       }
 
       // Complete mpu
@@ -934,7 +929,7 @@ public class S3MultiPartUploadTests {
       final String key = eucaUUID();
       final String copyKey = eucaUUID();
       List<PartETag> partETags = Lists.newArrayList();
-      long partSize = randomBytes.length;
+      long partSize = payload.getSize();
 
       // Inititate mpu
       print(account + ": Initiating multipart upload for object " + key + " in bucket " + bucketName);
@@ -946,7 +941,7 @@ public class S3MultiPartUploadTests {
             + ", part number " + partNumber);
         partETags.add(s3.uploadPart(
             new UploadPartRequest().withBucketName(bucketName).withKey(key).withUploadId(initiateMpuResult.getUploadId()).withPartNumber(partNumber)
-                .withInputStream(new ByteArrayInputStream(randomBytes)).withPartSize(partSize)).getPartETag());
+                .withInputStream(payload.stream()).withPartSize(partSize)).getPartETag());
       }
 
       // Complete mpu
@@ -1057,7 +1052,7 @@ public class S3MultiPartUploadTests {
 
       final String key = eucaUUID();
       List<PartETag> partETags = Lists.newArrayList();
-      long partSize = randomBytes.length;
+      long partSize = payload.getSize();
 
       // Inititate mpu as account B
       print(accountB + ": Initiating multipart upload for object " + key + " in bucket " + bucketName);
@@ -1070,7 +1065,7 @@ public class S3MultiPartUploadTests {
             + ", part number " + partNumber);
         partETags.add(s3ClientB.uploadPart(
             new UploadPartRequest().withBucketName(bucketName).withKey(key).withUploadId(initiateMpuResult.getUploadId()).withPartNumber(partNumber)
-                .withInputStream(new ByteArrayInputStream(randomBytes)).withPartSize(partSize)).getPartETag());
+                .withInputStream(payload.stream()).withPartSize(partSize)).getPartETag());
       }
 
       // Try uploading part as account C
@@ -1080,7 +1075,7 @@ public class S3MultiPartUploadTests {
             + ", part number " + partNumber);
         s3ClientC.uploadPart(
             new UploadPartRequest().withBucketName(bucketName).withKey(key).withUploadId(initiateMpuResult.getUploadId()).withPartNumber(partNumber)
-                .withInputStream(new ByteArrayInputStream(randomBytes)).withPartSize(partSize)).getPartETag();
+                .withInputStream(payload.stream()).withPartSize(partSize)).getPartETag();
       } catch (AmazonServiceException ase) {
         caughtError = true;
         assertTrue("Expected HTTP status code to be 403 but got " + ase.getStatusCode(), ase.getStatusCode() == 403);
@@ -1122,7 +1117,7 @@ public class S3MultiPartUploadTests {
             + ", part number " + partNumber);
         s3.uploadPart(
             new UploadPartRequest().withBucketName(bucketName).withKey(key).withUploadId(initiateMpuResult.getUploadId()).withPartNumber(partNumber)
-                .withInputStream(new ByteArrayInputStream(randomBytes)).withPartSize(partSize)).getPartETag();
+                .withInputStream(payload.stream()).withPartSize(partSize)).getPartETag();
       } catch (AmazonServiceException ase) {
         caughtError = true;
         assertTrue("Expected HTTP status code to be 403 but got " + ase.getStatusCode(), ase.getStatusCode() == 403);
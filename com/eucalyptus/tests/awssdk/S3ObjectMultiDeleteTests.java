@@ -1,7 +1,6 @@
 package com.eucalyptus.tests.awssdk;
 
 import static com.eucalyptus.tests.awssdk.N4j.assertThat;
-import static com.eucalyptus.tests.awssdk.N4j.initS3ClientWithNewAccount;
 import static com.eucalyptus.tests.awssdk.N4j.print;
 import static com.eucalyptus.tests.awssdk.N4j.testInfo;
 import static org.testng.AssertJUnit.assertTrue;
@@ -56,6 +55,7 @@ public class S3ObjectMultiDeleteTests {
   private static final File fileToPut = new File("test.dat");
   private static AmazonS3 s3ClientA = null;
   private static AmazonS3 s3ClientB = null;
+  private static List<AccountPool.Account> accounts = null;
   private static String accountA = null;
   private static String accountB = null;
   private static Owner ownerA = null;
@@ -72,10 +72,11 @@ public class S3ObjectMultiDeleteTests {
     print("### PRE SUITE SETUP - " + this.getClass().getSimpleName());
 
     try {
-      accountA = this.getClass().getSimpleName().toLowerCase() + "a";
-      accountB = this.getClass().getSimpleName().toLowerCase() + "b";
-      s3ClientA = initS3ClientWithNewAccount(accountA, "admin");
-      s3ClientB = initS3ClientWithNewAccount(accountB, "admin");
+      accounts = AccountPool.acquire(2);
+      accountA = accounts.get(0).getName();
+      accountB = accounts.get(1).getName();
+      s3ClientA = accounts.get(0).getS3();
+      s3ClientB = accounts.get(1).getS3();
     } catch (Exception e) {
       try {
         teardown();
@@ -97,8 +98,8 @@ public class S3ObjectMultiDeleteTests {
   @AfterClass
   public void teardown() throws Exception {
     print("### POST SUITE CLEANUP - " + this.getClass().getSimpleName());
-    N4j.deleteAccount(accountA);
-    N4j.deleteAccount(accountB);
+    AccountPool.release(accounts);
+    accounts = null;
     s3ClientA = null;
     s3ClientB = null;
   }
@@ -470,6 +471,34 @@ public class S3ObjectMultiDeleteTests {
     }
   }
 
+  @Test
+  public void singleAccountManyKeys() throws Exception {
+    testInfo(this.getClass().getSimpleName() + " - singleAccountManyKeys");
+
+    try {
+      int maxKeys = 2000 + random.nextInt(1000); // Max keys 2000-2999, more than one multi delete request
+
+      /* Create bucket with Canned ACL Private */
+      createBucket(s3ClientA, ownerNameA, bucketName, CannedAccessControlList.Private, ownerIdA);
+
+      /* Put objects */
+      S3Seeder.Manifest manifest = new S3Seeder(s3ClientA, bucketName).withThreads(16).withObjectSize(fileToPut.length()).seed(maxKeys);
+      assertTrue("Expected all " + maxKeys + " objects to be put but " + manifest.getFailures() + " failed", manifest.getFailures() == 0);
+
+      /* Multi delete objects quietly, 1000 keys at a time */
+      for (List<KeyVersion> keyVersions : manifest.deleteBatches(1000)) {
+        DeleteObjectsResult deleteObjectsResult = deleteObjects(s3ClientA, ownerNameA, bucketName, true, keyVersions);
+        verifyDeletedObjectsResults(deleteObjectsResult, null);
+      }
+
+      /* Verify bucket is empty */
+      verifyBucketIsEmpty(s3ClientA, ownerNameA, bucketName);
+    } catch (AmazonServiceException ase) {
+      printException(ase);
+      assertThat(false, "Failed to run singleAccountManyKeys");
+    }
+  }
+
   private void printException(AmazonServiceException ase) {
     ase.printStackTrace();
     print("Caught Exception: " + ase.getMessage());
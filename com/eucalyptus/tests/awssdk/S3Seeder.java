@@ -0,0 +1,381 @@
+package com.eucalyptus.tests.awssdk;
+
+import static com.eucalyptus.tests.awssdk.N4j.print;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.DeleteObjectsRequest.KeyVersion;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PutObjectRequest;
+import com.amazonaws.services.s3.model.PutObjectResult;
+
+/**
+ * <p>
+ * Seeds a bucket with a large number of objects, or versions of objects, for test fixtures.
+ * </p>
+ *
+ * <p>
+ * Puts run on a fixed pool of threads with a bounded queue, when the queue is full the seeding thread runs the put itself so only a
+ * bounded number of puts are ever pending. Keys are named from their index so the result is a {@link Manifest} holding the key naming,
+ * the count and the failures rather than a list of keys or cleanup tasks.
+ * </p>
+ *
+ * <pre>
+ * S3Seeder.Manifest manifest = new S3Seeder(s3, bucket).withThreads(32).withPrefix("seed/").seed(100000);
+ * </pre>
+ */
+class S3Seeder {
+
+  /**
+   * Names the key for an index.
+   */
+  interface KeyNamer {
+    String key(int index);
+  }
+
+  private final AmazonS3 s3;
+  private final String bucket;
+  private int threads = 16;
+  private int queueDepth = 1000;
+  private long objectSize = 0;
+  private Map<String, String> userMetadata;
+  private boolean recordVersionIds = false;
+  private KeyNamer namer = null;
+  private String prefix = "seed/";
+
+  S3Seeder(AmazonS3 s3, String bucket) {
+    this.s3 = s3;
+    this.bucket = bucket;
+  }
+
+  S3Seeder withThreads(int threads) {
+    this.threads = Math.max(1, threads);
+    return this;
+  }
+
+  /**
+   * @param queueDepth the number of puts that may wait for a thread
+   */
+  S3Seeder withQueueDepth(int queueDepth) {
+    this.queueDepth = Math.max(1, queueDepth);
+    return this;
+  }
+
+  S3Seeder withObjectSize(long objectSize) {
+    this.objectSize = objectSize;
+    return this;
+  }
+
+  S3Seeder withUserMetadata(Map<String, String> userMetadata) {
+    this.userMetadata = userMetadata;
+    return this;
+  }
+
+  /**
+   * @param recordVersionIds true to keep the version id of every put in the manifest
+   */
+  S3Seeder withVersionIds(boolean recordVersionIds) {
+    this.recordVersionIds = recordVersionIds;
+    return this;
+  }
+
+  /**
+   * Name keys as the prefix followed by the zero padded index, so keys list in index order.
+   */
+  S3Seeder withPrefix(String prefix) {
+    this.prefix = prefix;
+    this.namer = null;
+    return this;
+  }
+
+  S3Seeder withKeyNamer(KeyNamer namer) {
+    this.namer = namer;
+    return this;
+  }
+
+  Manifest seed(int count) throws InterruptedException {
+    return seed(count, 1);
+  }
+
+  /**
+   * Put count keys with the given number of versions of each. Versions of a key are put one after another.
+   *
+   * @return the manifest of the seeded keys
+   */
+  Manifest seed(final int count, final int versions) throws InterruptedException {
+    final KeyNamer keyNamer = namer != null ? namer : new PaddedKeyNamer(prefix, count);
+    final BitSet failed = new BitSet(count);
+    final AtomicReferenceArray<String> versionIds = recordVersionIds ? new AtomicReferenceArray<String>(count * versions) : null;
+    final LatencyStats putStats = new LatencyStats("PutObject");
+    final Payload payload = Payload.random(objectSize);
+    print("Seeding " + count + " keys with " + versions + " versions each into bucket " + bucket + " using " + threads + " threads");
+
+    final long startTime = System.currentTimeMillis();
+    final ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<Runnable>(queueDepth), new ThreadPoolExecutor.CallerRunsPolicy());
+    try {
+      for (int i = 0; i < count; i++) {
+        final int index = i;
+        executor.execute(new Runnable() {
+          @Override
+          public void run() {
+            final String key = keyNamer.key(index);
+            for (int version = 0; version < versions; version++) {
+              final ObjectMetadata metadata = new ObjectMetadata();
+              metadata.setContentLength(objectSize);
+              if (userMetadata != null) {
+                metadata.setUserMetadata(userMetadata);
+              }
+              final long start = System.nanoTime();
+              try {
+                final PutObjectResult result = s3.putObject(new PutObjectRequest(bucket, key, payload.stream(), metadata));
+                putStats.record(System.nanoTime() - start);
+                if (versionIds != null) {
+                  versionIds.set(index * versions + version, result.getVersionId());
+                }
+              } catch (Exception e) {
+                putStats.recordError();
+                synchronized (failed) {
+                  failed.set(index);
+                }
+              }
+            }
+          }
+        });
+      }
+    } finally {
+      executor.shutdown();
+      while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+        print("Waiting for " + (executor.getQueue().size() + executor.getActiveCount()) + " puts to bucket " + bucket);
+      }
+    }
+
+    final Manifest manifest = new Manifest(bucket, keyNamer, count, versions, failed, toArray(versionIds), putStats,
+        System.currentTimeMillis() - startTime);
+    print("Seeded bucket " + bucket + ": " + manifest);
+    return manifest;
+  }
+
+  private static String[] toArray(AtomicReferenceArray<String> versionIds) {
+    if (versionIds == null) {
+      return null;
+    }
+    final String[] array = new String[versionIds.length()];
+    for (int i = 0; i < array.length; i++) {
+      array[i] = versionIds.get(i);
+    }
+    return array;
+  }
+
+  private static class PaddedKeyNamer implements KeyNamer {
+    private final String prefix;
+    private final String format;
+
+    private PaddedKeyNamer(String prefix, int count) {
+      this.prefix = prefix;
+      this.format = "%0" + String.valueOf(Math.max(0, count - 1)).length() + "d";
+    }
+
+    @Override
+    public String key(int index) {
+      return prefix + String.format(format, index);
+    }
+  }
+
+  /**
+   * The keys in a bucket seeded by an {@link S3Seeder}.
+   */
+  static class Manifest implements Iterable<String> {
+    private final String bucket;
+    private final KeyNamer namer;
+    private final int count;
+    private final int versions;
+    private final BitSet failed;
+    private final String[] versionIds;
+    private final LatencyStats putStats;
+    private final long elapsed;
+
+    private Manifest(String bucket, KeyNamer namer, int count, int versions, BitSet failed, String[] versionIds, LatencyStats putStats,
+        long elapsed) {
+      this.bucket = bucket;
+      this.namer = namer;
+      this.count = count;
+      this.versions = versions;
+      this.failed = failed;
+      this.versionIds = versionIds;
+      this.putStats = putStats;
+      this.elapsed = elapsed;
+    }
+
+    String getBucket() {
+      return bucket;
+    }
+
+    /**
+     * @return the number of keys seeded, including any that failed
+     */
+    int size() {
+      return count;
+    }
+
+    int getVersions() {
+      return versions;
+    }
+
+    String key(int index) {
+      return namer.key(index);
+    }
+
+    /**
+     * @return true if every version of the key was put
+     */
+    boolean isSeeded(int index) {
+      return !failed.get(index);
+    }
+
+    int getFailures() {
+      return failed.cardinality();
+    }
+
+    /**
+     * @return the version id of a put, if version ids were recorded
+     */
+    String getVersionId(int index, int version) {
+      if (versionIds == null) {
+        throw new IllegalStateException("Version ids not recorded for bucket " + bucket);
+      }
+      return versionIds[index * versions + version];
+    }
+
+    /**
+     * Keys from index from (inclusive) to index to (exclusive), with version ids when recorded. When version ids are recorded there is an
+     * entry for each version, up to (to - from) x versions entries, so use {@link #deleteBatches(int)} to build DeleteObjects requests.
+     *
+     * @return keys from index from (inclusive) to index to (exclusive), with version ids when recorded
+     */
+    List<KeyVersion> keyVersions(int from, int to) {
+      final List<KeyVersion> keyVersions = new ArrayList<>();
+      for (int index = from; index < Math.min(to, count); index++) {
+        if (versionIds == null) {
+          keyVersions.add(new KeyVersion(key(index)));
+        } else {
+          for (int version = 0; version < versions; version++) {
+            final String versionId = getVersionId(index, version);
+            if (versionId != null) {
+              keyVersions.add(new KeyVersion(key(index), versionId));
+            }
+          }
+        }
+      }
+      return keyVersions;
+    }
+
+    /**
+     * All keys, with version ids when recorded, in batches of at most batchSize entries for DeleteObjects requests.
+     *
+     * @param batchSize the entries per batch, at most {@link CleanupExecutor#MAX_KEYS_PER_DELETE}
+     */
+    Iterable<List<KeyVersion>> deleteBatches(final int batchSize) {
+      if (batchSize < 1 || batchSize > CleanupExecutor.MAX_KEYS_PER_DELETE) {
+        throw new IllegalArgumentException("Batch size " + batchSize + " not between 1 and " + CleanupExecutor.MAX_KEYS_PER_DELETE);
+      }
+      return new Iterable<List<KeyVersion>>() {
+        @Override
+        public Iterator<List<KeyVersion>> iterator() {
+          return new Iterator<List<KeyVersion>>() {
+            private int index = 0;
+            private int version = 0;
+
+            @Override
+            public boolean hasNext() {
+              skipUnrecorded();
+              return index < count;
+            }
+
+            @Override
+            public List<KeyVersion> next() {
+              if (!hasNext()) {
+                throw new NoSuchElementException();
+              }
+              final List<KeyVersion> batch = new ArrayList<>(batchSize);
+              while (batch.size() < batchSize && hasNext()) {
+                if (versionIds == null) {
+                  batch.add(new KeyVersion(key(index++)));
+                } else {
+                  batch.add(new KeyVersion(key(index), getVersionId(index, version)));
+                  if (++version == versions) {
+                    version = 0;
+                    index++;
+                  }
+                }
+              }
+              return batch;
+            }
+
+            private void skipUnrecorded() {
+              while (versionIds != null && index < count && getVersionId(index, version) == null) {
+                if (++version == versions) {
+                  version = 0;
+                  index++;
+                }
+              }
+            }
+
+            @Override
+            public void remove() {
+              throw new UnsupportedOperationException();
+            }
+          };
+        }
+      };
+    }
+
+    LatencyStats getPutStats() {
+      return putStats;
+    }
+
+    long getElapsed() {
+      return elapsed;
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+      return new Iterator<String>() {
+        private int next = 0;
+
+        @Override
+        public boolean hasNext() {
+          return next < count;
+        }
+
+        @Override
+        public String next() {
+          if (next >= count) {
+            throw new NoSuchElementException();
+          }
+          return key(next++);
+        }
+
+        @Override
+        public void remove() {
+          throw new UnsupportedOperationException();
+        }
+      };
+    }
+
+    @Override
+    public String toString() {
+      return count + " keys x " + versions + " versions, " + getFailures() + " failed, " + putStats.summary(elapsed);
+    }
+  }
+}
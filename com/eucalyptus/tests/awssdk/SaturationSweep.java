@@ -0,0 +1,307 @@
+package com.eucalyptus.tests.awssdk;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static com.eucalyptus.tests.awssdk.N4j.print;
+
+/**
+ * Finds the throughput knee of an operation by running it at increasing
+ * concurrency until latency degrades.
+ *
+ * Each level of the concurrency matrix runs that many clients in a closed
+ * loop for a fixed time. The sweep stops at the first level where p99
+ * latency is more than p99Factor times the p99 at the first level, exceeds
+ * maxP99, or where more than maxErrorRate of requests fail. The knee is the
+ * point before that with the most power, throughput divided by p99 latency,
+ * which is where more concurrency stops buying throughput without a
+ * matching cost in latency.
+ *
+ * <pre>
+ * SaturationSweep sweep = new SaturationSweep("PutObject").withSystemProperties();
+ * SaturationSweep.Curve curve = sweep.run("64k", new SaturationSweep.Operation() {
+ *     public void execute(int client, long sequence) { s3.putObject(...); }
+ * });
+ * SaturationSweep.writeCsv(new File("saturation.csv"), Collections.singletonList(curve));
+ * </pre>
+ */
+class SaturationSweep {
+    private final String name;
+    private int[] concurrency = {1, 2, 4, 8, 16, 32, 64, 128};
+    private long duration = TimeUnit.SECONDS.toMillis(30);
+    private double p99Factor = 5.0;
+    private double maxP99 = 0;
+    private double maxErrorRate = 0.01;
+
+    /**
+     * A request made by a simulated client.
+     */
+    interface Operation {
+        /**
+         * @param client the number of the client making the request, from 0
+         * @param sequence the number of the request for this client, from 0
+         */
+        void execute(int client, long sequence) throws Exception;
+    }
+
+    SaturationSweep(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Configure from system properties: load.sweep.concurrency, load.sweep.duration (seconds per level), load.sweep.p99factor,
+     * load.sweep.maxp99 (ms) and load.sweep.maxerrors (fraction).
+     */
+    SaturationSweep withSystemProperties() {
+        if (System.getProperty("load.sweep.concurrency") != null) {
+            withConcurrency(System.getProperty("load.sweep.concurrency"));
+        }
+        withDuration(Long.getLong("load.sweep.duration", TimeUnit.MILLISECONDS.toSeconds(duration)), TimeUnit.SECONDS);
+        withP99Factor(Double.parseDouble(System.getProperty("load.sweep.p99factor", String.valueOf(p99Factor))));
+        withMaxP99(Double.parseDouble(System.getProperty("load.sweep.maxp99", String.valueOf(maxP99))));
+        withMaxErrorRate(Double.parseDouble(System.getProperty("load.sweep.maxerrors", String.valueOf(maxErrorRate))));
+        return this;
+    }
+
+    /**
+     * @param spec comma separated concurrency levels in increasing order, e.g. "1,4,16,64"
+     */
+    SaturationSweep withConcurrency(String spec) {
+        final String[] levels = spec.split(",");
+        concurrency = new int[levels.length];
+        for (int i = 0; i < levels.length; i++) {
+            concurrency[i] = Math.max(1, Integer.parseInt(levels[i].trim()));
+        }
+        return this;
+    }
+
+    /**
+     * @param duration the time to run each concurrency level
+     */
+    SaturationSweep withDuration(long duration, TimeUnit unit) {
+        this.duration = unit.toMillis(duration);
+        return this;
+    }
+
+    /**
+     * @param p99Factor stop when p99 latency grows by more than this factor over the first level
+     */
+    SaturationSweep withP99Factor(double p99Factor) {
+        this.p99Factor = p99Factor;
+        return this;
+    }
+
+    /**
+     * @param maxP99 stop when p99 latency is over this many ms, 0 for no limit
+     */
+    SaturationSweep withMaxP99(double maxP99) {
+        this.maxP99 = maxP99;
+        return this;
+    }
+
+    /**
+     * @param maxErrorRate stop when more than this fraction of requests fail
+     */
+    SaturationSweep withMaxErrorRate(double maxErrorRate) {
+        this.maxErrorRate = maxErrorRate;
+        return this;
+    }
+
+    /**
+     * Sweep the concurrency levels for the operation.
+     *
+     * @param parameter the other dimension of the matrix for this curve, e.g. the object size
+     */
+    Curve run(String parameter, Operation operation) throws Exception {
+        final Curve curve = new Curve(name, parameter);
+        print("Saturation sweep of " + name + " " + parameter + " at concurrency " + Arrays.toString(concurrency));
+        double baseline = 0;
+        for (final int level : concurrency) {
+            final Point point = runLevel(parameter, level, operation);
+            curve.points.add(point);
+            print(point.toString());
+            if (baseline == 0) {
+                baseline = point.getP99();
+            }
+            if (point.getErrorRate() > maxErrorRate) {
+                curve.stopReason = String.format("error rate %.3f over %.3f at concurrency %d", point.getErrorRate(), maxErrorRate, level);
+            } else if (maxP99 > 0 && point.getP99() > maxP99) {
+                curve.stopReason = String.format("p99 %.2fms over %.2fms at concurrency %d", point.getP99(), maxP99, level);
+            } else if (baseline > 0 && point.getP99() > baseline * p99Factor) {
+                curve.stopReason = String.format("p99 %.2fms over %.1f times %.2fms at concurrency %d", point.getP99(), p99Factor, baseline,
+                        level);
+            } else {
+                if (curve.knee == null || point.getPower() > curve.knee.getPower()) {
+                    curve.knee = point;
+                }
+                continue;
+            }
+            break;
+        }
+        print(curve.toString());
+        return curve;
+    }
+
+    private Point runLevel(String parameter, int level, final Operation operation) throws Exception {
+        final LatencyStats stats = new LatencyStats(name + " " + parameter + " x" + level);
+        final long deadline = System.currentTimeMillis() + duration;
+        final ExecutorService executor = LoadExecutors.newClientExecutor(level);
+        final long start = System.currentTimeMillis();
+        try {
+            final List<Future<?>> clients = new ArrayList<>();
+            for (int i = 0; i < level; i++) {
+                final int client = i;
+                clients.add(executor.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        for (long sequence = 0; System.currentTimeMillis() < deadline; sequence++) {
+                            final long requestStart = System.nanoTime();
+                            try {
+                                operation.execute(client, sequence);
+                                stats.record(System.nanoTime() - requestStart);
+                            } catch (Exception e) {
+                                stats.recordError();
+                            }
+                        }
+                    }
+                }));
+            }
+            for (final Future<?> client : clients) {
+                client.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return new Point(parameter, level, stats, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Write curves as CSV, one row per point with the knee marked.
+     */
+    static void writeCsv(File file, List<Curve> curves) throws IOException {
+        try (PrintWriter out = new PrintWriter(new FileWriter(file))) {
+            out.println("operation,parameter,concurrency,requests,errors,throughput,p50_ms,p99_ms,p999_ms,max_ms,knee");
+            for (final Curve curve : curves) {
+                for (final Point point : curve.points) {
+                    final LatencyStats stats = point.stats;
+                    out.println(String.format(Locale.ROOT, "%s,%s,%d,%d,%d,%.2f,%.3f,%.3f,%.3f,%.3f,%s", curve.name, curve.parameter,
+                            point.concurrency, stats.getCount(), stats.getErrors(), point.getThroughput(), stats.getPercentile(50),
+                            point.getP99(), stats.getPercentile(99.9), stats.getMax(), point == curve.knee));
+                }
+            }
+        }
+        print("Wrote saturation curves to " + file.getAbsolutePath());
+    }
+
+    /**
+     * Throughput and latency at one concurrency level.
+     */
+    static class Point {
+        private final String parameter;
+        private final int concurrency;
+        private final LatencyStats stats;
+        private final long elapsed;
+
+        private Point(String parameter, int concurrency, LatencyStats stats, long elapsed) {
+            this.parameter = parameter;
+            this.concurrency = concurrency;
+            this.stats = stats;
+            this.elapsed = elapsed;
+        }
+
+        String getParameter() {
+            return parameter;
+        }
+
+        int getConcurrency() {
+            return concurrency;
+        }
+
+        LatencyStats getStats() {
+            return stats;
+        }
+
+        /**
+         * @return successful requests per second
+         */
+        double getThroughput() {
+            return stats.getThroughput(elapsed);
+        }
+
+        /**
+         * @return p99 latency in ms
+         */
+        double getP99() {
+            return stats.getPercentile(99);
+        }
+
+        double getErrorRate() {
+            final long total = stats.getCount() + stats.getErrors();
+            return total == 0 ? 1 : (double) stats.getErrors() / total;
+        }
+
+        /**
+         * @return throughput divided by p99 latency
+         */
+        double getPower() {
+            return getP99() <= 0 ? 0 : getThroughput() / getP99();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("  concurrency %d: %s", concurrency, stats.summary(elapsed));
+        }
+    }
+
+    /**
+     * The points of a sweep, the knee and why the sweep stopped.
+     */
+    static class Curve {
+        private final String name;
+        private final String parameter;
+        private final List<Point> points = new ArrayList<>();
+        private Point knee;
+        private String stopReason;
+
+        private Curve(String name, String parameter) {
+            this.name = name;
+            this.parameter = parameter;
+        }
+
+        String getName() {
+            return name;
+        }
+
+        String getParameter() {
+            return parameter;
+        }
+
+        List<Point> getPoints() {
+            return points;
+        }
+
+        /**
+         * @return the point with the most power before latency degraded, or null if the first level degraded
+         */
+        Point getKnee() {
+            return knee;
+        }
+
+        /**
+         * @return why the sweep stopped early, or null if all levels ran
+         */
+        String getStopReason() {
+            return stopReason;
+        }
+
+        @Override
+        public String toString() {
+            return name + " " + parameter + ": " + (knee == null ? "no knee found" : String.format(
+                    "knee at concurrency %d, %.1f ops/s, p99 %.2fms", knee.concurrency, knee.getThroughput(), knee.getP99()))
+                    + (stopReason == null ? ", all levels within limits" : ", stopped on " + stopReason);
+        }
+    }
+}
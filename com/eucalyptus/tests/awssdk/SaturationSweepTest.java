@@ -0,0 +1,169 @@
+package com.eucalyptus.tests.awssdk;
+
+import static com.eucalyptus.tests.awssdk.N4j.eucaUUID;
+import static com.eucalyptus.tests.awssdk.N4j.print;
+import static com.eucalyptus.tests.awssdk.N4j.testInfo;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.amazonaws.services.cloudwatch.AmazonCloudWatch;
+import com.amazonaws.services.cloudwatch.model.Dimension;
+import com.amazonaws.services.cloudwatch.model.MetricDatum;
+import com.amazonaws.services.cloudwatch.model.PutMetricDataRequest;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.S3Object;
+
+/**
+ * <p>
+ * Finds the throughput knee of S3 and CloudWatch operations with {@link SaturationSweep}. Not part of the functional suites, run it with
+ * the saturation target, e.g.
+ * </p>
+ *
+ * <pre>
+ * ant saturation -Dload.sweep.concurrency=1,2,4,8,16,32,64 -Dload.sweep.duration=60 -Dload.sweep.sizes=4k,1m,16m
+ * </pre>
+ *
+ * <p>
+ * S3 PutObject and GetObject are swept for each of load.sweep.sizes and CloudWatch PutMetricData for each of load.sweep.batches metric
+ * data per request. The curves for all operations are written to the CSV file load.sweep.csv, see {@link SaturationSweep} for the
+ * other settings.
+ * </p>
+ */
+public class SaturationSweepTest {
+
+  private static final int MAX_METRIC_DATA = 20;
+
+  private static CloudContext context = null;
+  private static AmazonS3 s3 = null;
+  private static String account = null;
+  private static String bucketName = null;
+  private static final List<SaturationSweep.Curve> curves = new ArrayList<>();
+
+  public static void main(String[] args) throws Exception {
+    final SaturationSweepTest test = new SaturationSweepTest();
+    test.init();
+    try {
+      test.s3();
+      test.cloudWatch();
+    } finally {
+      test.teardown();
+    }
+  }
+
+  @BeforeClass
+  public void init() throws Exception {
+    print("### PRE SUITE SETUP - " + this.getClass().getSimpleName());
+    N4j.getCloudInfo();
+    context = CloudContext.forPooledAccount(AccountPool.acquire(1).get(0)).bind();
+    account = context.accountName;
+    s3 = context.s3;
+    bucketName = eucaUUID();
+    S3Utils.createBucket(s3, account, bucketName, S3Utils.BUCKET_CREATION_RETRIES);
+  }
+
+  @AfterClass
+  public void teardown() throws Exception {
+    print("### POST SUITE CLEANUP - " + this.getClass().getSimpleName());
+    synchronized (curves) {
+      if (!curves.isEmpty()) {
+        SaturationSweep.writeCsv(new File(System.getProperty("load.sweep.csv", "saturation.csv")), curves);
+      }
+    }
+    if (bucketName != null) {
+      print(account + ": Deleting objects and bucket " + bucketName);
+      final CleanupExecutor cleanupExecutor = new CleanupExecutor();
+      cleanupExecutor.purgeBucket(s3, bucketName);
+      cleanupExecutor.run();
+    }
+    if (context != null) {
+      context.close();
+    }
+    context = null;
+    s3 = null;
+  }
+
+  @Test
+  public void s3() throws Exception {
+    testInfo(this.getClass().getSimpleName() + " - s3");
+    for (final String spec : System.getProperty("load.sweep.sizes", "4k,1m").split(",")) {
+      final long size = S3LoadGenerator.parseSize(spec);
+      final Payload payload = Payload.random(size);
+      final String prefix = "sweep/" + spec.trim() + "/";
+
+      record(new SaturationSweep("PutObject").withSystemProperties().run(spec.trim(), new SaturationSweep.Operation() {
+        @Override
+        public void execute(int client, long sequence) {
+          s3.putObject(bucketName, prefix + client, payload.stream(), metadata(size));
+        }
+      }));
+
+      final String key = prefix + "get";
+      s3.putObject(bucketName, key, payload.stream(), metadata(size));
+      record(new SaturationSweep("GetObject").withSystemProperties().run(spec.trim(), new SaturationSweep.Operation() {
+        @Override
+        public void execute(int client, long sequence) throws IOException {
+          drain(s3.getObject(bucketName, key));
+        }
+      }));
+    }
+  }
+
+  @Test
+  public void cloudWatch() throws Exception {
+    testInfo(this.getClass().getSimpleName() + " - cloudWatch");
+    final String namespace = "N4j/Saturation/" + eucaUUID();
+    // sweep as the admin user, N4j.cw() would return the bound account's client on this thread
+    final AmazonCloudWatch cw = N4j.cw;
+    for (final String spec : System.getProperty("load.sweep.batches", "1,10,20").split(",")) {
+      final int batch = Math.min(MAX_METRIC_DATA, Math.max(1, Integer.parseInt(spec.trim())));
+      record(new SaturationSweep("PutMetricData").withSystemProperties().run(batch + " metrics", new SaturationSweep.Operation() {
+        @Override
+        public void execute(int client, long sequence) {
+          final List<MetricDatum> metricData = new ArrayList<>();
+          for (int i = 0; i < batch; i++) {
+            metricData.add(new MetricDatum()
+                .withMetricName("Metric" + i)
+                .withDimensions(new Dimension().withName("client").withValue(String.valueOf(client)))
+                .withTimestamp(new Date())
+                .withUnit("Count")
+                .withValue((double) sequence));
+          }
+          cw.putMetricData(new PutMetricDataRequest().withNamespace(namespace).withMetricData(metricData));
+        }
+      }));
+    }
+  }
+
+  private static void record(SaturationSweep.Curve curve) {
+    synchronized (curves) {
+      curves.add(curve);
+    }
+    assertTrue("Expected " + curve.getName() + " " + curve.getParameter() + " to complete requests at the first concurrency level",
+        curve.getPoints().get(0).getStats().getCount() > 0);
+  }
+
+  private static ObjectMetadata metadata(long size) {
+    final ObjectMetadata metadata = new ObjectMetadata();
+    metadata.setContentLength(size);
+    return metadata;
+  }
+
+  private static void drain(S3Object object) throws IOException {
+    final byte[] buffer = new byte[64 * 1024];
+    try (InputStream in = object.getObjectContent()) {
+      while (in.read(buffer) >= 0) {
+      }
+    }
+  }
+}
@@ -0,0 +1,197 @@
+package com.eucalyptus.tests.awssdk;
+
+import com.amazonaws.Request;
+import com.amazonaws.Response;
+import com.amazonaws.handlers.HandlerContextKey;
+import com.amazonaws.handlers.RequestHandler2;
+
+import java.io.*;
+import java.nio.charset.Charset;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.eucalyptus.tests.awssdk.N4j.print;
+
+/**
+ * Request handler that records latency, errors and bytes for each service
+ * operation called through the N4j clients.
+ *
+ * Request sizes are taken from the Content-Length header when there is one
+ * and otherwise estimated from the request parameters (query APIs).
+ */
+class SdkMetrics extends RequestHandler2 {
+    static final SdkMetrics HANDLER = new SdkMetrics();
+
+    private static final HandlerContextKey<Long> START_TIME = new HandlerContextKey<>("N4jStartTime");
+    private static final ConcurrentMap<String, OperationMetrics> metrics = new ConcurrentHashMap<>();
+
+    static class OperationMetrics {
+        private final String service;
+        private final String operation;
+        private final LatencyStats latency;
+        private final AtomicLong bytesIn = new AtomicLong();
+        private final AtomicLong bytesOut = new AtomicLong();
+
+        private OperationMetrics(String service, String operation) {
+            this.service = service;
+            this.operation = operation;
+            this.latency = new LatencyStats(service + "." + operation);
+        }
+
+        String getService() {
+            return service;
+        }
+
+        String getOperation() {
+            return operation;
+        }
+
+        LatencyStats getLatency() {
+            return latency;
+        }
+
+        long getBytesIn() {
+            return bytesIn.get();
+        }
+
+        long getBytesOut() {
+            return bytesOut.get();
+        }
+    }
+
+    private SdkMetrics() {
+    }
+
+    @Override
+    public void beforeRequest(Request<?> request) {
+        request.addHandlerContext(START_TIME, System.nanoTime());
+    }
+
+    @Override
+    public void afterResponse(Request<?> request, Response<?> response) {
+        final Long start = request.getHandlerContext(START_TIME);
+        final OperationMetrics operation = operation(request);
+        if (start != null) {
+            operation.latency.record(System.nanoTime() - start);
+        }
+        operation.bytesOut.addAndGet(requestBytes(request));
+        if (response != null && response.getHttpResponse() != null) {
+            operation.bytesIn.addAndGet(contentLength(response.getHttpResponse().getHeaders()));
+        }
+    }
+
+    @Override
+    public void afterError(Request<?> request, Response<?> response, Exception e) {
+        final OperationMetrics operation = operation(request);
+        operation.latency.recordError();
+        operation.bytesOut.addAndGet(requestBytes(request));
+    }
+
+    /**
+     * @return metrics for all operations called so far, by service and operation
+     */
+    static List<OperationMetrics> getMetrics() {
+        final List<OperationMetrics> result = new ArrayList<>(metrics.values());
+        Collections.sort(result, new Comparator<OperationMetrics>() {
+            @Override
+            public int compare(OperationMetrics m1, OperationMetrics m2) {
+                return m1.latency.getName().compareTo(m2.latency.getName());
+            }
+        });
+        return result;
+    }
+
+    static void reset() {
+        metrics.clear();
+    }
+
+    /**
+     * Write sdk-metrics.json and sdk-metrics.csv to the given directory.
+     */
+    static void dump(File directory) throws IOException {
+        final List<OperationMetrics> all = getMetrics();
+        if (all.isEmpty()) return;
+        directory.mkdirs();
+        final Charset utf8 = Charset.forName("UTF-8");
+        final File csvFile = new File(directory, "sdk-metrics.csv");
+        try (Writer csv = new OutputStreamWriter(new FileOutputStream(csvFile), utf8)) {
+            csv.write("service,operation,count,errors,mean_ms,p50_ms,p90_ms,p99_ms,p999_ms,max_ms,bytes_in,bytes_out\n");
+            for (final OperationMetrics m : all) {
+                final LatencyStats l = m.latency;
+                csv.write(String.format(Locale.ROOT, "%s,%s,%d,%d,%.3f,%.3f,%.3f,%.3f,%.3f,%.3f,%d,%d\n",
+                        m.service, m.operation, l.getCount(), l.getErrors(), l.getMean(), l.getPercentile(50),
+                        l.getPercentile(90), l.getPercentile(99), l.getPercentile(99.9), l.getMax(),
+                        m.getBytesIn(), m.getBytesOut()));
+            }
+        }
+        final File jsonFile = new File(directory, "sdk-metrics.json");
+        try (Writer json = new OutputStreamWriter(new FileOutputStream(jsonFile), utf8)) {
+            json.write("[\n");
+            for (Iterator<OperationMetrics> it = all.iterator(); it.hasNext(); ) {
+                final OperationMetrics m = it.next();
+                final LatencyStats l = m.latency;
+                json.write(String.format(Locale.ROOT,
+                        "  {\"service\": \"%s\", \"operation\": \"%s\", \"count\": %d, \"errors\": %d, " +
+                                "\"latencyMs\": {\"mean\": %.3f, \"p50\": %.3f, \"p90\": %.3f, \"p99\": %.3f, " +
+                                "\"p999\": %.3f, \"max\": %.3f}, \"bytesIn\": %d, \"bytesOut\": %d}%s\n",
+                        m.service, m.operation, l.getCount(), l.getErrors(), l.getMean(), l.getPercentile(50),
+                        l.getPercentile(90), l.getPercentile(99), l.getPercentile(99.9), l.getMax(),
+                        m.getBytesIn(), m.getBytesOut(), it.hasNext() ? "," : ""));
+            }
+            json.write("]\n");
+        }
+        print("Wrote SDK metrics to " + csvFile + " and " + jsonFile);
+    }
+
+    private static OperationMetrics operation(Request<?> request) {
+        final String service = request.getServiceName();
+        final String operation = operationName(request);
+        final String key = service + "." + operation;
+        OperationMetrics operationMetrics = metrics.get(key);
+        if (operationMetrics == null) {
+            final OperationMetrics created = new OperationMetrics(service, operation);
+            operationMetrics = metrics.putIfAbsent(key, created);
+            if (operationMetrics == null) operationMetrics = created;
+        }
+        return operationMetrics;
+    }
+
+    private static String operationName(Request<?> request) {
+        final List<String> action = request.getParameters().get("Action");
+        if (action != null && !action.isEmpty()) {
+            return action.get(0);
+        }
+        if (request.getOriginalRequest() != null) {
+            final String name = request.getOriginalRequest().getClass().getSimpleName();
+            return name.endsWith("Request") ? name.substring(0, name.length() - "Request".length()) : name;
+        }
+        return request.getHttpMethod().name();
+    }
+
+    private static long requestBytes(Request<?> request) {
+        final long contentLength = contentLength(request.getHeaders());
+        if (contentLength > 0) return contentLength;
+        long size = 0;
+        for (final Map.Entry<String, List<String>> parameter : request.getParameters().entrySet()) {
+            for (final String value : parameter.getValue()) {
+                size += parameter.getKey().length() + (value == null ? 0 : value.length()) + 2;
+            }
+        }
+        return size;
+    }
+
+    private static long contentLength(Map<String, String> headers) {
+        for (final Map.Entry<String, String> header : headers.entrySet()) {
+            if ("Content-Length".equalsIgnoreCase(header.getKey())) {
+                try {
+                    return Long.parseLong(header.getValue().trim());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,33 @@
+package com.eucalyptus.tests.awssdk;
+
+import org.testng.ISuite;
+import org.testng.ISuiteListener;
+
+import java.io.File;
+import java.io.IOException;
+
+import static com.eucalyptus.tests.awssdk.N4j.print;
+
+/**
+ * TestNG listener that writes the SDK call metrics when a suite finishes.
+ *
+ * The metrics are written to the directory named by the sdk.metrics.dir
+ * system property, or to the suite output directory.
+ */
+public class SdkMetricsListener implements ISuiteListener {
+
+    @Override
+    public void onStart(ISuite suite) {
+        SdkMetrics.reset();
+    }
+
+    @Override
+    public void onFinish(ISuite suite) {
+        final String directory = System.getProperty("sdk.metrics.dir", suite.getOutputDirectory());
+        try {
+            SdkMetrics.dump(new File(directory));
+        } catch (IOException e) {
+            print("Unable to write SDK metrics: " + e);
+        }
+    }
+}
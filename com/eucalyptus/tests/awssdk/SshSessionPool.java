@@ -0,0 +1,128 @@
+package com.eucalyptus.tests.awssdk;
+
+import com.jcraft.jsch.*;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.eucalyptus.tests.awssdk.N4j.print;
+
+/**
+ * JVM wide pool of authenticated SSH sessions keyed by host and user.
+ *
+ * Each key holds a single connected Session and a lazily opened SFTP channel
+ * that is reused by all callers. Exec channels can only run one command so
+ * they are opened per command, but on the pooled session, which avoids the
+ * TCP and SSH handshakes that dominate credential bootstrap.
+ */
+class SshSessionPool {
+    private static final Map<String, PooledSession> sessions = new HashMap<>();
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread() {
+            @Override
+            public void run() {
+                closeAll();
+            }
+        });
+    }
+
+    interface SftpTask<T> {
+        T run(ChannelSftp sftp) throws SftpException, IOException;
+    }
+
+    /**
+     * Get a connected session for the given host and user, connecting if
+     * there is no session yet or the pooled one was dropped.
+     */
+    static Session session(String clcip, String user, String password) throws JSchException {
+        return pooled(clcip, user, password).session();
+    }
+
+    /**
+     * Run the task with the shared SFTP channel for the given host and user.
+     *
+     * Access to the channel is serialized as ChannelSftp is not thread safe.
+     */
+    static <T> T withSftp(String clcip, String user, String password, SftpTask<T> task)
+            throws JSchException, SftpException, IOException {
+        final PooledSession pooled = pooled(clcip, user, password);
+        synchronized (pooled) {
+            return task.run(pooled.sftp());
+        }
+    }
+
+    /**
+     * Open an exec channel for the command on the pooled session.
+     */
+    static ChannelExec exec(String clcip, String user, String password, String command) throws JSchException {
+        final ChannelExec channel = (ChannelExec) session(clcip, user, password).openChannel("exec");
+        channel.setCommand(command);
+        return channel;
+    }
+
+    static synchronized void closeAll() {
+        for (final PooledSession pooled : sessions.values()) {
+            pooled.close();
+        }
+        sessions.clear();
+    }
+
+    private static synchronized PooledSession pooled(String clcip, String user, String password) {
+        final String key = user + "@" + clcip;
+        PooledSession pooled = sessions.get(key);
+        if (pooled == null) {
+            pooled = new PooledSession(clcip, user, password);
+            sessions.put(key, pooled);
+        }
+        return pooled;
+    }
+
+    private static class PooledSession {
+        private final String clcip;
+        private final String user;
+        private final String password;
+        private Session session;
+        private ChannelSftp sftp;
+
+        private PooledSession(String clcip, String user, String password) {
+            this.clcip = clcip;
+            this.user = user;
+            this.password = password;
+        }
+
+        synchronized Session session() throws JSchException {
+            if (session == null || !session.isConnected()) {
+                sftp = null;
+                session = new JSch().getSession(user, clcip, 22);
+                session.setPassword(password);
+                session.setConfig("StrictHostKeyChecking", "no");
+                print("Establishing Connection...");
+                session.connect();
+                print("Connection established.");
+            }
+            return session;
+        }
+
+        synchronized ChannelSftp sftp() throws JSchException {
+            final Session current = session();
+            if (sftp == null || !sftp.isConnected()) {
+                sftp = (ChannelSftp) current.openChannel("sftp");
+                sftp.connect();
+            }
+            return sftp;
+        }
+
+        synchronized void close() {
+            if (sftp != null) {
+                sftp.disconnect();
+                sftp = null;
+            }
+            if (session != null) {
+                session.disconnect();
+                session = null;
+            }
+        }
+    }
+}
@@ -92,15 +92,15 @@ public class TestAdminRoles {
 
         testInfo(this.getClass().getSimpleName());
         getCloudInfo();
-        final String user = NAME_PREFIX + "user";
-        final String account = NAME_PREFIX + "account";
+        final String user = namePrefix() + "user";
+        final String account = namePrefix() + "account";
 
         final List<Runnable> cleanupTasks = new ArrayList<Runnable>();
         try {
             // create an account and user
             createAccount(account);
             createUser(account, user);
-            createIAMPolicy(account, user, NAME_PREFIX + "policy", null);
+            createIAMPolicy(account, user, namePrefix() + "policy", null);
             final AmazonEC2 ec2User = new AmazonEC2Client(getUserCreds(account, user));
             ec2User.setEndpoint(EC2_ENDPOINT);
 
@@ -113,7 +113,7 @@ public class TestAdminRoles {
             });
 
             // Set up administrative role
-            final String roleName = NAME_PREFIX + "resource-admin";
+            final String roleName = namePrefix() + "resource-admin";
             print("Creating role with name: " + roleName);
             final String roleArn = youAre.createRole(new CreateRoleRequest()
                     .withRoleName(roleName)
@@ -48,7 +48,7 @@ public class TestAutoScalingActivities {
         final List<Runnable> cleanupTasks = new ArrayList<Runnable>();
         try {
             // Register cleanup for launch config
-            final String configName = NAME_PREFIX + "ActivityTest";
+            final String configName = namePrefix() + "ActivityTest";
             cleanupTasks.add(new Runnable() {
                 @Override
                 public void run() {
@@ -65,7 +65,7 @@ public class TestAutoScalingActivities {
                     .withInstanceType(INSTANCE_TYPE));
 
             // Register cleanup for auto scaling group
-            final String groupName = NAME_PREFIX + "ActivityTest";
+            final String groupName = namePrefix() + "ActivityTest";
             cleanupTasks.add(new Runnable() {
                 @Override
                 public void run() {
@@ -86,7 +86,7 @@ public class TestAutoScalingActivities {
             );
 
             // Register cleanup for auto scaling policy
-            final String policyName = NAME_PREFIX + "ActivityTest";
+            final String policyName = namePrefix() + "ActivityTest";
             cleanupTasks.add(new Runnable() {
                 @Override
                 public void run() {
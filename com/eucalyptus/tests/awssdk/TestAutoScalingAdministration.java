@@ -49,14 +49,14 @@ public class TestAutoScalingAdministration {
         // End discovery, start test
         final List<Runnable> cleanupTasks = new ArrayList<Runnable>();
         try {
-            print( "Using prefix for test: " + NAME_PREFIX );
+            print( "Using prefix for test: " + namePrefix() );
 
             // create non-admin user in non-euca account then get credentials and connection for user
-            final String user = NAME_PREFIX + "user";
-            final String account = NAME_PREFIX + "account";
+            final String user = namePrefix() + "user";
+            final String account = namePrefix() + "account";
             createAccount(account);
             createUser(account, user);
-            createIAMPolicy(account, user, NAME_PREFIX + "policy", null);
+            createIAMPolicy(account, user, namePrefix() + "policy", null);
             final AmazonAutoScaling as_user = new AmazonAutoScalingClient(getUserCreds(account, user));
             as_user.setEndpoint(AS_ENDPOINT);
             cleanupTasks.add( new Runnable() {
@@ -68,7 +68,7 @@ public class TestAutoScalingAdministration {
             } );
 
             // Create launch configuration
-            final String launchConfigurationName = NAME_PREFIX + "Config1";
+            final String launchConfigurationName = namePrefix() + "Config1";
             print( "Creating launch configuration: " + launchConfigurationName );
             as_user.createLaunchConfiguration(new CreateLaunchConfigurationRequest()
                     .withImageId(IMAGE_ID)
@@ -93,7 +93,7 @@ public class TestAutoScalingAdministration {
             final String configArn = configurations.get( 0 ).getLaunchConfigurationARN();
 
             // Create group
-            final String groupName = NAME_PREFIX + "Group1";
+            final String groupName = namePrefix() + "Group1";
             print( "Creating group: " + groupName );
             as_user.createAutoScalingGroup(new CreateAutoScalingGroupRequest()
                     .withMinSize(0)
@@ -48,7 +48,7 @@ public class TestAutoScalingCooldown {
 		final List<Runnable> cleanupTasks = new ArrayList<Runnable>();
 		try {
 			// Create launch configuration
-            final String launchConfig = NAME_PREFIX + "DescribeGroupsInstances";
+            final String launchConfig = namePrefix() + "DescribeGroupsInstances";
 			print("Creating launch configuration: " + launchConfig);
             createLaunchConfig(launchConfig,IMAGE_ID,INSTANCE_TYPE,null,null,null,null,null,null,null,null);
 			cleanupTasks.add(new Runnable() {
@@ -60,7 +60,7 @@ public class TestAutoScalingCooldown {
 			});
 
 			// Create scaling group
-            final String groupName = NAME_PREFIX + "DescribeGroupsInstances";
+            final String groupName = namePrefix() + "DescribeGroupsInstances";
 			print("Creating auto scaling group: " + groupName);
             Integer minSize = 0;
             Integer maxSize = 2;
@@ -120,7 +120,7 @@ public class TestAutoScalingCooldown {
 
 			// Create / execute policy
 			print("Creating scaling policy");
-			final String policyName = NAME_PREFIX + "DescribeGroupsInstances";
+			final String policyName = namePrefix() + "DescribeGroupsInstances";
 			as.putScalingPolicy(new PutScalingPolicyRequest()
 					.withAutoScalingGroupName(groupName)
 					.withPolicyName(policyName)
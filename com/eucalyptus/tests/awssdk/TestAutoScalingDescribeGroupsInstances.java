@@ -48,7 +48,7 @@ public class TestAutoScalingDescribeGroupsInstances {
         final List<Runnable> cleanupTasks = new ArrayList<Runnable>();
         try {
             // Create launch configuration
-            final String configName = NAME_PREFIX + "DescribeGroupsInstances";
+            final String configName = namePrefix() + "DescribeGroupsInstances";
             print("Creating launch configuration: " + configName);
             as.createLaunchConfiguration(new CreateLaunchConfigurationRequest()
                     .withLaunchConfigurationName(configName)
@@ -63,7 +63,7 @@ public class TestAutoScalingDescribeGroupsInstances {
             } );
 
             // Create scaling group
-            final String groupName = NAME_PREFIX + "DescribeGroupsInstances";
+            final String groupName = namePrefix() + "DescribeGroupsInstances";
             print( "Creating auto scaling group: " + groupName );
             as.createAutoScalingGroup(new CreateAutoScalingGroupRequest()
                     .withAutoScalingGroupName(groupName)
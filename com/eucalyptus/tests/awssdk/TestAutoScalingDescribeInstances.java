@@ -50,7 +50,7 @@ public class TestAutoScalingDescribeInstances {
 		final List<Runnable> cleanupTasks = new ArrayList<Runnable>();
 		try {
 			// Create launch configuration
-            final String launchConfig = NAME_PREFIX + "DescribeTest";
+            final String launchConfig = namePrefix() + "DescribeTest";
 			print("Creating launch configuration: " + launchConfig);
             createLaunchConfig(launchConfig,IMAGE_ID,INSTANCE_TYPE,null,null,null,null,null,null,null,null);
 			cleanupTasks.add(new Runnable() {
@@ -62,7 +62,7 @@ public class TestAutoScalingDescribeInstances {
 			});
 
 			// Create scaling group
-            final String groupName = NAME_PREFIX + "DescribeTest";
+            final String groupName = namePrefix() + "DescribeTest";
             Integer minSize = 0;
             Integer maxSize = 1;
             Integer desiredCpacity = 1;
@@ -48,7 +48,7 @@ public class TestAutoScalingDescribePolicyAlarms {
         final List<Runnable> cleanupTasks = new ArrayList<Runnable>();
         try {
             // Register cleanup for launch config
-            final String configName = NAME_PREFIX + "PolicyAlarmTest";
+            final String configName = namePrefix() + "PolicyAlarmTest";
             cleanupTasks.add(new Runnable() {
                 @Override
                 public void run() {
@@ -65,7 +65,7 @@ public class TestAutoScalingDescribePolicyAlarms {
                     .withInstanceType(INSTANCE_TYPE));
 
             // Register cleanup for auto scaling group
-            final String groupName = NAME_PREFIX + "PolicyAlarmTest";
+            final String groupName = namePrefix() + "PolicyAlarmTest";
             cleanupTasks.add(new Runnable() {
                 @Override
                 public void run() {
@@ -85,7 +85,7 @@ public class TestAutoScalingDescribePolicyAlarms {
             );
 
             // Register cleanup for auto scaling group
-            final String policyName = NAME_PREFIX + "PolicyAlarmTest";
+            final String policyName = namePrefix() + "PolicyAlarmTest";
             cleanupTasks.add(new Runnable() {
                 @Override
                 public void run() {
@@ -106,7 +106,7 @@ public class TestAutoScalingDescribePolicyAlarms {
             print("Using policy ARN: " + policyArn);
 
             // Register cleanup for metric alarm
-            final String alarmName = NAME_PREFIX + "PolicyAlarmTest";
+            final String alarmName = namePrefix() + "PolicyAlarmTest";
             cleanupTasks.add(new Runnable() {
                 @Override
                 public void run() {
@@ -55,7 +55,7 @@ public class TestAutoScalingDescribeTags {
         final List<Runnable> cleanupTasks = new ArrayList<Runnable>();
         try {
             // Create launch configuration
-            final String configName = NAME_PREFIX + "TagsTest";
+            final String configName = namePrefix() + "TagsTest";
             print("Creating launch configuration: " + configName);
             as.createLaunchConfiguration(new CreateLaunchConfigurationRequest()
                     .withLaunchConfigurationName(configName)
@@ -70,7 +70,7 @@ public class TestAutoScalingDescribeTags {
             });
 
             // Create scaling groups
-            final String groupName1 = NAME_PREFIX + "TagsTest1";
+            final String groupName1 = namePrefix() + "TagsTest1";
             print("Creating auto scaling group: " + groupName1);
             as.createAutoScalingGroup(new CreateAutoScalingGroupRequest()
                     .withAutoScalingGroupName(groupName1)
@@ -91,7 +91,7 @@ public class TestAutoScalingDescribeTags {
                 }
             });
 
-            final String groupName2 = NAME_PREFIX + "TagsTest2";
+            final String groupName2 = namePrefix() + "TagsTest2";
             print("Creating auto scaling group: " + groupName2);
             as.createAutoScalingGroup(new CreateAutoScalingGroupRequest()
                     .withAutoScalingGroupName(groupName2)
@@ -47,7 +47,7 @@ public class TestAutoScalingEC2ReferenceValidation {
 		final List<Runnable> cleanupTasks = new ArrayList<Runnable>();
 		try {
 			// Generate a key to use
-			final String keyName = NAME_PREFIX + "EC2ReferenceTest";
+			final String keyName = namePrefix() + "EC2ReferenceTest";
 			print("Generating an SSH key for test use: " + keyName);
             createKeyPair(keyName);
 			cleanupTasks.add(new Runnable() {
@@ -59,7 +59,7 @@ public class TestAutoScalingEC2ReferenceValidation {
 			});
 
 			// Generate a security group to use
-			final String securityGroupName = NAME_PREFIX + "EC2ReferenceTest";
+			final String securityGroupName = namePrefix() + "EC2ReferenceTest";
 			print("Creating a security group for test use: "
 					+ securityGroupName);
             createSecurityGroup(securityGroupName, securityGroupName);
@@ -72,7 +72,7 @@ public class TestAutoScalingEC2ReferenceValidation {
 			});
 
 			// Register cleanup for launch config
-			final String launchConfig = NAME_PREFIX + "EC2ReferenceTest";
+			final String launchConfig = namePrefix() + "EC2ReferenceTest";
 			cleanupTasks.add(new Runnable() {
 				@Override
 				public void run() {
@@ -139,7 +139,7 @@ public class TestAutoScalingEC2ReferenceValidation {
                         null, null, null, null);
             }
 			// Register cleanup for auto scaling group
-            final String groupName = NAME_PREFIX + "EC2ReferenceTest";
+            final String groupName = namePrefix() + "EC2ReferenceTest";
 			cleanupTasks.add(new Runnable() {
 				@Override
 				public void run() {
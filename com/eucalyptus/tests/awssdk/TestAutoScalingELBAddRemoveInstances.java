@@ -48,7 +48,7 @@ public class TestAutoScalingELBAddRemoveInstances {
         final List<Runnable> cleanupTasks = new ArrayList<Runnable>();
         try {
             // Generate a load balancer to use
-            final String loadBalancerName = NAME_PREFIX + "ELBAddRemTest";
+            final String loadBalancerName = namePrefix() + "ELBAddRemTest";
             print("Creating a load balancer for test use: " + loadBalancerName);
             createLoadBalancer(loadBalancerName);
             cleanupTasks.add(new Runnable() {
@@ -60,7 +60,7 @@ public class TestAutoScalingELBAddRemoveInstances {
             });
 
             // Register cleanup for launch config
-            final String configName = NAME_PREFIX + "ELBAddRemoveTest";
+            final String configName = namePrefix() + "ELBAddRemoveTest";
             cleanupTasks.add(new Runnable() {
                 @Override
                 public void run() {
@@ -77,7 +77,7 @@ public class TestAutoScalingELBAddRemoveInstances {
                     .withInstanceType(INSTANCE_TYPE));
 
             // Register cleanup for auto scaling group
-            final String groupName = NAME_PREFIX + "ELBAddRemoveTest";
+            final String groupName = namePrefix() + "ELBAddRemoveTest";
             cleanupTasks.add(new Runnable() {
                 @Override
                 public void run() {
@@ -52,7 +52,7 @@ public class TestAutoScalingELBInstanceHealthMonitoring {
         final List<Runnable> cleanupTasks = new ArrayList<Runnable>();
         try {
             // Generate a load balancer to use
-            final String loadBalancerName = NAME_PREFIX + "ELBHealth";
+            final String loadBalancerName = namePrefix() + "ELBHealth";
             print("Creating a load balancer for test use: " + loadBalancerName);
             createLoadBalancer(loadBalancerName);
             cleanupTasks.add(new Runnable() {
@@ -64,7 +64,7 @@ public class TestAutoScalingELBInstanceHealthMonitoring {
             });
 
             // Create launch configuration
-            final String configName = NAME_PREFIX + "ELBInstanceHealthMonitoringTest";
+            final String configName = namePrefix() + "ELBInstanceHealthMonitoringTest";
             print("Creating launch configuration: " + configName);
             as.createLaunchConfiguration(new CreateLaunchConfigurationRequest()
                     .withLaunchConfigurationName(configName)
@@ -79,7 +79,7 @@ public class TestAutoScalingELBInstanceHealthMonitoring {
             });
 
             // Create scaling group
-            final String groupName = NAME_PREFIX + "ELBInstanceHealthMonitoringTest";
+            final String groupName = namePrefix() + "ELBInstanceHealthMonitoringTest";
             print("Creating auto scaling group: " + groupName);
             as.createAutoScalingGroup(new CreateAutoScalingGroupRequest()
                     .withAutoScalingGroupName(groupName)
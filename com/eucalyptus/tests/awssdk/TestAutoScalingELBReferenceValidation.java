@@ -45,7 +45,7 @@ public class TestAutoScalingELBReferenceValidation {
         final List<Runnable> cleanupTasks = new ArrayList<Runnable>();
 		try {
             // Generate a load balancer to use
-            final String loadBalancer = NAME_PREFIX + "ELBReference";
+            final String loadBalancer = namePrefix() + "ELBReference";
             print("Creating a load balancer for test use: " + loadBalancer);
             createLoadBalancer(loadBalancer);
             cleanupTasks.add(new Runnable() {
@@ -57,7 +57,7 @@ public class TestAutoScalingELBReferenceValidation {
             });
 
 			// Register cleanup for launch config
-            final String launchConfig = NAME_PREFIX + "ELBReferenceTest";
+            final String launchConfig = namePrefix() + "ELBReferenceTest";
 			cleanupTasks.add(new Runnable() {
 				@Override
 				public void run() {
@@ -71,7 +71,7 @@ public class TestAutoScalingELBReferenceValidation {
             createLaunchConfig(launchConfig,IMAGE_ID,INSTANCE_TYPE,null,null,null,null,null,null,null,null);
 
 			// Register cleanup for auto scaling group
-            final String groupName = NAME_PREFIX + "ELBReferenceTest";
+            final String groupName = namePrefix() + "ELBReferenceTest";
 			cleanupTasks.add(new Runnable() {
 				@Override
 				public void run() {
@@ -49,7 +49,7 @@ public class TestAutoScalingEc2InstanceHealthMonitoring {
 		final List<Runnable> cleanupTasks = new ArrayList<Runnable>();
 		try {
 			// Create launch configuration
-            final String launchConfig = NAME_PREFIX
+            final String launchConfig = namePrefix()
 					+ "Ec2InstanceHealthMonitoringTest";
 			print("Creating launch configuration: " + launchConfig);
             createLaunchConfig(launchConfig,IMAGE_ID,INSTANCE_TYPE,null,null,null,null,null,null,null,null);
@@ -62,7 +62,7 @@ public class TestAutoScalingEc2InstanceHealthMonitoring {
 			});
 
 			// Create scaling group
-            final String groupName = NAME_PREFIX	+ "Ec2InstanceHealthMonitoringTest";
+            final String groupName = namePrefix()	+ "Ec2InstanceHealthMonitoringTest";
             Integer minSize = 1;
             Integer maxSize = 1;
             Integer desiredCapacity = 1;
@@ -43,7 +43,7 @@ public class TestAutoScalingInstanceLifecycle {
         final List<Runnable> cleanupTasks = new ArrayList<Runnable>();
         try {
             // Register cleanup for launch config
-            final String launchConfig = NAME_PREFIX + "InstanceLifecycleTest";
+            final String launchConfig = namePrefix() + "InstanceLifecycleTest";
             cleanupTasks.add(new Runnable() {
                 @Override
                 public void run() {
@@ -57,7 +57,7 @@ public class TestAutoScalingInstanceLifecycle {
             createLaunchConfig(launchConfig,IMAGE_ID,INSTANCE_TYPE,null,null,null,null,null,null,null,null);
 
             // Register cleanup for auto scaling group
-            final String groupName = NAME_PREFIX + "InstanceLifecycleTest";
+            final String groupName = namePrefix() + "InstanceLifecycleTest";
             cleanupTasks.add(new Runnable() {
                 @Override
                 public void run() {
@@ -51,7 +51,7 @@ public class TestAutoScalingInstanceProfile {
         final List<Runnable> cleanupTasks = new ArrayList<Runnable>();
         try {
             // Create role
-            final String roleName = NAME_PREFIX + "RoleTest";
+            final String roleName = namePrefix() + "RoleTest";
             print("Creating role: " + roleName);
             youAre.createRole(new CreateRoleRequest()
                     .withRoleName(roleName)
@@ -76,7 +76,7 @@ public class TestAutoScalingInstanceProfile {
             });
 
             // Create IAM instance profile
-            final String instanceProfileName = NAME_PREFIX + "IamInstanceProfileTest";
+            final String instanceProfileName = namePrefix() + "IamInstanceProfileTest";
             print("Creating instance profile: " + instanceProfileName);
             final CreateInstanceProfileResult instanceProfileResult =
                     youAre.createInstanceProfile(new CreateInstanceProfileRequest()
@@ -93,7 +93,7 @@ public class TestAutoScalingInstanceProfile {
             print("Instance profile has ARN: " + instanceProfileArn);
 
             // Create launch configuration
-            final String configName = NAME_PREFIX + "IamInstanceProfileTest";
+            final String configName = namePrefix() + "IamInstanceProfileTest";
             print("Creating launch configuration: " + configName);
             as.createLaunchConfiguration(new CreateLaunchConfigurationRequest()
                     .withLaunchConfigurationName(configName)
@@ -109,7 +109,7 @@ public class TestAutoScalingInstanceProfile {
             });
 
             // Create scaling group
-            final String groupName = NAME_PREFIX + "IamInstanceProfileTest";
+            final String groupName = namePrefix() + "IamInstanceProfileTest";
             print("Creating auto scaling group: " + groupName);
             as.createAutoScalingGroup(new CreateAutoScalingGroupRequest()
                     .withAutoScalingGroupName(groupName)
@@ -49,7 +49,7 @@ public class TestAutoScalingLaunchAndTerminate {
 		final List<Runnable> cleanupTasks = new ArrayList<Runnable>();
 		try {
 			// Create launch configuration
-            final String launchConfig = NAME_PREFIX + "LaunchTest";
+            final String launchConfig = namePrefix() + "LaunchTest";
 			print("Creating launch configuration: " + launchConfig);
             createLaunchConfig(launchConfig,IMAGE_ID,INSTANCE_TYPE,null,null,null,null,null,null,null,null);
 			cleanupTasks.add(new Runnable() {
@@ -61,7 +61,7 @@ public class TestAutoScalingLaunchAndTerminate {
 			});
 
 			// Create scaling group
-            final String groupName = NAME_PREFIX + "LaunchTest";
+            final String groupName = namePrefix() + "LaunchTest";
 			print("Creating auto scaling group: " + groupName);
             Integer minSize = 0;
             Integer maxSize = 2;
@@ -44,7 +44,7 @@ public class TestAutoScalingMetricsManagement {
         final List<Runnable> cleanupTasks = new ArrayList<Runnable>();
         try {
             // Register cleanup for launch configs
-            final String configName = NAME_PREFIX + "MetricsTest";
+            final String configName = namePrefix() + "MetricsTest";
             cleanupTasks.add(new Runnable() {
                 @Override
                 public void run() {
@@ -61,7 +61,7 @@ public class TestAutoScalingMetricsManagement {
                     .withInstanceType(INSTANCE_TYPE));
 
             // Register cleanup for auto scaling groups
-            final String groupName = NAME_PREFIX + "MetricsTest";
+            final String groupName = namePrefix() + "MetricsTest";
             cleanupTasks.add(new Runnable() {
                 @Override
                 public void run() {
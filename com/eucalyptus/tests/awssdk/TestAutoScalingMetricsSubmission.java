@@ -47,7 +47,7 @@ public class TestAutoScalingMetricsSubmission {
         final List<Runnable> cleanupTasks = new ArrayList<Runnable>();
         try {
             // Register cleanup for launch config
-            final String configName = NAME_PREFIX + "SubmitMetrics";
+            final String configName = namePrefix() + "SubmitMetrics";
             cleanupTasks.add(new Runnable() {
                 @Override
                 public void run() {
@@ -65,7 +65,7 @@ public class TestAutoScalingMetricsSubmission {
                     .withInstanceMonitoring(new InstanceMonitoring().withEnabled(true)));
 
             // Register cleanup for auto scaling group
-            final String groupName = NAME_PREFIX + "SubmitMetrics";
+            final String groupName = namePrefix() + "SubmitMetrics";
             cleanupTasks.add(new Runnable() {
                 @Override
                 public void run() {
@@ -47,7 +47,7 @@ public class TestAutoScalingSetInstanceHealth {
         final List<Runnable> cleanupTasks = new ArrayList<Runnable>();
         try {
             // Create launch configuration
-            final String configName = NAME_PREFIX + "SetInstanceHealthTest";
+            final String configName = namePrefix() + "SetInstanceHealthTest";
             print( "Creating launch configuration: " + configName );
             as.createLaunchConfiguration( new CreateLaunchConfigurationRequest()
                     .withLaunchConfigurationName( configName )
@@ -62,7 +62,7 @@ public class TestAutoScalingSetInstanceHealth {
             } );
 
             // Create scaling group
-            final String groupName = NAME_PREFIX + "SetInstanceHealthTest";
+            final String groupName = namePrefix() + "SetInstanceHealthTest";
             print( "Creating auto scaling group: " + groupName );
             as.createAutoScalingGroup( new CreateAutoScalingGroupRequest()
                     .withAutoScalingGroupName( groupName )
@@ -42,7 +42,7 @@ public class TestAutoScalingSuspendAndResumeProcesses {
         final List<Runnable> cleanupTasks = new ArrayList<Runnable>();
         try {
             // Create launch configuration
-            final String configName = NAME_PREFIX + "SuspendResumeTest";
+            final String configName = namePrefix() + "SuspendResumeTest";
             print("Creating launch configuration: " + configName);
             as.createLaunchConfiguration(new CreateLaunchConfigurationRequest()
                     .withLaunchConfigurationName(configName)
@@ -57,7 +57,7 @@ public class TestAutoScalingSuspendAndResumeProcesses {
             });
 
             // Create scaling group
-            final String groupName = NAME_PREFIX + "SuspendResumeTest";
+            final String groupName = namePrefix() + "SuspendResumeTest";
             print("Creating auto scaling group: " + groupName);
             as.createAutoScalingGroup(new CreateAutoScalingGroupRequest()
                     .withAutoScalingGroupName(groupName)
@@ -49,7 +49,7 @@ public class TestAutoScalingTags {
         final List<Runnable> cleanupTasks = new ArrayList<Runnable>();
         try {
             // Register cleanup for launch config
-            final String launchConfig = NAME_PREFIX + "TagTest";
+            final String launchConfig = namePrefix() + "TagTest";
             cleanupTasks.add(new Runnable() {
                 @Override
                 public void run() {
@@ -63,8 +63,8 @@ public class TestAutoScalingTags {
             createLaunchConfig(launchConfig, IMAGE_ID, INSTANCE_TYPE, null, null, null, null, null, null, null, null);
 
             // Register cleanup for auto scaling group
-            final String groupName1 = NAME_PREFIX + "TagTest1";
-            final String groupName2 = NAME_PREFIX + "TagTest2";
+            final String groupName1 = namePrefix() + "TagTest1";
+            final String groupName2 = namePrefix() + "TagTest2";
             cleanupTasks.add(new Runnable() {
                 @Override
                 public void run() {
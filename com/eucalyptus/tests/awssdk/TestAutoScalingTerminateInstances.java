@@ -50,7 +50,7 @@ public class TestAutoScalingTerminateInstances {
 		final List<Runnable> cleanupTasks = new ArrayList<Runnable>();
 		try {
 			// Create launch configuration
-            final String launchConfig = NAME_PREFIX + "TerminateTest";
+            final String launchConfig = namePrefix() + "TerminateTest";
 			print("Creating launch configuration: " + launchConfig);
             createLaunchConfig(launchConfig,IMAGE_ID,INSTANCE_TYPE,null,null,null,null,null,null,null,null);
 			cleanupTasks.add(new Runnable() {
@@ -62,7 +62,7 @@ public class TestAutoScalingTerminateInstances {
 			});
 
 			// Create scaling group
-            final String asGroupName = NAME_PREFIX + "TerminateTest";
+            final String asGroupName = namePrefix() + "TerminateTest";
             Integer minSize = 0;
             Integer maxSize = 2;
             Integer desiredCapacity =2;
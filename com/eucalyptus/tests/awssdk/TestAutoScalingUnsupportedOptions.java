@@ -50,7 +50,7 @@ public class TestAutoScalingUnsupportedOptions {
         final List<Runnable> cleanupTasks = new ArrayList<Runnable>();
         try {
             // Add clean up for configuration
-            final String configName = NAME_PREFIX + "OptionsTest";
+            final String configName = namePrefix() + "OptionsTest";
             cleanupTasks.add(new Runnable() {
                 @Override
                 public void run() {
@@ -83,7 +83,7 @@ public class TestAutoScalingUnsupportedOptions {
             );
 
             // Add clean up for group
-            final String groupName = NAME_PREFIX + "OptionsTest";
+            final String groupName = namePrefix() + "OptionsTest";
             cleanupTasks.add(new Runnable() {
                 @Override
                 public void run() {
@@ -45,7 +45,7 @@ public class TestAutoScalingVMTypeReferenceValidation {
         final List<Runnable> cleanupTasks = new ArrayList<Runnable>();
         try {
             // Register cleanup for launch config
-            final String launchConfig = NAME_PREFIX + "VMTypeReferenceTest";
+            final String launchConfig = namePrefix() + "VMTypeReferenceTest";
             cleanupTasks.add(new Runnable() {
                 @Override
                 public void run() {
@@ -57,7 +57,7 @@ public class TestAutoScalingVMTypeReferenceValidation {
             // Create launch configuration with invalid vm type
             print("Creating launch configuration with invalid vm type: " + launchConfig);
             try {
-                String instanceType =  NAME_PREFIX+"-invalid";
+                String instanceType =  namePrefix()+"-invalid";
                 createLaunchConfig(launchConfig,IMAGE_ID,instanceType,null,null,null,null,null,null,null,null);
                 assertThat(false, "Creation should fail");
                 INSTANCE_TYPE = "m1.small";
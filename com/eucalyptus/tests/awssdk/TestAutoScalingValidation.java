@@ -47,7 +47,7 @@ public class TestAutoScalingValidation {
         final List<Runnable> cleanupTasks = new ArrayList<Runnable>();
         try {
             // Register cleanup for launch configs
-            final String configName = NAME_PREFIX + "ValidationTest";
+            final String configName = namePrefix() + "ValidationTest";
             cleanupTasks.add(new Runnable() {
                 @Override
                 public void run() {
@@ -87,7 +87,7 @@ public class TestAutoScalingValidation {
                     .withInstanceType(INSTANCE_TYPE));
 
             // Register cleanup for auto scaling groups
-            final String groupName = NAME_PREFIX + "ValidationTest";
+            final String groupName = namePrefix() + "ValidationTest";
             cleanupTasks.add(new Runnable() {
                 @Override
                 public void run() {
@@ -169,7 +169,7 @@ public class TestAutoScalingValidation {
             }
 
             // Register cleanup for launch configs
-            final String policyName = NAME_PREFIX + "ValidationTest";
+            final String policyName = namePrefix() + "ValidationTest";
             cleanupTasks.add(new Runnable() {
                 @Override
                 public void run() {
@@ -133,7 +133,7 @@ public class TestCannedRoles {
 
         testInfo(this.getClass().getSimpleName());
         getCloudInfo();
-        final String account = NAME_PREFIX + "account";
+        final String account = namePrefix() + "account";
 
         final List<Runnable> cleanupTasks = new ArrayList<Runnable>();
         try {
@@ -207,7 +207,7 @@ public class TestCannedRoles {
             });
 
             // Test Admin Role
-            final String testadminRoleAccount = NAME_PREFIX + "admin-role-account";
+            final String testadminRoleAccount = namePrefix() + "admin-role-account";
             YouAreClient euare = getYouAreClient(credentialsProvider("arn:aws:iam::eucalyptus:role/eucalyptus/AccountAdministrator", "session-name-here", accessKey, secretKey));
             euare.createAccount(new CreateAccountRequest().withAccountName(testadminRoleAccount));
             assertThat(getAccountID(testadminRoleAccount) != null, "Expected account ID");
@@ -245,8 +245,8 @@ public class TestCannedRoles {
             assertThat(!components.isEmpty(), "Expected Components");
 
             // Test Resource Admin Role  first create an account and add a keypair
-            final String resourceAccount = NAME_PREFIX + "resource-account";
-            final String keyName = NAME_PREFIX + "resource-key";
+            final String resourceAccount = namePrefix() + "resource-account";
+            final String keyName = namePrefix() + "resource-key";
             createAccount(resourceAccount);
 
             print("Creating credentials for " + resourceAccount);
@@ -53,7 +53,7 @@ public class TestEC2InstanceProfile {
             print("Using prefix for test: " + namePrefix);
 
             // Create role
-            final String roleName = NAME_PREFIX + "RoleTest";
+            final String roleName = namePrefix() + "RoleTest";
             print("Creating role: " + roleName);
             youAre.createRole(new CreateRoleRequest()
                     .withRoleName(roleName)
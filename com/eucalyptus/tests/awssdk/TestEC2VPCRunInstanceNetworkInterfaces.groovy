@@ -10,6 +10,8 @@ import com.amazonaws.services.ec2.model.*
 import org.testng.Assert
 import org.testng.annotations.Test
 
+import java.util.concurrent.TimeUnit
+
 import static N4j.minimalInit
 import static N4j.ACCESS_KEY
 import static N4j.EC2_ENDPOINT
@@ -600,19 +602,12 @@ class TestEC2VPCRunInstanceNetworkInterfaces {
           print("Terminating instances ${instanceIds}")
           terminateInstances(new TerminateInstancesRequest(instanceIds: instanceIds))
 
+          print("Waiting for instances ${instanceIds} to terminate")
+          ResourceWaiter terminateWaiter = new ResourceWaiter( ec2 )
           instanceIds.each{ String instanceId ->
-            print("Waiting for instance ${instanceId} to terminate")
-            (1..25).find {
-              sleep 5000
-              print("Waiting for instance ${instanceId} to terminate, waited ${it * 5}s")
-              describeInstances(new DescribeInstancesRequest(
-                  instanceIds: [instanceId],
-                  filters: [new Filter(name: "instance-state-name", values: ["terminated"])]
-              )).with {
-                reservations?.getAt(0)?.instances?.getAt(0)?.instanceId == instanceId
-              }
-            }
+            terminateWaiter.instance( instanceId, 'terminated' )
           }
+          terminateWaiter.await( 125, TimeUnit.SECONDS )
         }
 
         print( "Running instance with specified network interface ${primaryNetworkInterfaceId}" )
@@ -637,19 +632,12 @@ class TestEC2VPCRunInstanceNetworkInterfaces {
         print( "Instance launched with identifier ${instanceId_2}" )
         instanceIds << instanceId_2
 
+        print( "Waiting for instances ${instanceIds} to start" )
+        ResourceWaiter startWaiter = new ResourceWaiter( ec2 )
         instanceIds.each { String instanceId ->
-          print( "Waiting for instance ${instanceId} to start" )
-          ( 1..25 ).find{
-            sleep 5000
-            print( "Waiting for instance ${instanceId} to start, waited ${it*5}s" )
-            describeInstances( new DescribeInstancesRequest(
-                instanceIds: [ instanceId ],
-                filters: [ new Filter( name: "instance-state-name", values: [ "running" ] ) ]
-            ) ).with {
-              reservations?.getAt( 0 )?.instances?.getAt( 0 )?.instanceId == instanceId
-            }
-          }
+          startWaiter.instance( instanceId, 'running' )
         }
+        startWaiter.await( 125, TimeUnit.SECONDS )
 
         print( "Verifying network interface metadata" )
         describeNetworkInterfaces( new DescribeNetworkInterfacesRequest( networkInterfaceIds: [
@@ -44,7 +44,7 @@ public class TestIAMInstanceProfileManagement {
         final List<Runnable> cleanupTasks = new ArrayList<Runnable>();
         try {
             // Create instance profile
-            final String profileName = NAME_PREFIX + "ProfileTest";
+            final String profileName = namePrefix() + "ProfileTest";
             print("Creating instance profile: " + profileName);
             youAre.createInstanceProfile(new CreateInstanceProfileRequest()
                     .withInstanceProfileName(profileName)
@@ -98,7 +98,7 @@ public class TestIAMInstanceProfileManagement {
             }
 
             // Create role
-            final String roleName = NAME_PREFIX + "ProfileTest";
+            final String roleName = namePrefix() + "ProfileTest";
             print("Creating role: " + roleName);
             youAre.createRole(new CreateRoleRequest()
                     .withRoleName(roleName)
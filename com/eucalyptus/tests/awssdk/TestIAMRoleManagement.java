@@ -44,7 +44,7 @@ public class TestIAMRoleManagement {
         final List<Runnable> cleanupTasks = new ArrayList<Runnable>();
         try {
             // Create role
-            final String roleName = NAME_PREFIX + "RoleTest";
+            final String roleName = namePrefix() + "RoleTest";
             print("Creating role: " + roleName);
             youAre.createRole(new CreateRoleRequest()
                     .withRoleName(roleName)
@@ -141,7 +141,7 @@ public class TestIAMRoleManagement {
             }
 
             // Add policy to role
-            final String policyName = NAME_PREFIX + "RoleTest";
+            final String policyName = namePrefix() + "RoleTest";
             print("Adding policy: " + policyName + " to role: " + roleName);
             youAre.putRolePolicy(new PutRolePolicyRequest()
                     .withRoleName(roleName)
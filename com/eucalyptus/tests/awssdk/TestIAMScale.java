@@ -0,0 +1,57 @@
+package com.eucalyptus.tests.awssdk;
+
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static com.eucalyptus.tests.awssdk.N4j.*;
+
+/**
+ * This application tests creating many IAM accounts and users concurrently.
+ * <p/>
+ * The number of accounts, users per account and threads are set by the
+ * load.iam.accounts, load.iam.users and load.iam.threads system properties.
+ */
+public class TestIAMScale {
+
+    @Test
+    public void IAMScaleTest() throws Exception {
+        testInfo(this.getClass().getSimpleName());
+        getCloudInfo();
+        final int accountCount = Integer.getInteger("load.iam.accounts", 10);
+        final int userCount = Integer.getInteger("load.iam.users", 20);
+        final int threads = Integer.getInteger("load.iam.threads", 8);
+
+        final List<String> accountNames = new ArrayList<>();
+        for (int i = 0; i < accountCount; i++) {
+            accountNames.add(namePrefix() + "scale-" + i);
+        }
+        try {
+            long start = System.currentTimeMillis();
+            final Map<String, String> accounts = createAccounts(accountNames, threads);
+            assertThat(accounts.size() == accountCount, "Expected " + accountCount + " accounts, created " + accounts.size());
+            print("Created " + accountCount + " accounts in " + (System.currentTimeMillis() - start) + "ms");
+
+            final List<String> userNames = new ArrayList<>();
+            for (int i = 0; i < userCount; i++) {
+                userNames.add("user-" + i);
+            }
+            start = System.currentTimeMillis();
+            for (final String accountName : accountNames) {
+                createUsers(accountName, userNames, threads);
+            }
+            print("Created " + (accountCount * userCount) + " users in " + (System.currentTimeMillis() - start) + "ms");
+        } finally {
+            for (final String accountName : accountNames) {
+                try {
+                    deleteAccount(accountName);
+                } catch (Throwable e) {
+                    // the account may not have been created
+                    print("Unable to delete account " + accountName + ": " + e);
+                }
+            }
+        }
+    }
+}
@@ -22,7 +22,7 @@ class TestMultipleSecurityGroups {
         final List<Runnable> cleanupTasks = [] as List<Runnable>
         try {
             // Test EC2 functionality
-            List<String> groupNames = (1..3).collect { Integer count -> "${NAME_PREFIX}Group${count}" as String }
+            List<String> groupNames = (1..3).collect { Integer count -> "${namePrefix()}Group${count}" as String }
             groupNames.each { String groupName ->
                 println("Creating security group: ${groupName}")
                 ec2.createSecurityGroup(new CreateSecurityGroupRequest(
@@ -35,7 +35,7 @@ class TestMultipleSecurityGroups {
                 }
             }
 
-            final String instanceClientToken = "${NAME_PREFIX}Instance1"
+            final String instanceClientToken = "${namePrefix()}Instance1"
             println("Running instance with client token: ${instanceClientToken}")
             final String instanceId = ec2.runInstances(new RunInstancesRequest(
                     imageId: IMAGE_ID,
@@ -130,7 +130,7 @@ class TestMultipleSecurityGroups {
             assertThat(["terminated", "stopped"].contains(status), "Unexpected instance status: ${status}")
 
             // Test AutoScaling functionality
-            final String launchConfigurationName = "${NAME_PREFIX}Config1"
+            final String launchConfigurationName = "${namePrefix()}Config1"
             print("Creating launch configuration: ${launchConfigurationName}");
             asg.createLaunchConfiguration(new CreateLaunchConfigurationRequest(
                     imageId: IMAGE_ID,
@@ -143,7 +143,7 @@ class TestMultipleSecurityGroups {
                 asg.deleteLaunchConfiguration(new DeleteLaunchConfigurationRequest(launchConfigurationName: launchConfigurationName))
             }
 
-            final String autoScalingGroupName = "${NAME_PREFIX}Group1"
+            final String autoScalingGroupName = "${namePrefix()}Group1"
             print("Creating auto scaling group: ${autoScalingGroupName}");
             asg.createAutoScalingGroup(new CreateAutoScalingGroupRequest(
                     minSize: 0,
@@ -60,8 +60,8 @@ public class TestSTSAssumeRole {
     public void STSAssumeRoleTest() throws Exception {
         testInfo(this.getClass().getSimpleName());
         getCloudInfo();
-        final String user = NAME_PREFIX + "user";
-        final String account = NAME_PREFIX + "account";
+        final String user = namePrefix() + "user";
+        final String account = namePrefix() + "account";
 
         final List<Runnable> cleanupTasks = new ArrayList<Runnable>();
         try {
@@ -71,7 +71,7 @@ public class TestSTSAssumeRole {
             // create non-admin user in non-euca account then get credentials and connection for user
             createAccount(account);
             createUser(account, user);
-            createIAMPolicy(account, user, NAME_PREFIX + "policy", null);
+            createIAMPolicy(account, user, namePrefix() + "policy", null);
 
             // get youAre connection for new user
             AWSCredentialsProvider awsCredentialsProvider = new StaticCredentialsProvider(getUserCreds(account,user));
@@ -92,7 +92,7 @@ public class TestSTSAssumeRole {
             final String userArn = userResult.getUser().getArn();
             print("Got user ARN (will convert account alias to ID if necessary): " + userArn);
             {
-                final String roleNameA = NAME_PREFIX + "AssumeRoleTestA";
+                final String roleNameA = namePrefix() + "AssumeRoleTestA";
                 print("Creating role to determine account number: " + roleNameA);
                 final CreateRoleResult roleResult = youAre.createRole(new CreateRoleRequest()
                         .withRoleName(roleNameA)
@@ -130,7 +130,7 @@ public class TestSTSAssumeRole {
             print("Using user ARN in assume role policy: " + userCleanedArn);
 
             // Create role
-            final String roleName = NAME_PREFIX + "AssumeRoleTest";
+            final String roleName = namePrefix() + "AssumeRoleTest";
             print("Creating role: " + roleName);
             youAre.createRole(new CreateRoleRequest()
                     .withRoleName(roleName)
@@ -182,7 +182,7 @@ public class TestSTSAssumeRole {
             }
 
             // Add policy to role
-            final String policyName = NAME_PREFIX + "AssumeRoleTestPolicy";
+            final String policyName = namePrefix() + "AssumeRoleTestPolicy";
             print("Adding policy: " + policyName + " to role: " + roleName);
             youAre.putRolePolicy(new PutRolePolicyRequest()
                     .withRoleName(roleName)
@@ -0,0 +1,202 @@
+package com.eucalyptus.tests.awssdk;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Polls a resource until a condition is met or a timeout expires.
+ *
+ * The first poll is immediate unless an initial delay is set, and the delay
+ * between polls then grows exponentially (with jitter) up to a maximum, so
+ * quick transitions are seen quickly while slow ones are not polled more
+ * than necessary. An initial delay is needed when the condition may already
+ * hold before a change just requested becomes visible, such as waiting for
+ * no instances to be in a transitional state right after a terminate.
+ *
+ * <pre>
+ * Waiter.Result&lt;String&gt; result = Waiter.waitFor("health status", new Waiter.Poll&lt;String&gt;() {
+ *     public String poll() { return getHealthStatus(instanceId); }
+ * }).until(new Waiter.Condition&lt;String&gt;() {
+ *     public boolean isSatisfied(String status) { return "Healthy".equals(status); }
+ * }).withTimeout(15, TimeUnit.MINUTES).await();
+ * </pre>
+ */
+class Waiter<T> {
+    private static final Random random = new Random();
+    private static volatile Listener defaultListener;
+
+    /**
+     * Fetch the current value of the resource being waited on.
+     */
+    interface Poll<T> {
+        T poll();
+    }
+
+    interface Condition<T> {
+        boolean isSatisfied(T value);
+    }
+
+    /**
+     * Metrics hook notified for each poll and when a wait completes.
+     */
+    interface Listener {
+        void polled(String description, int attempt, long elapsed, boolean satisfied);
+
+        void completed(String description, int attempts, long elapsed, boolean satisfied);
+    }
+
+    /**
+     * Exponential backoff with jitter. Delays are in milliseconds.
+     */
+    static class Backoff {
+        static final Backoff DEFAULT = new Backoff(250, TimeUnit.SECONDS.toMillis(10), 2.0, 0.2);
+
+        private final long initialDelay;
+        private final long maxDelay;
+        private final double multiplier;
+        private final double jitter;
+
+        /**
+         * @param initialDelay delay before the second poll
+         * @param maxDelay upper bound for the delay between polls
+         * @param multiplier growth factor for each subsequent delay
+         * @param jitter fraction (0 - 1) of each delay that is randomized
+         */
+        Backoff(long initialDelay, long maxDelay, double multiplier, double jitter) {
+            this.initialDelay = initialDelay;
+            this.maxDelay = maxDelay;
+            this.multiplier = multiplier;
+            this.jitter = jitter;
+        }
+
+        /**
+         * @param attempt the number of polls done so far (1 or more)
+         * @return the delay before the next poll
+         */
+        long delay(int attempt) {
+            final double delay = Math.min(maxDelay, initialDelay * Math.pow(multiplier, attempt - 1));
+            return (long) (delay * (1.0 - jitter * random.nextDouble()));
+        }
+    }
+
+    static class Result<T> {
+        private final boolean satisfied;
+        private final T value;
+        private final int attempts;
+        private final long elapsed;
+
+        private Result(boolean satisfied, T value, int attempts, long elapsed) {
+            this.satisfied = satisfied;
+            this.value = value;
+            this.attempts = attempts;
+            this.elapsed = elapsed;
+        }
+
+        boolean isSatisfied() {
+            return satisfied;
+        }
+
+        /**
+         * @return the last polled value
+         */
+        T getValue() {
+            return value;
+        }
+
+        int getAttempts() {
+            return attempts;
+        }
+
+        long getElapsed() {
+            return elapsed;
+        }
+    }
+
+    private final String description;
+    private final Poll<T> poll;
+    private Condition<? super T> condition;
+    private long timeout = TimeUnit.MINUTES.toMillis(15);
+    private long initialDelay = 0;
+    private Backoff backoff = Backoff.DEFAULT;
+    private Listener listener;
+
+    private Waiter(String description, Poll<T> poll) {
+        this.description = description;
+        this.poll = poll;
+    }
+
+    static <T> Waiter<T> waitFor(String description, Poll<T> poll) {
+        return new Waiter<>(description, poll);
+    }
+
+    /**
+     * Set a listener that is used for all waits without their own listener.
+     */
+    static void setDefaultListener(Listener listener) {
+        defaultListener = listener;
+    }
+
+    Waiter<T> until(Condition<? super T> condition) {
+        this.condition = condition;
+        return this;
+    }
+
+    Waiter<T> withTimeout(long timeout, TimeUnit unit) {
+        this.timeout = unit.toMillis(timeout);
+        return this;
+    }
+
+    /**
+     * Delay the first poll, the delay counts towards the timeout.
+     */
+    Waiter<T> withInitialDelay(long initialDelay, TimeUnit unit) {
+        this.initialDelay = unit.toMillis(initialDelay);
+        return this;
+    }
+
+    Waiter<T> withBackoff(Backoff backoff) {
+        this.backoff = backoff;
+        return this;
+    }
+
+    Waiter<T> withListener(Listener listener) {
+        this.listener = listener;
+        return this;
+    }
+
+    /**
+     * Poll until the condition is satisfied, the timeout expires or the
+     * thread is interrupted.
+     */
+    Result<T> await() {
+        final Listener listener = this.listener != null ? this.listener : defaultListener;
+        final long startTime = System.currentTimeMillis();
+        int attempts = 0;
+        T value;
+        boolean satisfied;
+        if (initialDelay > 0) {
+            try {
+                Thread.sleep(Math.min(initialDelay, timeout));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        while (true) {
+            value = poll.poll();
+            satisfied = condition.isSatisfied(value);
+            attempts++;
+            final long elapsed = System.currentTimeMillis() - startTime;
+            if (listener != null) listener.polled(description, attempts, elapsed, satisfied);
+            if (satisfied || elapsed >= timeout) break;
+            try {
+                Thread.sleep(Math.max(1, Math.min(backoff.delay(attempts), timeout - elapsed)));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        final Result<T> result = new Result<>(satisfied, value, attempts, System.currentTimeMillis() - startTime);
+        if (listener != null) listener.completed(description, attempts, result.getElapsed(), satisfied);
+        return result;
+    }
+}